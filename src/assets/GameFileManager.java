@@ -6,7 +6,7 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -27,7 +27,7 @@ public class GameFileManager {
      * @return A list containing each line of the file as a separate string
      */
     public static List<String> ReadTextLevel(String filePath) {
-        List<String> lines = new LinkedList<>();
+        List<String> lines = new ArrayList<>();
         try {
             File file = new File(filePath);
 
@@ -64,16 +64,13 @@ public class GameFileManager {
      * @return A list of strings containing the separated values
      */
     public static List<String> AnalyseLine(String line) {
-        List<String> parsedValues = new LinkedList<>();
-        String currentValue = "";
+        List<String> parsedValues = new ArrayList<>();
+        int start = 0;
+        int separator;
 
-        for (char c : line.toCharArray()) {
-            if (c == ';') {
-                parsedValues.add(currentValue);
-                currentValue = "";
-            } else {
-                currentValue += c;
-            }
+        while ((separator = line.indexOf(';', start)) >= 0) {
+            parsedValues.add(line.substring(start, separator));
+            start = separator + 1;
         }
 
         return parsedValues;
@@ -113,4 +110,21 @@ public class GameFileManager {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Writes lines of text to a file, replacing any previous content.
+     * Creates the file if it doesn't exist.
+     * 
+     * @param filename The name of the file to write
+     * @param lines    The lines to write, one per line of the file
+     * @throws IOException If the file cannot be written
+     */
+    public static void writeLines(String filename, List<String> lines) throws IOException {
+        try (BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(filename))) {
+            for (String line : lines) {
+                bufferedWriter.write(line);
+                bufferedWriter.newLine();
+            }
+        }
+    }
 }
\ No newline at end of file
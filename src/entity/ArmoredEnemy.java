@@ -4,6 +4,7 @@ import city.cs.engine.*;
 import game.GameWorld;
 import org.jbox2d.common.Vec2;
 import service.GameAudioManager;
+import service.TemplateRegistry;
 
 /**
  * ArmoredEnemy is a large, heavily armored enemy that cannot be defeated.
@@ -18,7 +19,7 @@ public class ArmoredEnemy extends Enemy {
     private static final float ENEMY_SIZE = 1.5f;
 
     // Physical shape of the enemy
-    private static final Shape ENEMY_SHAPE = new BoxShape(ENEMY_SIZE, ENEMY_SIZE);
+    private static final Shape ENEMY_SHAPE = TemplateRegistry.box(ENEMY_SIZE, ENEMY_SIZE);
 
     /**
      * Constructor for creating a new armored enemy
@@ -36,7 +37,7 @@ public class ArmoredEnemy extends Enemy {
         SolidFixture fixture = new SolidFixture(this, ENEMY_SHAPE);
 
         // Add the armored enemy image
-        this.addImage(new BodyImage("resources/enemies/enemy_metallic.gif", 3f));
+        this.addImage(TemplateRegistry.image("resources/enemies/enemy_metallic.gif", 3f));
 
         // Set slower movement speed and longer action interval due to heavy armor
         movementSpeed = 2;
@@ -3,12 +3,11 @@ package entity;
 import game.GameWorld;
 import org.jbox2d.common.Vec2;
 
-import city.cs.engine.BodyImage;
-import city.cs.engine.BoxShape;
 import city.cs.engine.CollisionEvent;
 import city.cs.engine.Shape;
 import city.cs.engine.World;
 import service.GameAudioManager;
+import service.TemplateRegistry;
 
 /**
  * BasicPatrolEnemy is a simple enemy type that patrols back and forth.
@@ -33,7 +32,7 @@ public class BasicPatrolEnemy extends Enemy {
 
     // Physical shape of the enemy
     // Using a box shape for simple and predictable collisions
-    private static final Shape ENEMY_SHAPE = new BoxShape(ENEMY_SIZE, ENEMY_SIZE);
+    private static final Shape ENEMY_SHAPE = TemplateRegistry.box(ENEMY_SIZE, ENEMY_SIZE);
 
     /**
      * Creates a new basic patrolling enemy with default behavior and appearance.
@@ -48,7 +47,7 @@ public class BasicPatrolEnemy extends Enemy {
      */
     public BasicPatrolEnemy(World world) {
         super(world, ENEMY_SHAPE);
-        this.addImage(new BodyImage("resources/enemies/enemy_basic.gif", 1.6f));
+        this.addImage(TemplateRegistry.image("resources/enemies/enemy_basic.gif", 1.6f));
         this.addCollisionListener(this);
     }
 
@@ -2,6 +2,7 @@ package entity;
 
 import city.cs.engine.*;
 import org.jbox2d.common.Vec2;
+import service.TemplateRegistry;
 
 /**
  * A Bullet is a dynamic object that travels in a specific direction (left or
@@ -13,7 +14,7 @@ import org.jbox2d.common.Vec2;
 public class Bullet extends DynamicBody implements CollisionListener {
 
     // Define the physical shape of the bullet
-    private static final Shape BULLET_SHAPE = new BoxShape(0.2f, 0.2f);
+    private static final Shape BULLET_SHAPE = TemplateRegistry.box(0.2f, 0.2f);
 
     // Bullet movement speed
     private static final float BULLET_VELOCITY = 15.0f;
@@ -31,7 +32,7 @@ public class Bullet extends DynamicBody implements CollisionListener {
     public Bullet(World world, Vec2 startPosition, boolean movingRight) {
         super(world, BULLET_SHAPE);
         this.setPosition(startPosition);
-        this.addImage(new BodyImage("resources/projectiles/shooter_bullet.png", 0.4f));
+        this.addImage(TemplateRegistry.image("resources/projectiles/shooter_bullet.png", 0.4f));
         this.addCollisionListener(this);
 
         // Set bullet velocity based on direction
@@ -11,13 +11,14 @@ import city.cs.engine.DynamicBody;
 import city.cs.engine.Shape;
 import city.cs.engine.World;
 import service.GameAudioManager;
+import service.Stateful;
 
 /**
  * Enemy is an abstract class from which all the enemies in the game inherit.
  * It provides common functionality for enemy movement, collision handling,
  * and interaction with the player.
  */
-public abstract class Enemy extends PhysicsActor implements CollisionListener {
+public abstract class Enemy extends PhysicsActor implements CollisionListener, Stateful {
 
     // Time interval between enemy actions (in game steps)
     protected int ACTION_INTERVAL = 70;
@@ -86,10 +87,9 @@ public abstract class Enemy extends PhysicsActor implements CollisionListener {
     public void handleCollisionWithNonAttackingPlayer(Player player, int collisionDirection) {
         if (collisionDirection == 0) {
             // Player jumped on enemy from above
+            GameWorld.sound.playAt(GameAudioManager.BOUNCE, this.getPosition());
             this.attacked();
             player.applyImpulse(new Vec2(0, 150 / 8));
-            GameWorld.sound.setFile(GameAudioManager.BOUNCE);
-            GameWorld.sound.play();
         } else {
             // Player collided with enemy from the side
             float playerVelocityX = player.getLinearVelocity().x;
@@ -157,4 +157,28 @@ public abstract class Enemy extends PhysicsActor implements CollisionListener {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Saves the action timer and the walking direction
+     * 
+     * @return The state of the enemy
+     */
+    @Override
+    public int[] saveState() {
+        return new int[] { actionTimer, isMovingRight ? 1 : 0 };
+    }
+
+    /**
+     * Restores the action timer and turns the enemy around if it walked the
+     * other way
+     * 
+     * @param state A state returned by saveState
+     */
+    @Override
+    public void restoreState(int[] state) {
+        actionTimer = state[0];
+        if ((state[1] != 0) != isMovingRight) {
+            turnAround();
+        }
+    }
+}
@@ -5,20 +5,21 @@ import game.GameWorld;
 import org.jbox2d.common.Vec2;
 
 import city.cs.engine.BodyImage;
-import city.cs.engine.BoxShape;
 import city.cs.engine.CollisionEvent;
 import city.cs.engine.CollisionListener;
 import city.cs.engine.DynamicBody;
 import city.cs.engine.Shape;
 import city.cs.engine.World;
 import service.GameAudioManager;
+import service.Stateful;
+import service.TemplateRegistry;
 
 /**
  * Player is the main character controlled by the user.
  * It handles movement, animations, attacks, and interactions with other game
  * objects.
  */
-public class Player extends PhysicsActor {
+public class Player extends PhysicsActor implements Stateful {
 
     // Animation timing constants
     private static final int ATTACK_DURATION = 15;
@@ -27,7 +28,19 @@ public class Player extends PhysicsActor {
     // Player physical dimensions
     private static final float PLAYER_WIDTH = 0.5f;
     private static final float PLAYER_HEIGHT = 1f;
-    private static final Shape PLAYER_SHAPE = new BoxShape(PLAYER_WIDTH, PLAYER_HEIGHT);
+    private static final Shape PLAYER_SHAPE = TemplateRegistry.box(PLAYER_WIDTH, PLAYER_HEIGHT);
+
+    // Animation frames, decoded once and reused on every animation change
+    private static final BodyImage IDLE_IMAGE = TemplateRegistry.image("resources/player/player_idle.png", 2f);
+    private static final BodyImage IDLE_SWORD_IMAGE = TemplateRegistry.image("resources/player/player_idle_sword.png",
+            2f);
+    private static final BodyImage RUN_IMAGE = TemplateRegistry.image("resources/player/player_run.gif", 2f);
+    private static final BodyImage RUN_SWORD_IMAGE = TemplateRegistry.image("resources/player/player_run_sword.gif",
+            2f);
+    private static final BodyImage JUMP_IMAGE = TemplateRegistry.image("resources/player/player_jump.gif", 2f);
+    private static final BodyImage JUMP_SWORD_IMAGE = TemplateRegistry.image("resources/player/player_jump_sword.gif",
+            2f);
+    private static final BodyImage ATTACK_IMAGE = TemplateRegistry.image("resources/player/player_attack.gif", 2f);
 
     // Animation state constants
     private static final int ANIMATION_STANDING = 0;
@@ -35,9 +48,12 @@ public class Player extends PhysicsActor {
     private static final int ANIMATION_JUMPING = 2;
     private static final int ANIMATION_ATTACKING = 3;
 
+    // Health of a player entering a level
+    private static final int START_HEALTH = 3;
+
     // Player state variables
     public boolean attacking = false;
-    public int health = 3;
+    public int health = START_HEALTH;
 
     // Timers for attack and invulnerability periods
     private int attackTimer = 0;
@@ -58,7 +74,7 @@ public class Player extends PhysicsActor {
      */
     public Player(World world) {
         super(world, PLAYER_SHAPE);
-        this.addImage(new BodyImage("resources/player/player_idle.png", 2f));
+        this.addImage(IDLE_IMAGE);
 
         // Initialize movement vectors
         x_right = new Vec2(12 / 2, 0);
@@ -114,9 +130,9 @@ public class Player extends PhysicsActor {
                     this.removeAllImages();
 
                     if (!hasSword) {
-                        this.addImage(new BodyImage("resources/player/player_jump.gif", 2f));
+                        this.addImage(JUMP_IMAGE);
                     } else {
-                        this.addImage(new BodyImage("resources/player/player_jump_sword.gif", 2f));
+                        this.addImage(JUMP_SWORD_IMAGE);
                     }
 
                     if (!side) {
@@ -132,9 +148,9 @@ public class Player extends PhysicsActor {
                     this.removeAllImages();
 
                     if (!hasSword) {
-                        this.addImage(new BodyImage("resources/player/player_idle.png", 2f));
+                        this.addImage(IDLE_IMAGE);
                     } else {
-                        this.addImage(new BodyImage("resources/player/player_idle_sword.png", 2f));
+                        this.addImage(IDLE_SWORD_IMAGE);
                     }
 
                     if (!side) {
@@ -149,9 +165,9 @@ public class Player extends PhysicsActor {
                     this.removeAllImages();
 
                     if (!hasSword) {
-                        this.addImage(new BodyImage("resources/player/player_run.gif", 2f));
+                        this.addImage(RUN_IMAGE);
                     } else {
-                        this.addImage(new BodyImage("resources/player/player_run_sword.gif", 2f));
+                        this.addImage(RUN_SWORD_IMAGE);
                     }
 
                     if (!side) {
@@ -165,7 +181,7 @@ public class Player extends PhysicsActor {
             // Player is attacking
             currentAnimation = ANIMATION_ATTACKING;
             this.removeAllImages();
-            this.addImage(new BodyImage("resources/player/player_attack.gif", 2f));
+            this.addImage(ATTACK_IMAGE);
 
             if (!side) {
                 this.getImages().get(0).flipHorizontal();
@@ -210,8 +226,7 @@ public class Player extends PhysicsActor {
             }
 
             // Play attack sound
-            GameWorld.sound.setFile(GameAudioManager.DAMAGE);
-            GameWorld.sound.play();
+            GameWorld.sound.playAt(GameAudioManager.DAMAGE, this.getPosition());
         }
     }
 
@@ -226,8 +241,7 @@ public class Player extends PhysicsActor {
         }
 
         // Play damage sound
-        GameWorld.sound.setFile(GameAudioManager.DAMAGE);
-        GameWorld.sound.play();
+        GameWorld.sound.playAt(GameAudioManager.DAMAGE, this.getPosition());
     }
 
     /**
@@ -238,9 +252,9 @@ public class Player extends PhysicsActor {
         if (jump) {
             this.removeAllImages();
             if (hasSword) {
-                this.addImage(new BodyImage("resources/player/player_jump_sword.gif", 2f));
+                this.addImage(JUMP_SWORD_IMAGE);
             } else {
-                this.addImage(new BodyImage("resources/player/player_jump.gif", 2f));
+                this.addImage(JUMP_IMAGE);
             }
         }
     }
@@ -252,9 +266,61 @@ public class Player extends PhysicsActor {
     public void stand() {
         this.removeAllImages();
         if (hasSword) {
-            this.addImage(new BodyImage("resources/player/player_idle_sword.png", 2f));
+            this.addImage(IDLE_SWORD_IMAGE);
         } else {
-            this.addImage(new BodyImage("resources/player/player_idle.png", 2f));
+            this.addImage(IDLE_IMAGE);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Checks if the player is somewhere safe to come back to after dying:
+     * standing on the ground and not just hit
+     * 
+     * @return True if the player is standing, unhurt and alive
+     */
+    public boolean isSafe() {
+        return canJump && invulnerabilityTimer < 0 && health > 0;
+    }
+
+    /**
+     * Saves the health, power-ups, timers and facing direction of the player
+     * 
+     * @return The state of the player
+     */
+    @Override
+    public int[] saveState() {
+        return new int[] { health, hasSword ? 1 : 0, hasKey ? 1 : 0, attacking ? 1 : 0, attackTimer,
+                invulnerabilityTimer, canJump ? 1 : 0, side ? 1 : 0 };
+    }
+
+    /**
+     * Builds the state of a player entering a level, for saves that only
+     * recorded the power-ups
+     * 
+     * @param hasSword Whether the player has the sword
+     * @return The state, in the form returned by saveState
+     */
+    public static int[] initialState(boolean hasSword) {
+        return new int[] { START_HEALTH, hasSword ? 1 : 0, 0, 0, 0, -1, 0, 1 };
+    }
+
+    /**
+     * Restores a saved state; the animation is refreshed on the next step
+     * 
+     * @param state A state returned by saveState
+     */
+    @Override
+    public void restoreState(int[] state) {
+        health = state[0];
+        hasSword = state[1] != 0;
+        hasKey = state[2] != 0;
+        attacking = state[3] != 0;
+        attackTimer = state[4];
+        invulnerabilityTimer = state[5];
+        canJump = state[6] != 0;
+        jump = canJump;
+        side = state[7] != 0;
+        facingRight = side;
+        currentAnimation = -1;
+    }
+}
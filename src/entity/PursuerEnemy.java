@@ -4,6 +4,7 @@ import city.cs.engine.*;
 import game.GameWorld;
 import org.jbox2d.common.Vec2;
 import service.GameAudioManager;
+import service.TemplateRegistry;
 
 /**
  * PursuerEnemy is an enemy that actively pursues the player when they are
@@ -15,7 +16,7 @@ import service.GameAudioManager;
 public class PursuerEnemy extends Enemy {
 
     // Physical shape of the pursuer enemy
-    private static final Shape PURSUER_SHAPE = new BoxShape(0.8f, 0.8f);
+    private static final Shape PURSUER_SHAPE = TemplateRegistry.box(0.8f, 0.8f);
 
     // Reference to the player for tracking
     private Player targetPlayer;
@@ -34,7 +35,7 @@ public class PursuerEnemy extends Enemy {
      */
     public PursuerEnemy(World world, Player player) {
         super(world, PURSUER_SHAPE);
-        this.addImage(new BodyImage("resources/enemies/enemy_follower.gif", 1.6f));
+        this.addImage(TemplateRegistry.image("resources/enemies/enemy_follower.gif", 1.6f));
         targetPlayer = player;
         this.getImages().get(0).flipHorizontal();
         ACTION_INTERVAL = 140;
@@ -3,12 +3,11 @@ package entity;
 import game.GameWorld;
 import org.jbox2d.common.Vec2;
 
-import city.cs.engine.BodyImage;
-import city.cs.engine.BoxShape;
 import city.cs.engine.CollisionEvent;
 import city.cs.engine.Shape;
 import city.cs.engine.World;
 import service.GameAudioManager;
+import service.TemplateRegistry;
 
 /**
  * Slime is an enemy that appears in level 2 of the game.
@@ -20,7 +19,7 @@ public class Slime extends Enemy {
     private static final float SLIME_SIZE = 0.6f;
 
     // Physical shape of the slime
-    private static final Shape SLIME_SHAPE = new BoxShape(SLIME_SIZE, SLIME_SIZE);
+    private static final Shape SLIME_SHAPE = TemplateRegistry.box(SLIME_SIZE, SLIME_SIZE);
 
     /**
      * Constructor for creating a new slime enemy
@@ -29,7 +28,7 @@ public class Slime extends Enemy {
      */
     public Slime(World world) {
         super(world, SLIME_SHAPE);
-        this.addImage(new BodyImage("resources/enemies/enemy_slime.gif", 1.2f));
+        this.addImage(TemplateRegistry.image("resources/enemies/enemy_slime.gif", 1.2f));
         this.addCollisionListener(this);
     }
 
@@ -3,12 +3,11 @@ package entity;
 import game.GameWorld;
 import org.jbox2d.common.Vec2;
 
-import city.cs.engine.BodyImage;
-import city.cs.engine.BoxShape;
 import city.cs.engine.CollisionEvent;
 import city.cs.engine.Shape;
 import city.cs.engine.World;
 import service.GameAudioManager;
+import service.TemplateRegistry;
 
 /**
  * SpikedEnemy is a hazardous enemy covered in spikes that damage the player
@@ -37,7 +36,7 @@ public class SpikedEnemy extends Enemy {
 
     // Physical shape of the enemy
     // Square collision box clearly defines the hazardous area
-    private static final Shape ENEMY_SHAPE = new BoxShape(ENEMY_SIZE, ENEMY_SIZE);
+    private static final Shape ENEMY_SHAPE = TemplateRegistry.box(ENEMY_SIZE, ENEMY_SIZE);
 
     /**
      * Creates a new spiked enemy that damages the player from all directions.
@@ -55,7 +54,7 @@ public class SpikedEnemy extends Enemy {
      */
     public SpikedEnemy(World world) {
         super(world, ENEMY_SHAPE);
-        this.addImage(new BodyImage("resources/enemies/enemy_spike.gif", 1.6f));
+        this.addImage(TemplateRegistry.image("resources/enemies/enemy_spike.gif", 1.6f));
         this.getImages().get(0).flipHorizontal();
     }
 
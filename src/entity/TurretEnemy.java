@@ -1,10 +1,9 @@
 package entity;
 
-import city.cs.engine.BodyImage;
-import city.cs.engine.BoxShape;
 import city.cs.engine.Shape;
 import city.cs.engine.World;
 import org.jbox2d.common.Vec2;
+import service.TemplateRegistry;
 
 /**
  * TurretEnemy is a stationary enemy that fires projectiles at regular
@@ -16,7 +15,7 @@ import org.jbox2d.common.Vec2;
 public class TurretEnemy extends Enemy {
 
     // Define the physical shape of the turret
-    private static final Shape TURRET_SHAPE = new BoxShape((float) (37.0 / 40.0), (float) (38.0 / 40.0));
+    private static final Shape TURRET_SHAPE = TemplateRegistry.box((float) (37.0 / 40.0), (float) (38.0 / 40.0));
 
     /**
      * Constructor for creating a new turret enemy
@@ -27,7 +26,7 @@ public class TurretEnemy extends Enemy {
         super(world, TURRET_SHAPE);
         // High gravity scale ensures the turret stays firmly in place
         this.setGravityScale(1000);
-        this.addImage(new BodyImage("resources/enemies/enemy_shooter.png", 2f));
+        this.addImage(TemplateRegistry.image("resources/enemies/enemy_shooter.png", 2f));
         // Zero movement speed as turrets are stationary
         movementSpeed = 0;
     }
@@ -0,0 +1,182 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import city.cs.engine.Body;
+import service.LevelElement;
+import service.LevelFileParser;
+import service.Prefabs;
+
+/**
+ * ChunkActivator expands level prefabs when the camera reaches them.
+ *
+ * The level is divided into chunks half a screen wide. Prefabs read from a
+ * level file are stored under the chunk where they start, and a chunk is
+ * activated as soon as it comes within one chunk of the right edge of the
+ * view, so its objects exist before they scroll into sight. Activating a
+ * chunk expands its prefabs into objects, so a long level only creates the
+ * objects near the player.
+ *
+ * Once activated, a chunk stays active: its objects live on like any other,
+ * even if the player walks back.
+ */
+public class ChunkActivator {
+
+	// Width of the view and of a chunk, in world units
+	public static final float VIEW_WIDTH = 786f / 20f;
+	public static final float CHUNK_WIDTH = VIEW_WIDTH / 2;
+
+	/**
+	 * A prefab waiting for its chunk, with the list that receives the bodies
+	 * it expands to
+	 */
+	private static class PendingPrefab {
+		final LevelElement prefab;
+		final List<Body> bodies;
+
+		PendingPrefab(LevelElement prefab, List<Body> bodies) {
+			this.prefab = prefab;
+			this.bodies = bodies;
+		}
+	}
+
+	// Prefabs waiting for their chunk, by chunk index
+	private final TreeMap<Integer, List<PendingPrefab>> pendingChunks = new TreeMap<>();
+
+	// Number of prefabs expanded since the level was loaded
+	private int expandedPrefabs = 0;
+
+	/**
+	 * Keeps a prefab until its chunk is activated
+	 *
+	 * @param prefab The prefab element, in level coordinates
+	 * @param bodies The list that receives the bodies of the prefab once it
+	 *               is expanded
+	 */
+	public void add(LevelElement prefab, List<Body> bodies) {
+		pendingChunks.computeIfAbsent(chunkOf(prefab), key -> new ArrayList<>())
+				.add(new PendingPrefab(prefab, bodies));
+	}
+
+	/**
+	 * Removes a prefab: forgets it if it is still waiting, or destroys the
+	 * bodies it expanded to
+	 *
+	 * @param prefab The prefab element
+	 * @param bodies The list given when the prefab was added
+	 * @param w      The game world
+	 */
+	public void remove(LevelElement prefab, List<Body> bodies, GameWorld w) {
+		List<PendingPrefab> chunk = pendingChunks.get(chunkOf(prefab));
+		if (chunk != null) {
+			chunk.removeIf(pending -> pending.bodies == bodies);
+			if (chunk.isEmpty()) {
+				pendingChunks.remove(chunkOf(prefab));
+			}
+		}
+		for (Body body : bodies) {
+			LevelFileParser.removeBody(body, w);
+		}
+		bodies.clear();
+	}
+
+	/**
+	 * Checks if a prefab is still waiting for its chunk
+	 *
+	 * @param prefab The prefab element
+	 * @param bodies The list given when the prefab was added
+	 * @return True if the prefab has not been expanded yet
+	 */
+	public boolean isPending(LevelElement prefab, List<Body> bodies) {
+		List<PendingPrefab> chunk = pendingChunks.get(chunkOf(prefab));
+		if (chunk != null) {
+			for (PendingPrefab pending : chunk) {
+				if (pending.bodies == bodies) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the chunk of a prefab
+	 *
+	 * @param prefab The prefab element
+	 * @return The index of the chunk where the prefab starts
+	 */
+	private static int chunkOf(LevelElement prefab) {
+		return (int) Math.floor(Prefabs.left(prefab) / CHUNK_WIDTH);
+	}
+
+	/**
+	 * Expands every prefab whose chunk overlaps the view or the chunk after
+	 * it. Called after the camera moves on each step.
+	 *
+	 * @param w The game world
+	 */
+	public void activate(GameWorld w) {
+		float lookahead = w.camera.cameraPosition + VIEW_WIDTH + CHUNK_WIDTH;
+		expandUpTo((int) Math.ceil(lookahead / CHUNK_WIDTH) - 1, w);
+	}
+
+	/**
+	 * Expands every pending prefab regardless of the camera, for tools that
+	 * need the whole level
+	 *
+	 * @param w The game world
+	 */
+	public void activateAll(GameWorld w) {
+		expandUpTo(Integer.MAX_VALUE, w);
+	}
+
+	/**
+	 * Expands the prefabs of every chunk up to a given one
+	 *
+	 * @param lastChunk The index of the last chunk to activate
+	 * @param w         The game world
+	 */
+	private void expandUpTo(int lastChunk, GameWorld w) {
+		while (!pendingChunks.isEmpty() && pendingChunks.firstKey() <= lastChunk) {
+			Map.Entry<Integer, List<PendingPrefab>> chunk = pendingChunks.pollFirstEntry();
+			for (PendingPrefab pending : chunk.getValue()) {
+				for (LevelElement element : Prefabs.expand(pending.prefab)) {
+					Body body = LevelFileParser.spawnElement(element, w);
+					if (body != null) {
+						pending.bodies.add(body);
+					}
+				}
+				expandedPrefabs++;
+			}
+		}
+	}
+
+	/**
+	 * Forgets every pending prefab, when the level is replaced
+	 */
+	public void clear() {
+		pendingChunks.clear();
+		expandedPrefabs = 0;
+	}
+
+	/**
+	 * @return The number of prefabs still waiting for their chunk
+	 */
+	public int getPendingPrefabs() {
+		int pending = 0;
+		for (List<PendingPrefab> chunk : pendingChunks.values()) {
+			pending += chunk.size();
+		}
+		return pending;
+	}
+
+	/**
+	 * @return The number of prefabs expanded since the level was loaded
+	 */
+	public int getExpandedPrefabs() {
+		return expandedPrefabs;
+	}
+}
@@ -7,9 +7,15 @@ import java.util.LinkedList;
 import java.util.List;
 
 import object.InteractiveStaticObject;
+import service.AudioMetrics;
+import service.LevelElement;
 import service.LevelFileParser;
+import service.LevelLoader;
+import service.LevelWatcher;
 import service.GameAudioManager;
 import service.PlayerManager;
+import service.SnapshotRing;
+import service.WorldSnapshot;
 import city.cs.engine.DynamicBody;
 import city.cs.engine.StaticBody;
 import city.cs.engine.StepEvent;
@@ -29,6 +35,8 @@ public class GameWorld extends World implements KeyListener, StepListener {
 	private static boolean isRightKeyPressed = false;
 	private static boolean isJumpKeyPressed = false;
 	private static boolean isAttackKeyPressed = false;
+	private static volatile boolean isRewindRequested = false;
+	private static volatile boolean isRespawnRequested = false;
 
 	// Time tracking
 	public static long levelStartTimeMillis;
@@ -52,6 +60,23 @@ public class GameWorld extends World implements KeyListener, StepListener {
 	public List<InteractiveStaticObject> staticObjects = new LinkedList<>();
 	public List<PhysicsActor> movableObjects = new LinkedList<>();
 
+	// Background level loading
+	public final LevelLoader levelLoader = new LevelLoader();
+
+	// Prefabs waiting for the camera to reach them
+	public final ChunkActivator chunks = new ChunkActivator();
+
+	// Bodies of the current level by element, and the watch on its file
+	public final LiveLevel liveLevel = new LiveLevel();
+	public final LevelWatcher levelWatcher = new LevelWatcher();
+	private String levelFile;
+
+	// Recent snapshots to respawn or rewind to, taken every SNAPSHOT_INTERVAL
+	// steps when the player is safe
+	public final SnapshotRing snapshots = new SnapshotRing(SnapshotRing.DEFAULT_BUDGET);
+	private static final int SNAPSHOT_INTERVAL = 120;
+	private int stepsSinceSnapshot = 0;
+
 	/**
 	 * Creates a new game world with default settings
 	 */
@@ -75,91 +100,213 @@ public class GameWorld extends World implements KeyListener, StepListener {
 	}
 
 	/**
-	 * Loads a numbered level from the built-in level designs
+	 * Loads a numbered level from the built-in level designs.
+	 * Runs synchronously on the calling thread; the game itself loads levels
+	 * in the background with requestLevel.
 	 * 
 	 * @param levelNumber The level number to load
 	 */
 	public void loadLevel(int levelNumber) {
-		// Reset game state
-		score = 0;
-		staticObjects.clear();
-		movableObjects.clear();
+		commitLevel(LevelLoader.prepare(LevelLoader.BUILT_IN, levelNumber, null));
+	}
+
+	/**
+	 * Loads a custom level from a file.
+	 * Runs synchronously on the calling thread; the game itself loads levels
+	 * in the background with requestLevel.
+	 * 
+	 * @param filePath Path to the level file
+	 */
+	public void loadLevel(String filePath) {
+		commitLevel(LevelLoader.prepare(LevelLoader.CUSTOM, -1, filePath));
+	}
 
-		// Set level boundaries
-		camera.levelLength = Level.LENGTH_LEVEL[levelNumber];
+	/**
+	 * Loads a saved game state from a file.
+	 * Runs synchronously on the calling thread; the game itself loads saved
+	 * games in the background with requestLevel.
+	 * 
+	 * @param filePath Path to the saved game file
+	 */
+	public void loadSavedGame(String filePath) {
+		commitLevel(LevelLoader.prepare(LevelLoader.SAVED_GAME, -1, filePath));
+	}
 
-		// Clear existing physics bodies
-		for (StaticBody staticBody : this.getStaticBodies()) {
-			staticBody.destroy();
+	/**
+	 * Starts preparing a level in the background. The world keeps stepping
+	 * while the level is read and decoded, and the level replaces the current
+	 * one at the start of the first step after it is ready.
+	 * 
+	 * @param kind        LevelLoader.BUILT_IN, CUSTOM or SAVED_GAME
+	 * @param levelNumber The built-in level number, for BUILT_IN
+	 * @param filePath    The level or saved game file, for CUSTOM and
+	 *                    SAVED_GAME
+	 */
+	public void requestLevel(int kind, int levelNumber, String filePath) {
+		levelLoader.request(kind, levelNumber, filePath);
+	}
+
+	/**
+	 * Replaces the current level with a prepared one.
+	 * Only creates bodies from the prepared descriptors: every file has
+	 * already been read and every shape and image is already in the
+	 * TemplateRegistry.
+	 * 
+	 * @param level The prepared level
+	 * @return False if the level could not be prepared and nothing changed
+	 */
+	public boolean commitLevel(LevelLoader.LoadedLevel level) {
+		if (level.error != null) {
+			return false;
 		}
-		for (DynamicBody dynamicBody : this.getDynamicBodies()) {
-			dynamicBody.destroy();
+
+		if (level.snapshot != null) {
+			// Binary saved game: the whole world is rebuilt from the snapshot
+			currentLevelNumber = level.snapshot.levelNumber;
+			resetWorld();
+			level.snapshot.restore(this);
+			movableObjects.add(player);
+
+			// Start level music
+			GameWorld.sound.switchloop(Math.max(currentLevelNumber, 0));
+		} else if (level.kind == LevelLoader.CUSTOM || level.delta != null && level.levelNumber < 0) {
+			currentLevelNumber = -1;
+			resetWorld();
+			LevelFileParser.buildLevel(level.levelElements, this);
+			player.setPosition(Level.startingPositionOpenLevel);
+			camera.levelLength = Level.lengthLevelOpenLevel;
+			movableObjects.add(player);
+
+			// Initialize time tracking
+			levelStartTimeMillis = (new Date()).getTime();
+
+			// Start level music
+			GameWorld.sound.switchloop(0);
+		} else if (level.levelNumber >= 0) {
+			currentLevelNumber = level.levelNumber;
+			resetWorld();
+
+			// Set level boundaries and starting position
+			camera.levelLength = Level.LENGTH_LEVEL[level.levelNumber];
+			player.setPosition(Level.STARTING_POSITION[0]);
+
+			// Load level content and add player to world
+			LevelFileParser.buildLevel(level.levelElements, this);
+			movableObjects.add(player);
+
+			// Initialize time tracking
+			levelStartTimeMillis = (new Date()).getTime();
+			previousElapsedTimeSeconds = 0;
+			currentElapsedTimeSeconds = 0;
+
+			// Start level music
+			GameWorld.sound.switchloop(level.levelNumber);
+		} else {
+			// Saved game of a custom level: only the saved state is restored
+			currentLevelNumber = -1;
+			resetWorld();
 		}
 
-		// Create player and camera
-		player = new Player(this);
-		player.setPosition(Level.STARTING_POSITION[0]);
-		this.camera = new Camera();
+		// Restore the saved state on top of the level
+		for (LevelElement element : level.savedElements) {
+			if (!element.type.equals("level")) {
+				LevelFileParser.buildElement(element, this);
+			}
+		}
+
+		// Expand the prefabs that are already in view
+		chunks.activate(this);
 
-		// Load level content and add player to world
-		Level.loadLevel(this, levelNumber);
-		movableObjects.add(player);
+		// Saved game stored as a delta: patch the freshly built level
+		if (level.delta != null) {
+			level.delta.apply(this);
+		}
 
-		// Initialize time tracking
-		levelStartTimeMillis = (new Date()).getTime();
-		previousElapsedTimeSeconds = 0;
-		currentElapsedTimeSeconds = 0;
+		// Reload the level in place when its file changes
+		if (level.snapshot != null) {
+			levelFile = level.snapshot.levelFile != null ? level.snapshot.levelFile
+					: level.levelNumber >= 0 ? Level.LEVEL_FILES[level.levelNumber] : null;
+		} else {
+			levelFile = level.kind == LevelLoader.CUSTOM ? level.filePath
+					: level.levelNumber >= 0 ? Level.LEVEL_FILES[level.levelNumber]
+							: level.delta != null ? level.delta.levelFile : null;
+		}
+		levelWatcher.watch(levelFile);
 
-		// Start level music
-		GameWorld.sound.switchloop(levelNumber);
+		// The start of the level is the first checkpoint
+		snapshots.clear();
+		checkpoint();
+		return true;
 	}
 
 	/**
-	 * Loads a custom level from a file
-	 * 
-	 * @param filePath Path to the level file
+	 * Takes a snapshot of the world to respawn or rewind to
 	 */
-	public void loadLevel(String filePath) {
-		// Reset game state
-		score = 0;
-		staticObjects.clear();
-		movableObjects.clear();
-
-		// Initialize camera
-		this.camera = new Camera();
+	public void checkpoint() {
+		snapshots.push(WorldSnapshot.capture(this));
+		stepsSinceSnapshot = 0;
+	}
 
-		// Clear existing physics bodies
-		for (StaticBody staticBody : this.getStaticBodies()) {
-			staticBody.destroy();
-		}
-		for (DynamicBody dynamicBody : this.getDynamicBodies()) {
-			dynamicBody.destroy();
+	/**
+	 * Asks for the world to go back to the latest snapshot before the next
+	 * step. Each request goes one snapshot further back.
+	 * 
+	 * @return False if there is no snapshot to go back to
+	 */
+	public boolean requestRewind() {
+		if (snapshots.isEmpty()) {
+			return false;
 		}
+		isRewindRequested = true;
+		return true;
+	}
 
-		// Create player and load level
-		player = new Player(this);
-		LevelFileParser.loadLevel(this, filePath);
-		player.setPosition(Level.startingPositionOpenLevel);
-		camera.levelLength = Level.lengthLevelOpenLevel;
-		movableObjects.add(player);
+	/**
+	 * Asks for the world to go back to the latest snapshot before the next
+	 * step, keeping the snapshot, so dying again before the next checkpoint
+	 * respawns at the same place
+	 * 
+	 * @return False if there is no snapshot to go back to
+	 */
+	public boolean requestRespawn() {
+		if (snapshots.isEmpty()) {
+			return false;
+		}
+		isRespawnRequested = true;
+		return true;
+	}
 
-		// Initialize time tracking
-		levelStartTimeMillis = (new Date()).getTime();
+	/**
+	 * Puts the world back in a snapshot, in place and without rebuilding the
+	 * level
+	 * 
+	 * @param snapshot The snapshot, or null to do nothing
+	 */
+	private void restore(WorldSnapshot snapshot) {
+		if (snapshot != null) {
+			snapshot.restoreInPlace(this);
+			stepsSinceSnapshot = 0;
+		}
+	}
 
-		// Start level music
-		GameWorld.sound.switchloop(0);
+	/**
+	 * @return The file of the level being played, or null if there is none
+	 */
+	public String getLevelFile() {
+		return levelFile;
 	}
 
 	/**
-	 * Loads a saved game state from a file
-	 * 
-	 * @param filePath Path to the saved game file
+	 * Removes every body and object from the world and creates a new player
+	 * and camera
 	 */
-	public void loadSavedGame(String filePath) {
+	private void resetWorld() {
 		// Reset game state
 		score = 0;
 		staticObjects.clear();
 		movableObjects.clear();
+		chunks.clear();
+		liveLevel.clear();
 
 		// Initialize camera
 		this.camera = new Camera();
@@ -172,15 +319,17 @@ public class GameWorld extends World implements KeyListener, StepListener {
 			dynamicBody.destroy();
 		}
 
-		// Create player and load saved game
+		// Create player
 		player = new Player(this);
-		LevelFileParser.loadLevel(this, filePath);
 	}
 
 	/**
 	 * Checks if the player has died or fallen out of bounds
 	 */
 	public void checkGameOver() {
+		if (Menu.currentGameState == Menu.STATE_LOADING) {
+			return;
+		}
 		if (player.getPosition().y < -20f || player.health <= 0 && !Menu.isGameOver) {
 			player.health = 0;
 			Menu.handleGameOver();
@@ -208,8 +357,8 @@ public class GameWorld extends World implements KeyListener, StepListener {
 	 * Advances to the next level
 	 */
 	public void advanceToNextLevel() {
-		currentLevelNumber++;
-		loadLevel(currentLevelNumber);
+		Menu.beginLoading();
+		requestLevel(LevelLoader.BUILT_IN, currentLevelNumber + 1, null);
 	}
 
 	/**
@@ -253,8 +402,8 @@ public class GameWorld extends World implements KeyListener, StepListener {
 				} catch (Exception ex) {
 					// Ignore exceptions from empty strings
 				}
-			} else {
-				// Add typed character to name
+			} else if (event.getKeyChar() != ';' && !Character.isISOControl(event.getKeyChar())) {
+				// Add typed character to name; ';' separates the fields of a result
 				Menu.nameInputField.setValue(Menu.nameInputField.getValue() + event.getKeyChar());
 			}
 		}
@@ -278,6 +427,31 @@ public class GameWorld extends World implements KeyListener, StepListener {
 		if (keyCode == KeyEvent.VK_RIGHT) {
 			isRightKeyPressed = true;
 		}
+
+		// Audio metrics overlay and dump
+		if (keyCode == KeyEvent.VK_F3) {
+			AudioMetrics.overlayVisible = !AudioMetrics.overlayVisible;
+		}
+		if (keyCode == KeyEvent.VK_F4) {
+			sound.metrics.dump();
+		}
+
+		// Level hot reload
+		if (keyCode == KeyEvent.VK_F5) {
+			LevelWatcher.enabled = !LevelWatcher.enabled;
+			levelWatcher.watch(levelFile);
+			System.out.println("Level hot reload " + (LevelWatcher.enabled ? "on" : "off"));
+		}
+
+		// Go back to the latest snapshot
+		if (keyCode == KeyEvent.VK_F6 && Menu.currentGameState == Menu.STATE_PLAYING) {
+			requestRewind();
+		}
+
+		// Leaderboard pages, levels and metrics; the world may be stopped
+		if (Menu.handleLeaderboardKey(keyCode) && event.getComponent() != null) {
+			event.getComponent().repaint();
+		}
 	}
 
 	/**
@@ -308,6 +482,11 @@ public class GameWorld extends World implements KeyListener, StepListener {
 	 */
 	@Override
 	public void postStep(StepEvent event) {
+		// The level is being replaced, nothing to update
+		if (Menu.currentGameState == Menu.STATE_LOADING) {
+			return;
+		}
+
 		// Process player movement based on input
 		if (isLeftKeyPressed) {
 			player.move(Player.LEFT);
@@ -326,8 +505,9 @@ public class GameWorld extends World implements KeyListener, StepListener {
 			isAttackKeyPressed = false;
 		}
 
-		// Update camera position
+		// Update camera position and expand the prefabs it is approaching
 		camera.updateCameraPosition(player, this);
+		chunks.activate(this);
 
 		// Update all game objects
 		for (InteractiveStaticObject staticObject : this.staticObjects) {
@@ -343,16 +523,49 @@ public class GameWorld extends World implements KeyListener, StepListener {
 
 		// Update timer
 		updateElapsedTime();
+
+		// Remember safe moments to respawn at
+		if (++stepsSinceSnapshot >= SNAPSHOT_INTERVAL && player.isSafe() && !Menu.isGameOver) {
+			checkpoint();
+		}
 	}
 
 	/**
 	 * Executes before each physics step
-	 * Currently not used but required by StepListener interface
+	 * Commits a level prepared in the background, so bodies are only created
+	 * and destroyed between steps
 	 * 
 	 * @param event The step event
 	 */
 	@Override
 	public void preStep(StepEvent event) {
-		// Not currently used
+		LevelLoader.LoadedLevel level = levelLoader.poll();
+		if (level != null) {
+			Menu.finishLoading(commitLevel(level));
+		}
+
+		// Apply changes made to the level file while playing
+		List<LevelElement> changedLevel = levelWatcher.poll();
+		if (changedLevel != null && Menu.currentGameState != Menu.STATE_LOADING) {
+			long start = System.nanoTime();
+			String summary = liveLevel.reload(changedLevel, this);
+			System.out.println("Reloaded " + levelFile + ": " + summary + " in "
+					+ (System.nanoTime() - start) / 1000000 + " ms");
+
+			// Older snapshots describe the level as it was
+			snapshots.clear();
+			checkpoint();
+		}
+
+		// Go back to the latest snapshot after dying, or further back on
+		// request
+		if (isRespawnRequested) {
+			isRespawnRequested = false;
+			restore(snapshots.peek());
+		}
+		if (isRewindRequested) {
+			isRewindRequested = false;
+			restore(snapshots.pop());
+		}
 	}
 }
\ No newline at end of file
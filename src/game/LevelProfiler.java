@@ -0,0 +1,367 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jbox2d.common.Vec2;
+
+import city.cs.engine.Body;
+import city.cs.engine.BoxShape;
+import city.cs.engine.DynamicBody;
+import city.cs.engine.Fixture;
+import city.cs.engine.Sensor;
+import city.cs.engine.Shape;
+import city.cs.engine.SimulationSettings;
+import city.cs.engine.SolidFixture;
+import city.cs.engine.StaticBody;
+import city.cs.engine.World;
+import entity.PhysicsActor;
+import object.InteractiveStaticObject;
+
+/**
+ * LevelProfiler reports how much a level costs to simulate, region by
+ * region, so oversized levels are caught before they slow the game down.
+ *
+ * Usage: java game.LevelProfiler [--budget ms] [level ...]
+ *
+ * A level is a built-in level number (1 to 3) or the path of a level file;
+ * without levels, every built-in level is profiled. Each level is built
+ * headless in a GameWorld with all its prefabs expanded, then split into
+ * regions one view wide: region 0 is what the camera shows at the start,
+ * region 1 the next screen, and so on. For every region the profiler counts
+ * bodies, fixtures, sensors, dynamic bodies and objects with an eventStep.
+ *
+ * The step cost of a region is estimated from a calibration benchmark run on
+ * the same machine first: small worlds with many static bodies, fixtures,
+ * sensors and dynamic bodies are stepped to measure the cost of each. The
+ * eventStep of every object is timed directly in the loaded level. Regions
+ * over the budget (1 ms by default) are flagged, as are levels whose total
+ * estimate exceeds half of a simulation step. The exit code is 1 if anything
+ * is over budget.
+ */
+public class LevelProfiler {
+
+	// Default budget of a region, in milliseconds per step
+	private static final double DEFAULT_BUDGET = 1.0;
+
+	// Share of a simulation step a whole level may use
+	private static final double LEVEL_SHARE = 0.5;
+
+	// Number of objects in each calibration world
+	private static final int CALIBRATION_COUNT = 200;
+
+	// Steps run before timing, then timed, in each calibration world
+	private static final int WARMUP_STEPS = 100;
+	private static final int TIMED_STEPS = 200;
+
+	// Calls timed for the eventStep of each object
+	private static final int EVENT_STEP_CALLS = 200;
+
+	// Kinds of calibration world
+	private static final int BODIES = 0;
+	private static final int FIXTURES = 1;
+	private static final int SENSORS = 2;
+	private static final int DYNAMIC = 3;
+
+	/**
+	 * Cost of each kind of object per simulation step, in nanoseconds
+	 */
+	static class Calibration {
+		double body;
+		double fixture;
+		double sensor;
+		double dynamic;
+
+		@Override
+		public String toString() {
+			return String.format("body %.0f ns, fixture %.0f ns, sensor %.0f ns, dynamic body %.0f ns", body,
+					fixture, sensor, dynamic);
+		}
+	}
+
+	/**
+	 * Counts and estimated cost of one region
+	 */
+	static class Region {
+		final int index;
+		int bodies;
+		int fixtures;
+		int sensors;
+		int dynamicBodies;
+		int eventStepObjects;
+		double eventStepNanos;
+
+		Region(int index) {
+			this.index = index;
+		}
+
+		/**
+		 * @param c The calibration of this machine
+		 * @return The estimated cost of the region per step, in milliseconds
+		 */
+		double estimate(Calibration c) {
+			double nanos = bodies * c.body + (fixtures - sensors) * c.fixture + sensors * c.sensor
+					+ dynamicBodies * c.dynamic + eventStepNanos;
+			return nanos / 1e6;
+		}
+	}
+
+	/**
+	 * Profiles the given levels
+	 *
+	 * @param args An optional budget and the levels to profile
+	 */
+	public static void main(String[] args) {
+		double budget = DEFAULT_BUDGET;
+		List<String> levels = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--budget") && i + 1 < args.length) {
+				budget = Double.parseDouble(args[++i]);
+			} else if (args[i].startsWith("-")) {
+				System.err.println("Usage: java game.LevelProfiler [--budget ms] [level ...]");
+				System.exit(2);
+			} else {
+				levels.add(args[i]);
+			}
+		}
+		if (levels.isEmpty()) {
+			for (int i = 1; i <= Level.LEVEL_FILES.length; i++) {
+				levels.add(String.valueOf(i));
+			}
+		}
+
+		System.out.println("Calibrating...");
+		Calibration calibration = calibrate();
+		System.out.println("Cost per step: " + calibration);
+
+		GameWorld w = new GameWorld();
+		GameWorld.sound.stop();
+		boolean overBudget = false;
+		for (String level : levels) {
+			if (level.matches("\\d+")) {
+				w.loadLevel(Integer.parseInt(level) - 1);
+			} else {
+				w.loadLevel(level);
+			}
+			w.chunks.activateAll(w);
+			overBudget |= report(level, profile(w), calibration, budget);
+		}
+		System.exit(overBudget ? 1 : 0);
+	}
+
+	/**
+	 * Counts the objects of the loaded level in each region
+	 *
+	 * @param w The game world with the level loaded
+	 * @return The regions from the left edge of the level
+	 */
+	static List<Region> profile(GameWorld w) {
+		float camera = w.camera.cameraPosition;
+		List<Body> bodies = new ArrayList<>(w.getStaticBodies());
+		bodies.addAll(w.getDynamicBodies());
+
+		// Regions spanned by the level, from its leftmost body to its length
+		int first = 0;
+		int last = regionOf(w.camera.levelLength - ChunkActivator.VIEW_WIDTH);
+		for (Body body : bodies) {
+			int region = regionOf(body.getPosition().x + camera);
+			first = Math.min(first, region);
+			last = Math.max(last, region);
+		}
+		List<Region> regions = new ArrayList<>();
+		for (int i = first; i <= last; i++) {
+			regions.add(new Region(i));
+		}
+
+		for (Body body : bodies) {
+			Region region = regions.get(regionOf(body.getPosition().x + camera) - first);
+			region.bodies++;
+			if (body instanceof DynamicBody) {
+				region.dynamicBodies++;
+			}
+			// A fixture counts in every region it reaches; the terrain body
+			// has fixtures across the whole level
+			for (Fixture fixture : body.getFixtureList()) {
+				for (int i = first; i <= last; i++) {
+					Vec2 centre = new Vec2(i * ChunkActivator.VIEW_WIDTH - camera, 0);
+					if (fixture.intersects(centre, ChunkActivator.VIEW_WIDTH / 2, Float.MAX_VALUE / 4)) {
+						regions.get(i - first).fixtures++;
+						if (fixture instanceof Sensor) {
+							regions.get(i - first).sensors++;
+						}
+					}
+				}
+			}
+		}
+
+		// Time the eventStep of each object; copies of the lists are used as
+		// objects may remove themselves or spawn others
+		List<Body> objects = new ArrayList<>();
+		for (InteractiveStaticObject object : w.staticObjects) {
+			objects.add(object);
+		}
+		for (PhysicsActor actor : w.movableObjects) {
+			objects.add(actor);
+		}
+		for (Body object : objects) {
+			Region region = regions.get(regionOf(object.getPosition().x + camera) - first);
+			region.eventStepObjects++;
+			region.eventStepNanos += timeEventStep(object);
+		}
+		return regions;
+	}
+
+	/**
+	 * Times the eventStep of an object
+	 *
+	 * @param object An InteractiveStaticObject or a PhysicsActor
+	 * @return The average duration of one call, in nanoseconds
+	 */
+	private static double timeEventStep(Body object) {
+		long start = System.nanoTime();
+		for (int i = 0; i < EVENT_STEP_CALLS; i++) {
+			if (object instanceof InteractiveStaticObject) {
+				((InteractiveStaticObject) object).eventStep();
+			} else {
+				((PhysicsActor) object).eventStep();
+			}
+		}
+		return (double) (System.nanoTime() - start) / EVENT_STEP_CALLS;
+	}
+
+	/**
+	 * Finds the region of a level position
+	 *
+	 * @param x The x position in level coordinates
+	 * @return The index of the region, 0 being the first screen of the level
+	 */
+	private static int regionOf(float x) {
+		return (int) Math.floor((x + ChunkActivator.VIEW_WIDTH / 2) / ChunkActivator.VIEW_WIDTH);
+	}
+
+	/**
+	 * Prints the profile of a level and flags what is over budget
+	 *
+	 * @param level       The level that was profiled
+	 * @param regions     Its regions
+	 * @param calibration The calibration of this machine
+	 * @param budget      The budget of a region, in milliseconds
+	 * @return True if a region or the whole level is over budget
+	 */
+	private static boolean report(String level, List<Region> regions, Calibration calibration, double budget) {
+		System.out.println();
+		System.out.println("Level " + level);
+		System.out.println(" region     from       to  bodies fixtures sensors dynamic eventStep  est. ms");
+		boolean overBudget = false;
+		double total = 0;
+		for (Region region : regions) {
+			double estimate = region.estimate(calibration);
+			total += estimate;
+			boolean over = estimate > budget;
+			overBudget |= over;
+			float from = region.index * ChunkActivator.VIEW_WIDTH - ChunkActivator.VIEW_WIDTH / 2;
+			System.out.println(String.format("%7d %8.1f %8.1f %7d %8d %7d %7d %9d %8.3f%s", region.index, from,
+					from + ChunkActivator.VIEW_WIDTH, region.bodies, region.fixtures, region.sensors,
+					region.dynamicBodies, region.eventStepObjects, estimate, over ? "  OVER BUDGET" : ""));
+		}
+		double levelBudget = LEVEL_SHARE * 1000.0 / SimulationSettings.DEFAULT_SIMULATION_RATE;
+		boolean levelOver = total > levelBudget;
+		System.out.println(String.format("Total %.3f ms per step (level budget %.3f ms)%s", total, levelBudget,
+				levelOver ? "  OVER BUDGET" : ""));
+		return overBudget || levelOver;
+	}
+
+	/**
+	 * Measures the cost of each kind of object on this machine
+	 *
+	 * @return The calibration
+	 */
+	static Calibration calibrate() {
+		double bodies = costPerObject(BODIES);
+		double fixtures = costPerObject(FIXTURES);
+		double sensors = costPerObject(SENSORS);
+		double dynamic = costPerObject(DYNAMIC);
+
+		// Each calibration world measures one object kind on top of the others
+		Calibration c = new Calibration();
+		c.fixture = Math.max(0, fixtures);
+		c.body = Math.max(0, bodies - fixtures);
+		c.sensor = Math.max(0, sensors - c.body);
+		c.dynamic = Math.max(0, dynamic - bodies);
+		return c;
+	}
+
+	/**
+	 * Measures the cost of one object of a kind
+	 *
+	 * @param kind BODIES, FIXTURES, SENSORS or DYNAMIC
+	 * @return The extra step time per object, in nanoseconds
+	 */
+	private static double costPerObject(int kind) {
+		// Best of a few runs, to leave out garbage collection and JIT pauses
+		double best = Double.MAX_VALUE;
+		for (int run = 0; run < 3; run++) {
+			double cost = (timeStep(kind, CALIBRATION_COUNT) - timeStep(kind, 0)) / CALIBRATION_COUNT;
+			best = Math.min(best, cost);
+		}
+		return best;
+	}
+
+	/**
+	 * Builds a calibration world and times its steps. Like the camera, each
+	 * step also moves every body.
+	 *
+	 * @param kind  BODIES, FIXTURES, SENSORS or DYNAMIC
+	 * @param count The number of objects to add
+	 * @return The average time of a step, in nanoseconds
+	 */
+	private static double timeStep(int kind, int count) {
+		World world = new World();
+		world.setGravity(75f);
+		Shape box = new BoxShape(0.5f, 0.5f);
+		StaticBody ground = new StaticBody(world, new BoxShape(2 * count + 10, 0.5f));
+		ground.setPosition(new Vec2(0, -1));
+		StaticBody holder = new StaticBody(world);
+
+		List<Body> bodies = new ArrayList<>();
+		bodies.add(ground);
+		bodies.add(holder);
+		for (int i = 0; i < count; i++) {
+			float x = 2 * i - count;
+			switch (kind) {
+				case BODIES:
+					bodies.add(new StaticBody(world, box));
+					break;
+				case FIXTURES:
+					new SolidFixture(holder, new BoxShape(0.5f, 0.5f, new Vec2(x, 5)));
+					continue;
+				case SENSORS:
+					StaticBody body = new StaticBody(world);
+					new Sensor(body, box);
+					bodies.add(body);
+					break;
+				default:
+					bodies.add(new DynamicBody(world, box));
+					break;
+			}
+			bodies.get(bodies.size() - 1).setPosition(new Vec2(x, kind == DYNAMIC ? 0 : 5));
+		}
+
+		long start = 0;
+		for (int step = 0; step < WARMUP_STEPS + TIMED_STEPS; step++) {
+			if (step == WARMUP_STEPS) {
+				start = System.nanoTime();
+			}
+			float shift = step % 2 == 0 ? 0.01f : -0.01f;
+			for (Body body : bodies) {
+				body.setPosition(new Vec2(body.getPosition().x + shift, body.getPosition().y));
+				if (body instanceof DynamicBody) {
+					// Keep the bodies awake, like patrolling enemies
+					((DynamicBody) body).setLinearVelocity(new Vec2(shift * 100, 0));
+				}
+			}
+			world.oneStep();
+		}
+		return (double) (System.nanoTime() - start) / TIMED_STEPS;
+	}
+}
@@ -0,0 +1,298 @@
+package game;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import org.jbox2d.common.Vec2;
+
+import city.cs.engine.Body;
+import object.InteractiveStaticObject;
+import service.LevelElement;
+import service.LevelFileParser;
+import service.Prefabs;
+import service.TerrainBuilder;
+
+/**
+ * LiveLevel remembers which bodies were built from which level element, so a
+ * level can be reloaded in place while it is being played.
+ *
+ * When the level file changes, reload() compares the new elements with the
+ * live ones. Elements present in both are left untouched, elements that only
+ * moved have their body moved, and only the remaining differences are
+ * destroyed or created. The player, the camera, the score and every object
+ * that did not change keep their state. The terrain body is rebuilt as a
+ * whole, and only when a terrain element changed.
+ */
+public class LiveLevel {
+
+	// Element types that change the state of the game instead of creating
+	// bodies; the player's state is kept on reload, so they are not reapplied
+	private static final Set<String> SETTINGS = new HashSet<>(
+			Arrays.asList("upgrade", "length", "startingPosition", "level", "score", "time", "player", "camera"));
+
+	// Bodies built for each element, in the order the elements were added;
+	// an element written several times has one entry per occurrence
+	private final Map<LevelElement, Deque<List<Body>>> entries = new LinkedHashMap<>();
+
+	// Terrain elements and the body built from them
+	private List<LevelElement> terrainElements = new ArrayList<>();
+	private Body terrain;
+
+	// Elements of the level file the live level was built from, null when it
+	// was rebuilt from a snapshot instead
+	private List<LevelElement> base;
+
+	/**
+	 * A live element that is no longer in the level file
+	 */
+	private static class Removed {
+		final LevelElement element;
+		final List<Body> bodies;
+		boolean moved = false;
+
+		Removed(LevelElement element, List<Body> bodies) {
+			this.element = element;
+			this.bodies = bodies;
+		}
+	}
+
+	/**
+	 * Forgets every element, when the level is replaced
+	 */
+	public void clear() {
+		entries.clear();
+		terrainElements = new ArrayList<>();
+		terrain = null;
+		base = null;
+	}
+
+	/**
+	 * Records the level file elements the live level was built from
+	 *
+	 * @param elements Every element of the level file, in file order
+	 */
+	public void setBase(List<LevelElement> elements) {
+		base = elements;
+	}
+
+	/**
+	 * @return The level file elements the live level was built from, or null
+	 *         if it was rebuilt from a snapshot
+	 */
+	public List<LevelElement> getBase() {
+		return base;
+	}
+
+	/**
+	 * Lists the live bodies of every element of the base level file except
+	 * the terrain, in file order, so an element can be identified by its
+	 * index in this list
+	 *
+	 * @return The bodies of each occurrence; empty for the elements that
+	 *         build nothing. Null if there is no base.
+	 */
+	public List<List<Body>> baseOccurrences() {
+		if (base == null) {
+			return null;
+		}
+		Map<LevelElement, Iterator<List<Body>>> live = new HashMap<>();
+		List<List<Body>> occurrences = new ArrayList<>();
+		for (LevelElement element : base) {
+			if (!TerrainBuilder.isTerrain(element)) {
+				Iterator<List<Body>> it = live.computeIfAbsent(element,
+						key -> entries.getOrDefault(key, new ArrayDeque<>()).iterator());
+				occurrences.add(it.hasNext() ? it.next() : new ArrayList<>());
+			}
+		}
+		return occurrences;
+	}
+
+	/**
+	 * Records the terrain of the level
+	 *
+	 * @param elements The terrain elements
+	 * @param body     The terrain body built from them, or null
+	 */
+	public void setTerrain(List<LevelElement> elements, Body body) {
+		terrainElements = elements;
+		terrain = body;
+	}
+
+	/**
+	 * Records the bodies built for an element
+	 *
+	 * @param element The element
+	 * @param bodies  Its bodies, possibly empty or filled later for prefabs
+	 */
+	public void add(LevelElement element, List<Body> bodies) {
+		entries.computeIfAbsent(element, key -> new ArrayDeque<>()).add(bodies);
+	}
+
+	/**
+	 * Calls an action for every recorded occurrence of an element
+	 *
+	 * @param action Receives the element and its bodies, some of which may
+	 *               have been destroyed since
+	 */
+	public void forEach(BiConsumer<LevelElement, List<Body>> action) {
+		for (Map.Entry<LevelElement, Deque<List<Body>>> entry : entries.entrySet()) {
+			for (List<Body> bodies : entry.getValue()) {
+				action.accept(entry.getKey(), bodies);
+			}
+		}
+	}
+
+	/**
+	 * @return The elements merged into the terrain body
+	 */
+	public List<LevelElement> getTerrainElements() {
+		return terrainElements;
+	}
+
+	/**
+	 * Brings the live level in line with a new version of its elements
+	 *
+	 * @param elements The elements of the changed level file
+	 * @param w        The game world
+	 * @return A short summary of what changed
+	 */
+	public String reload(List<LevelElement> elements, GameWorld w) {
+		// Terrain: rebuilt as a whole if any of it changed
+		List<LevelElement> newTerrain = new ArrayList<>();
+		Map<LevelElement, Integer> wanted = new HashMap<>();
+		for (LevelElement element : elements) {
+			if (TerrainBuilder.isTerrain(element)) {
+				newTerrain.add(element);
+			} else {
+				wanted.merge(element, 1, Integer::sum);
+			}
+		}
+		boolean terrainChanged = !newTerrain.equals(terrainElements);
+		if (terrainChanged) {
+			if (terrain != null) {
+				terrain.destroy();
+			}
+			Body body = TerrainBuilder.build(newTerrain, w);
+			if (body != null) {
+				body.setPosition(new Vec2(-w.camera.cameraPosition, 0));
+			}
+			setTerrain(newTerrain, body);
+		}
+
+		// Occurrences that are no longer wanted
+		List<Removed> removed = new ArrayList<>();
+		for (Map.Entry<LevelElement, Deque<List<Body>>> entry : entries.entrySet()) {
+			int keep = wanted.getOrDefault(entry.getKey(), 0);
+			while (entry.getValue().size() > keep) {
+				removed.add(new Removed(entry.getKey(), entry.getValue().pollLast()));
+			}
+		}
+		entries.values().removeIf(Deque::isEmpty);
+
+		// Occurrences that are not live yet, in file order
+		List<LevelElement> added = new ArrayList<>();
+		Map<LevelElement, Integer> seen = new HashMap<>();
+		for (LevelElement element : elements) {
+			if (!TerrainBuilder.isTerrain(element)) {
+				Deque<List<Body>> live = entries.get(element);
+				int count = seen.merge(element, 1, Integer::sum);
+				if (live == null || count > live.size()) {
+					added.add(element);
+				}
+			}
+		}
+
+		// Removed and added elements that only differ by position are moves
+		Map<LevelElement, Deque<Removed>> movable = new HashMap<>();
+		for (Removed r : removed) {
+			if (isMovable(r)) {
+				movable.computeIfAbsent(atOrigin(r.element), key -> new ArrayDeque<>()).add(r);
+			}
+		}
+		int moved = 0;
+		int created = 0;
+		for (LevelElement element : added) {
+			Deque<Removed> candidates = movable.get(atOrigin(element));
+			Removed match = candidates != null ? candidates.poll() : null;
+			if (match != null) {
+				Body body = match.bodies.get(0);
+				Vec2 offset = new Vec2(element.x - match.element.x, element.y - match.element.y);
+				body.setPosition(body.getPosition().add(offset));
+				match.moved = true;
+				add(element, match.bodies);
+				moved++;
+			} else if (SETTINGS.contains(element.type)) {
+				applySetting(element, w);
+				add(element, new ArrayList<>());
+			} else {
+				add(element, LevelFileParser.buildTracked(element, w, true));
+				created++;
+			}
+		}
+
+		// Whatever is left was deleted from the file
+		int destroyed = 0;
+		for (Removed r : removed) {
+			if (r.moved) {
+				continue;
+			}
+			destroyed++;
+			if (Prefabs.isPrefab(r.element.type)) {
+				w.chunks.remove(r.element, r.bodies, w);
+			} else {
+				for (Body body : r.bodies) {
+					LevelFileParser.removeBody(body, w);
+				}
+			}
+		}
+		w.chunks.activate(w);
+		base = elements;
+
+		return created + " created, " + destroyed + " removed, " + moved + " moved"
+				+ (terrainChanged ? ", terrain rebuilt" : "");
+	}
+
+	/**
+	 * Checks if a live element can be updated by moving its body
+	 *
+	 * @param r The live element
+	 * @return True for elements with a single plain body; interactive objects
+	 *         track their own position and are rebuilt instead
+	 */
+	private static boolean isMovable(Removed r) {
+		return r.bodies.size() == 1 && !(r.bodies.get(0) instanceof InteractiveStaticObject)
+				&& !Prefabs.isPrefab(r.element.type);
+	}
+
+	/**
+	 * @param element An element
+	 * @return The same element placed at the origin, to compare everything
+	 *         but the position
+	 */
+	private static LevelElement atOrigin(LevelElement element) {
+		return element.translate(-element.x, -element.y);
+	}
+
+	/**
+	 * Applies a changed setting that does not affect the player's state
+	 *
+	 * @param element The setting element
+	 * @param w       The game world
+	 */
+	private static void applySetting(LevelElement element, GameWorld w) {
+		if (element.type.equals("length") && w.currentLevelNumber == -1) {
+			Level.lengthLevelOpenLevel = element.params[0];
+			w.camera.levelLength = element.params[0];
+		}
+	}
+}
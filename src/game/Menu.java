@@ -1,6 +1,7 @@
 package game;
 
 import java.awt.*;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.io.File;
@@ -26,6 +27,7 @@ public class Menu implements MouseListener {
 	public static final int STATE_LEADERBOARD = 3;
 	public static final int STATE_NAME_ENTRY = 4;
 	public static final int STATE_LEVEL_SELECT = 5;
+	public static final int STATE_LOADING = 6;
 
 	// Current game state
 	public static int currentGameState = STATE_PLAYING;
@@ -35,6 +37,11 @@ public class Menu implements MouseListener {
 	// Leaderboard display mode (0 = player-specific, 1 = global)
 	public static int leaderboardMode = 0;
 
+	// Level, metric and page shown on the global leaderboard
+	public static int leaderboardLevel = ScoreboardManager.ALL_LEVELS;
+	public static Leaderboard.Metric leaderboardMetric = Leaderboard.Metric.TOTAL;
+	public static int leaderboardPage = 0;
+
 	// UI element bounds for hit detection
 	private final Rectangle pauseButtonBounds = new Rectangle(786 - 50, 10, 40, 40);
 	private final Rectangle menuButtonBounds = new Rectangle(786 - 90, 10, 40, 40);
@@ -87,8 +94,7 @@ public class Menu implements MouseListener {
 	public static void handleLevelComplete() {
 		togglePlayPause();
 		isLevelCompleted = true;
-		GameWorld.sound.setFile(GameAudioManager.WIN);
-		GameWorld.sound.play();
+		GameWorld.sound.playEffect(GameAudioManager.WIN);
 	}
 
 	/**
@@ -97,8 +103,7 @@ public class Menu implements MouseListener {
 	public static void handleGameOver() {
 		togglePlayPause();
 		isGameOver = true;
-		GameWorld.sound.setFile(GameAudioManager.GAME_OVER);
-		GameWorld.sound.play();
+		GameWorld.sound.playEffect(GameAudioManager.GAME_OVER);
 	}
 
 	/**
@@ -128,16 +133,42 @@ public class Menu implements MouseListener {
 		currentGameState = STATE_MAIN_MENU;
 	}
 
+	/**
+	 * Shows the loading screen while a level is prepared in the background.
+	 * The world keeps stepping so the screen is redrawn and the level can be
+	 * committed as soon as it is ready.
+	 */
+	public static void beginLoading() {
+		if (currentGameState != STATE_PLAYING) {
+			gameWorld.start();
+		}
+		currentGameState = STATE_LOADING;
+	}
+
+	/**
+	 * Leaves the loading screen once the requested level has been committed
+	 * 
+	 * @param loaded Whether the level was loaded; if not, the main menu is
+	 *               shown again
+	 */
+	public static void finishLoading(boolean loaded) {
+		if (loaded) {
+			currentGameState = STATE_PAUSED;
+			togglePlayPause();
+		} else {
+			gameWorld.stop();
+			currentGameState = STATE_MAIN_MENU;
+		}
+	}
+
 	/**
 	 * Starts a new game with the specified level number
 	 * 
 	 * @param levelNumber The level number to load
 	 */
 	public void startGame(int levelNumber) {
-		gameWorld.currentLevelNumber = levelNumber;
-		gameWorld.loadLevel(levelNumber);
-		currentGameState = STATE_PAUSED;
-		togglePlayPause();
+		beginLoading();
+		gameWorld.requestLevel(LevelLoader.BUILT_IN, levelNumber, null);
 	}
 
 	/**
@@ -146,10 +177,8 @@ public class Menu implements MouseListener {
 	 * @param filePath Path to the level file
 	 */
 	public void loadCustomLevel(String filePath) {
-		gameWorld.currentLevelNumber = -1;
-		gameWorld.loadLevel(filePath);
-		currentGameState = STATE_PAUSED;
-		togglePlayPause();
+		beginLoading();
+		gameWorld.requestLevel(LevelLoader.CUSTOM, -1, filePath);
 	}
 
 	/**
@@ -158,9 +187,8 @@ public class Menu implements MouseListener {
 	 * @param filePath Path to the saved game file
 	 */
 	public void loadSavedGame(String filePath) {
-		gameWorld.loadSavedGame(filePath);
-		currentGameState = STATE_PAUSED;
-		togglePlayPause();
+		beginLoading();
+		gameWorld.requestLevel(LevelLoader.SAVED_GAME, -1, filePath);
 	}
 
 	/**
@@ -174,7 +202,7 @@ public class Menu implements MouseListener {
 	 * Navigates to the leaderboard screen
 	 */
 	public void navigateToLeaderboard() {
-		ScoreboardManager.loadLeaderBoardData();
+		ScoreboardManager.refresh();
 		currentGameState = STATE_LEADERBOARD;
 	}
 
@@ -229,7 +257,12 @@ public class Menu implements MouseListener {
 				if (gameWorld.currentLevelNumber != -1) {
 					PlayerManager.saveResult(gameWorld.currentLevelNumber, gameWorld.currentElapsedTimeSeconds,
 							gameWorld.score);
-					startGame(gameWorld.currentLevelNumber);
+					// Respawn at the latest checkpoint, or restart the level
+					if (gameWorld.requestRespawn()) {
+						togglePlayPause();
+					} else {
+						startGame(gameWorld.currentLevelNumber);
+					}
 				} else {
 					navigateToMainMenu();
 				}
@@ -250,8 +283,7 @@ public class Menu implements MouseListener {
 		int result = fileChooser.showSaveDialog(null);
 		if (result == JFileChooser.APPROVE_OPTION) {
 			File selectedFile = fileChooser.getSelectedFile();
-			PlayerManager.saveGame(gameWorld.currentLevelNumber, gameWorld.player, gameWorld.camera,
-					GameWorld.score, GameWorld.currentElapsedTimeSeconds, selectedFile);
+			PlayerManager.saveGame(gameWorld, selectedFile);
 		}
 	}
 
@@ -295,7 +327,7 @@ public class Menu implements MouseListener {
 		if (okButtonBounds.contains(clickPosition)) {
 			// Save player name and load their data
 			PlayerManager.name = nameInputField.getValue();
-			ScoreboardManager.loadLeaderBoardData();
+			ScoreboardManager.refresh();
 
 			if (ScoreboardManager.playerDataMap.containsKey(PlayerManager.name)) {
 				PlayerManager.data = ScoreboardManager.playerDataMap.get(PlayerManager.name);
@@ -319,8 +351,18 @@ public class Menu implements MouseListener {
 		}
 
 		if (globalTabButtonBounds.contains(clickPosition)) {
-			// Switch to global leaderboard
+			// Switch to global leaderboard, on the page of the player
 			Menu.leaderboardMode = 1;
+			leaderboardPage = 0;
+			int level = leaderboardLevel;
+			Leaderboard.Metric metric = leaderboardMetric;
+			ScoreboardManager.findRank(level, metric, PlayerManager.name, rank -> {
+				// Unless the player left the first page meanwhile
+				if (leaderboardMode == 1 && leaderboardLevel == level && leaderboardMetric == metric
+						&& leaderboardPage == 0) {
+					leaderboardPage = rank > 0 ? (rank - 1) / ScoreboardManager.MAX_DISPLAYED_ENTRIES : 0;
+				}
+			});
 		}
 
 		if (menuButtonBounds.contains(clickPosition)) {
@@ -328,6 +370,42 @@ public class Menu implements MouseListener {
 		}
 	}
 
+	/**
+	 * Handles keys on the global leaderboard: left and right turn the pages,
+	 * up and down change the level and M changes the metric
+	 * 
+	 * @param keyCode The code of the pressed key
+	 * @return True if the leaderboard changed and must be redrawn
+	 */
+	public static boolean handleLeaderboardKey(int keyCode) {
+		if (currentGameState != STATE_LEADERBOARD || leaderboardMode != 1) {
+			return false;
+		}
+		int pageCount = ScoreboardManager.getPageCount(leaderboardLevel, leaderboardMetric);
+		int levelCount = Level.LEVEL_FILES.length;
+
+		if (keyCode == KeyEvent.VK_RIGHT && leaderboardPage < pageCount - 1) {
+			leaderboardPage++;
+		} else if (keyCode == KeyEvent.VK_LEFT && leaderboardPage > 0) {
+			leaderboardPage--;
+		} else if (keyCode == KeyEvent.VK_DOWN) {
+			// All levels, then each level in turn
+			leaderboardLevel = leaderboardLevel == ScoreboardManager.ALL_LEVELS ? 0
+					: leaderboardLevel + 1 < levelCount ? leaderboardLevel + 1 : ScoreboardManager.ALL_LEVELS;
+			leaderboardPage = 0;
+		} else if (keyCode == KeyEvent.VK_UP) {
+			leaderboardLevel = leaderboardLevel == ScoreboardManager.ALL_LEVELS ? levelCount - 1
+					: leaderboardLevel > 0 ? leaderboardLevel - 1 : ScoreboardManager.ALL_LEVELS;
+			leaderboardPage = 0;
+		} else if (keyCode == KeyEvent.VK_M) {
+			leaderboardMetric = leaderboardMetric.next();
+			leaderboardPage = 0;
+		} else {
+			return false;
+		}
+		return true;
+	}
+
 	/**
 	 * Handles clicks on the level selection screen
 	 * 
@@ -338,11 +416,11 @@ public class Menu implements MouseListener {
 			startGame(0);
 		}
 
-		if (level2ButtonBounds.contains(clickPosition) && PlayerManager.data.levelMax >= 1) {
+		if (level2ButtonBounds.contains(clickPosition) && PlayerManager.data.isUnlocked(1)) {
 			startGame(1);
 		}
 
-		if (level3ButtonBounds.contains(clickPosition) && PlayerManager.data.levelMax >= 2) {
+		if (level3ButtonBounds.contains(clickPosition) && PlayerManager.data.isUnlocked(2)) {
 			startGame(2);
 		}
 
@@ -394,10 +472,10 @@ public class Menu implements MouseListener {
 			if (level1ButtonBounds.contains(clickPosition)) {
 				isLevel1ButtonPressed = true;
 			}
-			if (level2ButtonBounds.contains(clickPosition) && PlayerManager.data.levelMax >= 1) {
+			if (level2ButtonBounds.contains(clickPosition) && PlayerManager.data.isUnlocked(1)) {
 				isLevel2ButtonPressed = true;
 			}
-			if (level3ButtonBounds.contains(clickPosition) && PlayerManager.data.levelMax >= 2) {
+			if (level3ButtonBounds.contains(clickPosition) && PlayerManager.data.isUnlocked(2)) {
 				isLevel3ButtonPressed = true;
 			}
 		}
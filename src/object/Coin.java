@@ -2,12 +2,12 @@ package object;
 
 import game.GameWorld;
 import city.cs.engine.BodyImage;
-import city.cs.engine.BoxShape;
 import city.cs.engine.Shape;
 import city.cs.engine.World;
 import entity.Player;
 import org.jbox2d.common.Vec2;
 import service.GameAudioManager;
+import service.TemplateRegistry;
 
 /**
  * A Coin is a pickup item that increases the player's score when collected.
@@ -29,7 +29,11 @@ public class Coin extends GamePickup {
 
 	// Physical shape of the coin
 	// Small square collision box that is easy to interact with
-	private static final Shape COIN_SHAPE = new BoxShape(0.3f, 0.3f);
+	private static final Shape COIN_SHAPE = TemplateRegistry.box(0.3f, 0.3f);
+
+	// Image shared by every coin
+	private static final BodyImage COIN_IMAGE = TemplateRegistry.image("resources/collectibles/collectible_coin.png",
+			0.6f);
 
 	/**
 	 * Constructor for creating a new coin in the game world.
@@ -43,7 +47,7 @@ public class Coin extends GamePickup {
 	 */
 	public Coin(World world) {
 		super(world, COIN_SHAPE);
-		this.addImage(new BodyImage("resources/collectibles/collectible_coin.png", 0.6f));
+		this.addImage(COIN_IMAGE);
 	}
 
 	/**
@@ -64,9 +68,8 @@ public class Coin extends GamePickup {
 	@Override
 	public void action(Player player) {
 		GameWorld.score++;
+		GameWorld.sound.playAt(GameAudioManager.COIN, this.getPosition());
 		this.destroy();
-		GameWorld.sound.setFile(GameAudioManager.COIN);
-		GameWorld.sound.play();
 	}
 
 	/**
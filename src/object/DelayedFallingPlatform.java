@@ -4,13 +4,14 @@ import org.jbox2d.common.Vec2;
 
 import game.Camera;
 import city.cs.engine.BodyImage;
-import city.cs.engine.BoxShape;
 import city.cs.engine.CollisionEvent;
 import city.cs.engine.CollisionListener;
-import city.cs.engine.GhostlyFixture;
+import city.cs.engine.Shape;
 import city.cs.engine.StaticBody;
 import city.cs.engine.World;
 import entity.Player;
+import service.Stateful;
+import service.TemplateRegistry;
 
 /**
  * DelayedFallingPlatform is a platform that falls after the player stands on it
@@ -19,7 +20,7 @@ import entity.Player;
  * The platform has a timer that starts when the player stands on it, and after
  * a specified delay, the platform will fall downward.
  */
-public class DelayedFallingPlatform extends InteractiveStaticObject implements CollisionListener {
+public class DelayedFallingPlatform extends InteractiveStaticObject implements CollisionListener, Stateful {
 
 	// Platform state constants
 	private static final int GHOST_STATE = 0;
@@ -50,8 +51,13 @@ public class DelayedFallingPlatform extends InteractiveStaticObject implements C
 	// The physical platform body
 	private StaticBody platformBody;
 
-	// Physical shape of the falling platform
-	private static final BoxShape PLATFORM_SHAPE = new BoxShape(0.5f, 0.5f);
+	// Physical shape, image and ghost fixture of the falling platform, shared by
+	// every falling platform and reused each time the body is rebuilt
+	private static final Shape PLATFORM_SHAPE = TemplateRegistry.box(0.5f, 0.5f);
+	private static final BodyImage PLATFORM_IMAGE = TemplateRegistry
+			.image("resources/objects/decorative/prop_log_horizontal.png", 1f);
+	private static final TemplateRegistry.FixtureTemplate GHOST_FIXTURE = TemplateRegistry.fixture(PLATFORM_SHAPE,
+			TemplateRegistry.GHOSTLY);
 
 	// Vector that controls the falling speed and direction
 	private final Vec2 FALLING_VECTOR = new Vec2(0, -0.2f);
@@ -84,7 +90,7 @@ public class DelayedFallingPlatform extends InteractiveStaticObject implements C
 	public void makeStaticPlatform() {
 		currentState = PLATFORM_STATE;
 		platformBody = new StaticBody(gameWorld, PLATFORM_SHAPE);
-		platformBody.addImage(new BodyImage("resources/objects/decorative/prop_log_horizontal.png", 1f));
+		platformBody.addImage(PLATFORM_IMAGE);
 		platformBody.addCollisionListener(this);
 		platformBody.setPosition(new Vec2(platformPosition.x - gameCamera.cameraPosition, platformPosition.y));
 	}
@@ -96,8 +102,8 @@ public class DelayedFallingPlatform extends InteractiveStaticObject implements C
 	public void makeGhostPlatform() {
 		currentState = GHOST_STATE;
 		platformBody = new StaticBody(gameWorld);
-		GhostlyFixture ghostlyFixture = new GhostlyFixture(platformBody, PLATFORM_SHAPE);
-		platformBody.addImage(new BodyImage("resources/objects/decorative/prop_log_horizontal.png", 1f));
+		GHOST_FIXTURE.attach(platformBody);
+		platformBody.addImage(PLATFORM_IMAGE);
 		platformBody.setPosition(new Vec2(platformPosition.x - gameCamera.cameraPosition, platformPosition.y));
 	}
 
@@ -110,6 +116,15 @@ public class DelayedFallingPlatform extends InteractiveStaticObject implements C
 		isFalling = true;
 	}
 
+	/**
+	 * Removes the platform from the world, including the body it currently
+	 * uses
+	 */
+	@Override
+	public void removeFromWorld() {
+		platformBody.destroy();
+	}
+
 	/**
 	 * Updates the platform's state on each game step.
 	 * Handles platform falling, player positioning logic, and timer management.
@@ -162,4 +177,35 @@ public class DelayedFallingPlatform extends InteractiveStaticObject implements C
 			standingTimer = 0;
 		}
 	}
+
+	/**
+	 * Saves the falling timer and, while the platform falls, its height
+	 * 
+	 * @return The state of the platform
+	 */
+	@Override
+	public int[] saveState() {
+		return new int[] { standingTimer, isFalling ? 1 : 0, Float.floatToIntBits(platformBody.getPosition().y) };
+	}
+
+	/**
+	 * Restores the falling timer and puts a falling platform back at its
+	 * saved height. A platform at rest picks its solid or ghost state on the
+	 * next step, from the player's position.
+	 * 
+	 * @param state A state returned by saveState
+	 */
+	@Override
+	public void restoreState(int[] state) {
+		standingTimer = state[0];
+		platformBody.destroy();
+		if (state[1] != 0) {
+			startFalling();
+			Vec2 position = platformBody.getPosition();
+			platformBody.setPosition(new Vec2(position.x, Float.intBitsToFloat(state[2])));
+		} else {
+			makeGhostPlatform();
+			isFalling = false;
+		}
+	}
 }
@@ -3,6 +3,8 @@ package object;
 import city.cs.engine.*;
 import entity.Player;
 import org.jbox2d.common.Vec2;
+import service.Stateful;
+import service.TemplateRegistry;
 
 /**
  * Door is a static object that requires a key to be opened.
@@ -24,7 +26,7 @@ import org.jbox2d.common.Vec2;
  * The door uses a ghostly fixture when open to allow the player to pass through
  * while still maintaining a visual presence in the game world.
  */
-public class Door extends InteractiveStaticObject implements CollisionListener {
+public class Door extends InteractiveStaticObject implements CollisionListener, Stateful {
 
 	// The game world in which the door exists
 	private World gameWorld;
@@ -32,8 +34,14 @@ public class Door extends InteractiveStaticObject implements CollisionListener {
 	// The physical door body
 	private StaticBody doorBody;
 
-	// Physical shape of the door
-	private static final Shape DOOR_SHAPE = new BoxShape((float) (14.0 / 40.0), (float) (56.0 / 40.0));
+	// Physical shape, images and open fixture of the door, shared by every door
+	private static final Shape DOOR_SHAPE = TemplateRegistry.box((float) (14.0 / 40.0), (float) (56.0 / 40.0));
+	private static final BodyImage OPEN_IMAGE = TemplateRegistry.image("resources/objects/interactive/door_open.png",
+			(float) (57.0 / 20.0));
+	private static final BodyImage CLOSED_IMAGE = TemplateRegistry
+			.image("resources/objects/interactive/door_closed.png", (float) (56.0 / 20.0));
+	private static final TemplateRegistry.FixtureTemplate OPEN_FIXTURE = TemplateRegistry.fixture(DOOR_SHAPE,
+			TemplateRegistry.GHOSTLY);
 
 	// Door state (true = open, false = closed)
 	private boolean isOpen = false;
@@ -78,8 +86,8 @@ public class Door extends InteractiveStaticObject implements CollisionListener {
 		Vec2 position = doorBody.getPosition();
 		doorBody.destroy();
 		doorBody = new StaticBody(gameWorld);
-		GhostlyFixture ghostlyFixture = new GhostlyFixture(doorBody, DOOR_SHAPE);
-		doorBody.addImage(new BodyImage("resources/objects/interactive/door_open.png", (float) (57.0 / 20.0)));
+		OPEN_FIXTURE.attach(doorBody);
+		doorBody.addImage(OPEN_IMAGE);
 		doorBody.setPosition(position);
 		isOpen = true;
 	}
@@ -103,12 +111,20 @@ public class Door extends InteractiveStaticObject implements CollisionListener {
 		Vec2 position = doorBody.getPosition();
 		doorBody.destroy();
 		doorBody = new StaticBody(gameWorld, DOOR_SHAPE);
-		doorBody.addImage(new BodyImage("resources/objects/interactive/door_closed.png", (float) (56.0 / 20.0)));
+		doorBody.addImage(CLOSED_IMAGE);
 		doorBody.setPosition(position);
 		doorBody.addCollisionListener(this);
 		isOpen = false;
 	}
 
+	/**
+	 * Removes the door from the world, including the body it currently uses
+	 */
+	@Override
+	public void removeFromWorld() {
+		doorBody.destroy();
+	}
+
 	/**
 	 * Event that happens on each game step.
 	 * 
@@ -150,4 +166,28 @@ public class Door extends InteractiveStaticObject implements CollisionListener {
 			}
 		}
 	}
+
+	/**
+	 * Saves whether the door is open
+	 * 
+	 * @return The state of the door
+	 */
+	@Override
+	public int[] saveState() {
+		return new int[] { isOpen ? 1 : 0 };
+	}
+
+	/**
+	 * Opens the door again if it was open
+	 * 
+	 * @param state A state returned by saveState
+	 */
+	@Override
+	public void restoreState(int[] state) {
+		if (state[0] != 0 && !isOpen) {
+			open();
+		} else if (state[0] == 0 && isOpen) {
+			close();
+		}
+	}
 }
@@ -3,6 +3,8 @@ package object;
 import city.cs.engine.*;
 import entity.Player;
 import org.jbox2d.common.Vec2;
+import service.Stateful;
+import service.TemplateRegistry;
 
 /**
  * ElectricPortal is a hazard that periodically switches between active and
@@ -28,7 +30,7 @@ import org.jbox2d.common.Vec2;
  * be
  * easily bypassed, forcing the player to time their approach correctly.
  */
-public class ElectricPortal extends InteractiveStaticObject implements CollisionListener {
+public class ElectricPortal extends InteractiveStaticObject implements CollisionListener, Stateful {
 
     // Time (in game steps) between state changes
     private static final int STATE_CHANGE_INTERVAL = 50;
@@ -40,7 +42,17 @@ public class ElectricPortal extends InteractiveStaticObject implements Collision
     private boolean isElectric;
 
     // Physical shape of the electric portal
-    private static final Shape PORTAL_SHAPE = new BoxShape((float) (14.0 / 20.0), (float) (56.0 / 20.0));
+    private static final Shape PORTAL_SHAPE = TemplateRegistry.box((float) (14.0 / 20.0), (float) (56.0 / 20.0));
+
+    // Images and fixtures of both states, reused on every state change
+    private static final BodyImage ACTIVE_IMAGE = TemplateRegistry
+            .image("resources/objects/interactive/portal_electric_active.png", (float) (56.0 / 20.0));
+    private static final BodyImage INACTIVE_IMAGE = TemplateRegistry
+            .image("resources/objects/interactive/portal_electric_inactive.png", (float) (56.0 / 20.0));
+    private static final TemplateRegistry.FixtureTemplate ACTIVE_FIXTURE = TemplateRegistry.fixture(PORTAL_SHAPE,
+            TemplateRegistry.SOLID);
+    private static final TemplateRegistry.FixtureTemplate INACTIVE_FIXTURE = TemplateRegistry.fixture(PORTAL_SHAPE,
+            TemplateRegistry.GHOSTLY);
 
     /**
      * Constructor for creating a new electric portal
@@ -77,9 +89,9 @@ public class ElectricPortal extends InteractiveStaticObject implements Collision
     public void activateElectric() {
         isElectric = true;
         this.removeAllImages();
-        this.addImage(new BodyImage("resources/objects/interactive/portal_electric_active.png", (float) (56.0 / 20.0)));
+        this.addImage(ACTIVE_IMAGE);
         this.getFixtureList().get(0).destroy();
-        SolidFixture solidFixture = new SolidFixture(this, PORTAL_SHAPE);
+        ACTIVE_FIXTURE.attach(this);
     }
 
     /**
@@ -99,10 +111,9 @@ public class ElectricPortal extends InteractiveStaticObject implements Collision
     public void deactivateElectric() {
         isElectric = false;
         this.removeAllImages();
-        this.addImage(
-                new BodyImage("resources/objects/interactive/portal_electric_inactive.png", (float) (56.0 / 20.0)));
+        this.addImage(INACTIVE_IMAGE);
         this.getFixtureList().get(0).destroy();
-        GhostlyFixture ghostlyFixture = new GhostlyFixture(this, PORTAL_SHAPE);
+        INACTIVE_FIXTURE.attach(this);
     }
 
     /**
@@ -168,4 +179,29 @@ public class ElectricPortal extends InteractiveStaticObject implements Collision
             }
         }
     }
+
+    /**
+     * Saves the position of the portal in its cycle
+     * 
+     * @return The timer and whether the portal is electric
+     */
+    @Override
+    public int[] saveState() {
+        return new int[] { stateTimer, isElectric ? 1 : 0 };
+    }
+
+    /**
+     * Puts the portal back at the same point of its cycle
+     * 
+     * @param state A state returned by saveState
+     */
+    @Override
+    public void restoreState(int[] state) {
+        stateTimer = state[0];
+        if (state[1] != 0) {
+            activateElectric();
+        } else {
+            deactivateElectric();
+        }
+    }
 }
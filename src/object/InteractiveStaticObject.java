@@ -52,4 +52,13 @@ public abstract class InteractiveStaticObject extends StaticBody {
      * - Interact with the game world
      */
     public abstract void eventStep();
+
+    /**
+     * Removes the object from the world.
+     * Objects that manage bodies of their own, instead of using this body,
+     * override this method to destroy them as well.
+     */
+    public void removeFromWorld() {
+        this.destroy();
+    }
 }
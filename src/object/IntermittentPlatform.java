@@ -4,9 +4,11 @@ import org.jbox2d.common.Vec2;
 
 import game.Camera;
 import city.cs.engine.BodyImage;
-import city.cs.engine.BoxShape;
+import city.cs.engine.Shape;
 import city.cs.engine.StaticBody;
 import city.cs.engine.World;
+import service.Stateful;
+import service.TemplateRegistry;
 
 /**
  * IntermittentPlatform is a platform that periodically phases in and out of
@@ -32,7 +34,7 @@ import city.cs.engine.World;
  * to time a series of jumps correctly, creating escalating difficulty patterns
  * that test both observation skills and execution timing.
  */
-public class IntermittentPlatform extends InteractiveStaticObject {
+public class IntermittentPlatform extends InteractiveStaticObject implements Stateful {
 
 	// Platform state constants
 	private static final int GHOST_STATE = 0;
@@ -59,8 +61,11 @@ public class IntermittentPlatform extends InteractiveStaticObject {
 	// Position of the platform in the world
 	private Vec2 platformPosition;
 
-	// Physical shape of the intermittent platform
-	private static final BoxShape PLATFORM_SHAPE = new BoxShape(0.8f, 0.5f);
+	// Physical shape and image of the intermittent platform, shared by every
+	// intermittent platform and reused each time the platform reappears
+	private static final Shape PLATFORM_SHAPE = TemplateRegistry.box(0.8f, 0.5f);
+	private static final BodyImage PLATFORM_IMAGE = TemplateRegistry
+			.image("resources/objects/interactive/platform_disappearing.png", 1f);
 
 	/**
 	 * Creates a new intermittent platform that phases in and out
@@ -107,7 +112,7 @@ public class IntermittentPlatform extends InteractiveStaticObject {
 		currentState = PLATFORM_STATE;
 		platformBody.destroy();
 		platformBody = new StaticBody(gameWorld, PLATFORM_SHAPE);
-		platformBody.addImage(new BodyImage("resources/objects/interactive/platform_disappearing.png", 1f));
+		platformBody.addImage(PLATFORM_IMAGE);
 		platformBody.setPosition(new Vec2(platformPosition.x - gameCamera.cameraPosition, platformPosition.y));
 	}
 
@@ -130,6 +135,15 @@ public class IntermittentPlatform extends InteractiveStaticObject {
 		platformBody.destroy();
 	}
 
+	/**
+	 * Removes the platform from the world, including the body it currently
+	 * uses
+	 */
+	@Override
+	public void removeFromWorld() {
+		platformBody.destroy();
+	}
+
 	/**
 	 * Updates the platform's state on each game step.
 	 * Handles the periodic appearance and disappearance of the platform.
@@ -158,4 +172,29 @@ public class IntermittentPlatform extends InteractiveStaticObject {
 			}
 		}
 	}
+
+	/**
+	 * Saves the position of the platform in its cycle
+	 * 
+	 * @return The timer and the current state
+	 */
+	@Override
+	public int[] saveState() {
+		return new int[] { stateTimer, currentState };
+	}
+
+	/**
+	 * Puts the platform back at the same point of its cycle
+	 * 
+	 * @param state A state returned by saveState
+	 */
+	@Override
+	public void restoreState(int[] state) {
+		stateTimer = state[0];
+		if (state[1] == PLATFORM_STATE) {
+			makeStaticPlatform();
+		} else {
+			makeGhostPlatform();
+		}
+	}
 }
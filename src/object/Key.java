@@ -4,6 +4,7 @@ import city.cs.engine.*;
 import entity.Player;
 import game.GameWorld;
 import service.GameAudioManager;
+import service.TemplateRegistry;
 
 /**
  * A Key is a pickup item that allows the player to open doors.
@@ -28,7 +29,7 @@ import service.GameAudioManager;
 public class Key extends GamePickup {
 
 	// Physical shape of the key
-	private static final BoxShape KEY_SHAPE = new BoxShape((float) (43 / 40.0), (float) (41 / 40.0));
+	private static final Shape KEY_SHAPE = TemplateRegistry.box((float) (43 / 40.0), (float) (41 / 40.0));
 
 	/**
 	 * Constructor for creating a new key
@@ -47,7 +48,7 @@ public class Key extends GamePickup {
 	 */
 	public Key(World world) {
 		super(world, KEY_SHAPE);
-		this.addImage(new BodyImage("resources/collectibles/collectible_key.png", (float) (83.0 / 20.0)));
+		this.addImage(TemplateRegistry.image("resources/collectibles/collectible_key.png", (float) (83.0 / 20.0)));
 	}
 
 	/**
@@ -71,8 +72,7 @@ public class Key extends GamePickup {
 	@Override
 	public void action(Player player) {
 		player.hasKey = true;
+		GameWorld.sound.playAt(GameAudioManager.COIN, this.getPosition());
 		this.destroy();
-		GameWorld.sound.setFile(GameAudioManager.COIN);
-		GameWorld.sound.play();
 	}
 }
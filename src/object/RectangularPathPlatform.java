@@ -3,12 +3,13 @@ package object;
 import org.jbox2d.common.Vec2;
 
 import city.cs.engine.Body;
-import city.cs.engine.BodyImage;
-import city.cs.engine.BoxShape;
 import city.cs.engine.Sensor;
 import city.cs.engine.SensorEvent;
 import city.cs.engine.SensorListener;
+import city.cs.engine.Shape;
 import city.cs.engine.World;
+import service.Stateful;
+import service.TemplateRegistry;
 
 /**
  * RectangularPathPlatform is a platform that automatically moves in a
@@ -16,14 +17,14 @@ import city.cs.engine.World;
  * It travels horizontally and vertically in a continuous pattern, and can carry
  * objects that stand on it, moving them along with the platform.
  */
-public class RectangularPathPlatform extends InteractiveStaticObject implements SensorListener {
+public class RectangularPathPlatform extends InteractiveStaticObject implements SensorListener, Stateful {
 
 	// Movement direction constants
 	public static final int HORIZONTAL = 0;
 	public static final int VERTICAL = 1;
 
 	// Physical shape of the moving platform
-	public static final BoxShape PLATFORM_SHAPE = new BoxShape((float) (63.0 / 40.0), (float) (29.0 / 40.0));
+	public static final Shape PLATFORM_SHAPE = TemplateRegistry.box((float) (63.0 / 40.0), (float) (29.0 / 40.0));
 
 	// Current movement direction (0 = horizontal, 1 = vertical)
 	private int currentDirection = 0;
@@ -54,7 +55,7 @@ public class RectangularPathPlatform extends InteractiveStaticObject implements
 	 */
 	public RectangularPathPlatform(World world, float horizontalDistance, float verticalDistance) {
 		super(world, PLATFORM_SHAPE);
-		this.addImage(new BodyImage("resources/objects/interactive/platform_moving.png", (float) (29.0 / 20.0)));
+		this.addImage(TemplateRegistry.image("resources/objects/interactive/platform_moving.png", (float) (29.0 / 20.0)));
 		this.maxHorizontalDistance = horizontalDistance;
 		this.maxVerticalDistance = verticalDistance;
 		contactSensor = new Sensor(this, PLATFORM_SHAPE);
@@ -121,4 +122,29 @@ public class RectangularPathPlatform extends InteractiveStaticObject implements
 	public void endContact(SensorEvent sensorEvent) {
 		passengerBody = null;
 	}
+
+	/**
+	 * Saves the progress of the platform along its path; its position is
+	 * saved with its body
+	 * 
+	 * @return The direction, speeds and distance travelled
+	 */
+	@Override
+	public int[] saveState() {
+		return new int[] { currentDirection, Float.floatToIntBits(horizontalSpeed),
+				Float.floatToIntBits(verticalSpeed), Float.floatToIntBits(distanceTraveled) };
+	}
+
+	/**
+	 * Puts the platform back at the same point of its path
+	 * 
+	 * @param state A state returned by saveState
+	 */
+	@Override
+	public void restoreState(int[] state) {
+		currentDirection = state[0];
+		horizontalSpeed = Float.intBitsToFloat(state[1]);
+		verticalSpeed = Float.intBitsToFloat(state[2]);
+		distanceTraveled = Float.intBitsToFloat(state[3]);
+	}
 }
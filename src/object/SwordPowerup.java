@@ -1,14 +1,14 @@
 package object;
 
-import city.cs.engine.BodyImage;
-import city.cs.engine.BoxShape;
 import city.cs.engine.CollisionEvent;
 import city.cs.engine.CollisionListener;
+import city.cs.engine.Shape;
 import city.cs.engine.StaticBody;
 import city.cs.engine.World;
 import entity.Player;
 import game.GameWorld;
 import service.GameAudioManager;
+import service.TemplateRegistry;
 
 /**
  * SwordPowerup is a collectible weapon power-up that enhances the player's
@@ -34,7 +34,7 @@ public class SwordPowerup extends StaticBody implements CollisionListener {
 
 	// Physical shape of the sword power-up
 	// Sized to be visually prominent and easily noticed by players
-	private static final BoxShape SWORD_SHAPE = new BoxShape((float) (43 / 40.0), (float) (41 / 40.0));
+	private static final Shape SWORD_SHAPE = TemplateRegistry.box((float) (43 / 40.0), (float) (41 / 40.0));
 
 	/**
 	 * Creates a new sword power-up in the game world.
@@ -53,7 +53,7 @@ public class SwordPowerup extends StaticBody implements CollisionListener {
 	 */
 	public SwordPowerup(World world) {
 		super(world, SWORD_SHAPE);
-		this.addImage(new BodyImage("resources/objects/interactive/item_sword_power.png", (float) (83.0 / 20.0)));
+		this.addImage(TemplateRegistry.image("resources/objects/interactive/item_sword_power.png", (float) (83.0 / 20.0)));
 		this.addCollisionListener(this);
 	}
 
@@ -79,9 +79,8 @@ public class SwordPowerup extends StaticBody implements CollisionListener {
 		if (collisionEvent.getOtherBody() instanceof Player) {
 			Player player = (Player) collisionEvent.getOtherBody();
 			player.upgrade();
+			GameWorld.sound.playAt(GameAudioManager.COIN, this.getPosition());
 			this.destroy();
-			GameWorld.sound.setFile(GameAudioManager.COIN);
-			GameWorld.sound.play();
 		}
 	}
 }
@@ -0,0 +1,198 @@
+package service;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import assets.GameFileManager;
+
+/**
+ * AudioMetrics collects counters and timing histograms about sound playback so
+ * audio tuning can be based on measurements rather than impressions.
+ *
+ * It records:
+ * - Effect requests, culled requests and started effects
+ * - How long each effect takes from being requested until its line starts
+ * - How long each file takes to decode into a clip
+ * - Line open failures reported by the mixer
+ * - The number of effect voices currently playing and the peak reached
+ *
+ * The metrics can be drawn as an in-game overlay and dumped to a text file.
+ */
+public class AudioMetrics {
+
+    // File that dump() writes to
+    public static final String DUMP_FILE = "audio_metrics.txt";
+
+    // Whether the overlay is drawn during gameplay
+    public static boolean overlayVisible = false;
+
+    // Counters
+    private long requests = 0;
+    private long culled = 0;
+    private long started = 0;
+    private long lineOpenFailures = 0;
+    private int activeVoices = 0;
+    private int peakVoices = 0;
+
+    // Histograms keyed by sound file name
+    private final Map<String, Histogram> startLatency = new TreeMap<>();
+    private final Map<String, Histogram> decodeTime = new TreeMap<>();
+
+    // Overlay layout
+    private static final int OVERLAY_X = 10;
+    private static final int OVERLAY_Y = 90;
+    private static final int OVERLAY_LINE_HEIGHT = 14;
+    private static final Font OVERLAY_FONT = new Font("", Font.PLAIN, 12);
+
+    /**
+     * Counts a request to play an effect
+     */
+    public synchronized void requested() {
+        requests++;
+    }
+
+    /**
+     * Counts a request dropped because its source was out of earshot
+     */
+    public synchronized void culled() {
+        culled++;
+    }
+
+    /**
+     * Counts a failure to open a line for a clip
+     */
+    public synchronized void lineOpenFailed() {
+        lineOpenFailures++;
+    }
+
+    /**
+     * Records the time a file took to decode into a clip
+     *
+     * @param sound      The name of the sound file
+     * @param startNanos The System.nanoTime value when decoding started
+     */
+    public void decoded(String sound, long startNanos) {
+        histogram(decodeTime, sound).recordSince(startNanos);
+    }
+
+    /**
+     * Records an effect starting to play
+     *
+     * @param sound        The name of the sound file
+     * @param requestNanos The System.nanoTime value when the effect was requested
+     */
+    public void voiceStarted(String sound, long requestNanos) {
+        histogram(startLatency, sound).recordSince(requestNanos);
+        synchronized (this) {
+            started++;
+            activeVoices++;
+            if (activeVoices > peakVoices) {
+                peakVoices = activeVoices;
+            }
+        }
+    }
+
+    /**
+     * Records an effect that stopped playing
+     */
+    public synchronized void voiceStopped() {
+        if (activeVoices > 0) {
+            activeVoices--;
+        }
+    }
+
+    /**
+     * @return The number of effect voices currently playing
+     */
+    public synchronized int getActiveVoices() {
+        return activeVoices;
+    }
+
+    /**
+     * Returns the histogram stored under a key, creating it if needed
+     *
+     * @param histograms The histograms to look in
+     * @param key        The sound file name
+     * @return The histogram for that key
+     */
+    private Histogram histogram(Map<String, Histogram> histograms, String key) {
+        synchronized (histograms) {
+            Histogram histogram = histograms.get(key);
+            if (histogram == null) {
+                histogram = new Histogram();
+                histograms.put(key, histogram);
+            }
+            return histogram;
+        }
+    }
+
+    /**
+     * Formats every metric as human-readable lines
+     *
+     * @param withBuckets Whether to include the raw histogram buckets
+     * @return The report lines
+     */
+    public List<String> report(boolean withBuckets) {
+        List<String> lines = new ArrayList<>();
+        synchronized (this) {
+            lines.add("requests=" + requests + " culled=" + culled + " started=" + started
+                    + " lineOpenFailures=" + lineOpenFailures);
+            lines.add("activeVoices=" + activeVoices + " peakVoices=" + peakVoices);
+        }
+        appendHistograms(lines, "start latency", startLatency, withBuckets);
+        appendHistograms(lines, "decode time", decodeTime, withBuckets);
+        return lines;
+    }
+
+    /**
+     * Adds one line per histogram to a report
+     *
+     * @param lines       The report being built
+     * @param title       The title of this group of histograms
+     * @param histograms  The histograms keyed by sound file name
+     * @param withBuckets Whether to include the raw buckets
+     */
+    private void appendHistograms(List<String> lines, String title, Map<String, Histogram> histograms,
+            boolean withBuckets) {
+        lines.add(title + ":");
+        synchronized (histograms) {
+            for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+                lines.add("  " + entry.getKey() + " " + entry.getValue().summary());
+                if (withBuckets) {
+                    lines.add("    " + entry.getValue().buckets());
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws the metrics report over the game view
+     *
+     * @param graphics The Graphics2D context used for drawing
+     */
+    public void drawOverlay(Graphics2D graphics) {
+        graphics.setColor(Color.WHITE);
+        graphics.setFont(OVERLAY_FONT);
+        int y = OVERLAY_Y;
+        for (String line : report(false)) {
+            graphics.drawString(line, OVERLAY_X, y);
+            y += OVERLAY_LINE_HEIGHT;
+        }
+    }
+
+    /**
+     * Writes the full metrics report, including histogram buckets, to
+     * DUMP_FILE. The report is taken at once and written on the IoExecutor,
+     * so the key handler calling this does not wait for the disk.
+     */
+    public void dump() {
+        List<String> report = report(true);
+        IoExecutor.submit("Audio metrics written to " + DUMP_FILE, "Failed to write audio metrics to " + DUMP_FILE,
+                () -> GameFileManager.writeLines(DUMP_FILE, report));
+    }
+}
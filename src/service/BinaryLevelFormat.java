@@ -0,0 +1,436 @@
+package service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * BinaryLevelFormat reads and writes levels as fixed-layout binary tables.
+ *
+ * Files are read through a memory-mapped FileChannel, and loading a level only
+ * walks the tables, with no text to parse. Shapes, images and strings are
+ * stored once and shared by every entity that uses them, so a level with
+ * thousands of identical platforms keeps a single copy of each.
+ *
+ * Layout (big-endian, offsets are absolute byte positions in the file):
+ * - Header: magic, version, source hash (32 bytes, zero when unused), CRC32 of
+ * everything after the header, then the count and offset of each table
+ * - String table: per string an offset and a length into the UTF-8 blob
+ * - Shape table: per shape a kind, a first value and a value count
+ * - Image table: per image a string index and a height
+ * - Entity table: per entity a type string index, x, y, a shape index, an
+ * image index (-1 for none), a first value and a value count
+ * - Value pool: every float used by shapes and entity parameters
+ * - String blob: the UTF-8 bytes of every string
+ */
+public class BinaryLevelFormat {
+
+    // File extension of binary levels
+    public static final String EXTENSION = ".plvl";
+
+    // File identification
+    private static final int MAGIC = 0x504C5642; // "PLVB"
+    private static final int VERSION = 1;
+    public static final int HASH_LENGTH = 32;
+
+    // Record sizes in bytes
+    private static final int STRING_RECORD = 8;
+    private static final int SHAPE_RECORD = 12;
+    private static final int IMAGE_RECORD = 8;
+    private static final int ENTITY_RECORD = 28;
+    private static final int HEADER_LENGTH = 4 + 4 + HASH_LENGTH + 8 + 6 * 8;
+
+    private static final float[] NO_VALUES = new float[0];
+
+    /**
+     * Reads a binary level
+     *
+     * @param file The level file
+     * @return The elements of the level, in file order
+     * @throws IOException If the file cannot be read or is not a valid level
+     */
+    public static List<LevelElement> read(Path file) throws IOException {
+        return read(file, null);
+    }
+
+    /**
+     * Reads a binary level, checking which text file it was compiled from
+     *
+     * @param file         The level file
+     * @param expectedHash The source hash the file must carry, or null to
+     *                     accept any
+     * @return The elements of the level, in file order
+     * @throws IOException If the file cannot be read or is not a valid level
+     */
+    public static List<LevelElement> read(Path file, byte[] expectedHash) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_LENGTH || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("not a binary level");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return read(buffer, expectedHash);
+    }
+
+    /**
+     * Walks the tables of a binary level held in a buffer
+     *
+     * @param buffer       The whole level file
+     * @param expectedHash The source hash the file must carry, or null to
+     *                     accept any
+     * @return The elements of the level, in file order
+     * @throws IOException If the buffer is not a valid level
+     */
+    private static List<LevelElement> read(ByteBuffer buffer, byte[] expectedHash) throws IOException {
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("bad magic number");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("unsupported version " + buffer.getInt(4));
+        }
+        if (expectedHash != null) {
+            byte[] hash = new byte[HASH_LENGTH];
+            ByteBuffer view = buffer.duplicate();
+            view.position(8);
+            view.get(hash);
+            if (!Arrays.equals(hash, expectedHash)) {
+                throw new IOException("built from a different level file");
+            }
+        }
+        long checksum = buffer.getLong(8 + HASH_LENGTH);
+        CRC32 crc = new CRC32();
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(HEADER_LENGTH);
+        crc.update(payload);
+        if (crc.getValue() != checksum) {
+            throw new IOException("checksum mismatch");
+        }
+
+        int table = 8 + HASH_LENGTH + 8;
+        int stringCount = buffer.getInt(table);
+        int stringOffset = buffer.getInt(table + 4);
+        int shapeCount = buffer.getInt(table + 8);
+        int shapeOffset = buffer.getInt(table + 12);
+        int imageCount = buffer.getInt(table + 16);
+        int imageOffset = buffer.getInt(table + 20);
+        int entityCount = buffer.getInt(table + 24);
+        int entityOffset = buffer.getInt(table + 28);
+        int valueCount = buffer.getInt(table + 32);
+        int valueOffset = buffer.getInt(table + 36);
+        int blobLength = buffer.getInt(table + 40);
+        int blobOffset = buffer.getInt(table + 44);
+        checkRange(buffer, stringOffset, stringCount, STRING_RECORD);
+        checkRange(buffer, shapeOffset, shapeCount, SHAPE_RECORD);
+        checkRange(buffer, imageOffset, imageCount, IMAGE_RECORD);
+        checkRange(buffer, entityOffset, entityCount, ENTITY_RECORD);
+        checkRange(buffer, valueOffset, valueCount, 4);
+        checkRange(buffer, blobOffset, blobLength, 1);
+
+        // Strings are decoded once and shared by every record using them
+        String[] strings = new String[stringCount];
+        byte[] blob = new byte[blobLength];
+        ByteBuffer blobView = buffer.duplicate();
+        blobView.position(blobOffset);
+        blobView.get(blob);
+        for (int i = 0; i < stringCount; i++) {
+            int start = buffer.getInt(stringOffset + i * STRING_RECORD);
+            int length = buffer.getInt(stringOffset + i * STRING_RECORD + 4);
+            checkSlice(start, length, blobLength);
+            strings[i] = new String(blob, start, length, StandardCharsets.UTF_8);
+        }
+
+        // Shapes are read once and shared by every entity using them
+        int[] shapeKinds = new int[shapeCount];
+        float[][] shapeValues = new float[shapeCount][];
+        for (int i = 0; i < shapeCount; i++) {
+            int record = shapeOffset + i * SHAPE_RECORD;
+            shapeKinds[i] = buffer.getInt(record);
+            if (shapeKinds[i] <= LevelElement.SHAPE_NONE || shapeKinds[i] > LevelElement.SHAPE_POLYGON) {
+                throw new IOException("unknown shape kind " + shapeKinds[i]);
+            }
+            shapeValues[i] = values(buffer, valueOffset, valueCount, buffer.getInt(record + 4),
+                    buffer.getInt(record + 8));
+        }
+
+        List<LevelElement> elements = new ArrayList<>(entityCount);
+        for (int i = 0; i < entityCount; i++) {
+            int record = entityOffset + i * ENTITY_RECORD;
+            String type = strings[index(buffer.getInt(record), stringCount)];
+            float x = buffer.getFloat(record + 4);
+            float y = buffer.getFloat(record + 8);
+            int shape = buffer.getInt(record + 12);
+            int image = buffer.getInt(record + 16);
+            float[] params = values(buffer, valueOffset, valueCount, buffer.getInt(record + 20),
+                    buffer.getInt(record + 24));
+
+            int shapeKind = LevelElement.SHAPE_NONE;
+            float[] shapeParams = NO_VALUES;
+            if (shape >= 0) {
+                shapeKind = shapeKinds[index(shape, shapeCount)];
+                shapeParams = shapeValues[shape];
+            }
+            String imagePath = null;
+            float imageHeight = 0;
+            if (image >= 0) {
+                int imageRecord = imageOffset + index(image, imageCount) * IMAGE_RECORD;
+                imagePath = strings[index(buffer.getInt(imageRecord), stringCount)];
+                imageHeight = buffer.getFloat(imageRecord + 4);
+            }
+            elements.add(new LevelElement(type, x, y, shapeKind, shapeParams, imagePath, imageHeight, params));
+        }
+        return elements;
+    }
+
+    /**
+     * Writes a binary level atomically
+     *
+     * @param file       The level file to create or replace
+     * @param sourceHash The hash of the text file it was compiled from, or
+     *                   null
+     * @param elements   The elements of the level
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(Path file, byte[] sourceHash, List<LevelElement> elements) throws IOException {
+        Map<String, Integer> stringIndex = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> shapeIndex = new HashMap<>();
+        List<int[]> shapes = new ArrayList<>();
+        Map<String, Integer> imageIndex = new HashMap<>();
+        List<Integer> imagePaths = new ArrayList<>();
+        List<Float> imageHeights = new ArrayList<>();
+        Map<String, Integer> valueIndex = new HashMap<>();
+        FloatPool values = new FloatPool();
+        int[][] entities = new int[elements.size()][];
+
+        for (int i = 0; i < elements.size(); i++) {
+            LevelElement element = elements.get(i);
+            int shape = -1;
+            if (element.shapeKind != LevelElement.SHAPE_NONE) {
+                String key = element.shapeKind + Arrays.toString(element.shapeParams);
+                Integer existing = shapeIndex.get(key);
+                if (existing == null) {
+                    existing = shapes.size();
+                    shapes.add(new int[] { element.shapeKind, values.add(valueIndex, element.shapeParams),
+                            element.shapeParams.length });
+                    shapeIndex.put(key, existing);
+                }
+                shape = existing;
+            }
+            int image = -1;
+            if (element.imagePath != null) {
+                String key = element.imageHeight + ";" + element.imagePath;
+                Integer existing = imageIndex.get(key);
+                if (existing == null) {
+                    existing = imagePaths.size();
+                    imagePaths.add(intern(stringIndex, strings, element.imagePath));
+                    imageHeights.add(element.imageHeight);
+                    imageIndex.put(key, existing);
+                }
+                image = existing;
+            }
+            entities[i] = new int[] { intern(stringIndex, strings, element.type), Float.floatToIntBits(element.x),
+                    Float.floatToIntBits(element.y), shape, image, values.add(valueIndex, element.params),
+                    element.params.length };
+        }
+
+        byte[][] encoded = new byte[strings.size()][];
+        int blobLength = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+            blobLength += encoded[i].length;
+        }
+
+        int stringOffset = HEADER_LENGTH;
+        int shapeOffset = stringOffset + strings.size() * STRING_RECORD;
+        int imageOffset = shapeOffset + shapes.size() * SHAPE_RECORD;
+        int entityOffset = imageOffset + imagePaths.size() * IMAGE_RECORD;
+        int valueOffset = entityOffset + entities.length * ENTITY_RECORD;
+        int blobOffset = valueOffset + values.size * 4;
+        ByteBuffer buffer = ByteBuffer.allocate(blobOffset + blobLength);
+
+        buffer.putInt(MAGIC).putInt(VERSION);
+        buffer.put(sourceHash != null ? sourceHash : new byte[HASH_LENGTH]);
+        buffer.putLong(0);
+        buffer.putInt(strings.size()).putInt(stringOffset);
+        buffer.putInt(shapes.size()).putInt(shapeOffset);
+        buffer.putInt(imagePaths.size()).putInt(imageOffset);
+        buffer.putInt(entities.length).putInt(entityOffset);
+        buffer.putInt(values.size).putInt(valueOffset);
+        buffer.putInt(blobLength).putInt(blobOffset);
+
+        int blobPosition = 0;
+        for (byte[] string : encoded) {
+            buffer.putInt(blobPosition).putInt(string.length);
+            blobPosition += string.length;
+        }
+        for (int[] shape : shapes) {
+            buffer.putInt(shape[0]).putInt(shape[1]).putInt(shape[2]);
+        }
+        for (int i = 0; i < imagePaths.size(); i++) {
+            buffer.putInt(imagePaths.get(i)).putFloat(imageHeights.get(i));
+        }
+        for (int[] entity : entities) {
+            for (int field : entity) {
+                buffer.putInt(field);
+            }
+        }
+        for (int i = 0; i < values.size; i++) {
+            buffer.putFloat(values.data[i]);
+        }
+        for (byte[] string : encoded) {
+            buffer.put(string);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_LENGTH, buffer.capacity() - HEADER_LENGTH);
+        buffer.putLong(8 + HASH_LENGTH, crc.getValue());
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, "level", ".tmp");
+        try {
+            Files.write(temporary, buffer.array());
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Returns the index of a string in the string table, adding it if needed
+     *
+     * @param index   The indices of the strings already added
+     * @param strings The string table
+     * @param string  The string
+     * @return The index of the string
+     */
+    private static int intern(Map<String, Integer> index, List<String> strings, String string) {
+        Integer existing = index.get(string);
+        if (existing == null) {
+            existing = strings.size();
+            strings.add(string);
+            index.put(string, existing);
+        }
+        return existing;
+    }
+
+    /**
+     * Copies a run of values out of the value pool
+     *
+     * @param buffer      The level file
+     * @param valueOffset The position of the value pool
+     * @param valueCount  The number of values in the pool
+     * @param first       The index of the first value
+     * @param count       The number of values
+     * @return The values
+     * @throws IOException If the run is outside the pool
+     */
+    private static float[] values(ByteBuffer buffer, int valueOffset, int valueCount, int first, int count)
+            throws IOException {
+        if (count == 0) {
+            return NO_VALUES;
+        }
+        checkSlice(first, count, valueCount);
+        float[] values = new float[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = buffer.getFloat(valueOffset + (first + i) * 4);
+        }
+        return values;
+    }
+
+    /**
+     * Checks that a table lies inside the file
+     *
+     * @param buffer     The level file
+     * @param offset     The position of the table
+     * @param count      The number of records
+     * @param recordSize The size of each record in bytes
+     * @throws IOException If the table does not fit
+     */
+    private static void checkRange(ByteBuffer buffer, int offset, int count, int recordSize) throws IOException {
+        if (offset < HEADER_LENGTH || count < 0 || (long) offset + (long) count * recordSize > buffer.capacity()) {
+            throw new IOException("table outside the file");
+        }
+    }
+
+    /**
+     * Checks that a slice lies inside a region
+     *
+     * @param start  The first index of the slice
+     * @param length The length of the slice
+     * @param limit  The size of the region
+     * @throws IOException If the slice does not fit
+     */
+    private static void checkSlice(int start, int length, int limit) throws IOException {
+        if (start < 0 || length < 0 || (long) start + length > limit) {
+            throw new IOException("reference outside its table");
+        }
+    }
+
+    /**
+     * Checks a table index
+     *
+     * @param index The index
+     * @param count The number of records in the table
+     * @return The index
+     * @throws IOException If the index is out of range
+     */
+    private static int index(int index, int count) throws IOException {
+        if (index < 0 || index >= count) {
+            throw new IOException("reference outside its table");
+        }
+        return index;
+    }
+
+    /**
+     * FloatPool is a growable array of floats where identical runs of values
+     * are stored only once.
+     */
+    private static class FloatPool {
+        private float[] data = new float[64];
+        private int size = 0;
+
+        /**
+         * Adds a run of values, reusing an identical run added before
+         *
+         * @param index  The positions of the runs already added
+         * @param values The values
+         * @return The index of the first value
+         */
+        private int add(Map<String, Integer> index, float[] values) {
+            if (values.length == 0) {
+                return 0;
+            }
+            String key = Arrays.toString(values);
+            Integer existing = index.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            if (size + values.length > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + values.length));
+            }
+            System.arraycopy(values, 0, data, size, values.length);
+            index.put(key, size);
+            size += values.length;
+            return size - values.length;
+        }
+    }
+}
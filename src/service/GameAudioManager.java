@@ -3,8 +3,13 @@ package service;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.Clip;
+import javax.sound.sampled.FloatControl;
+import javax.sound.sampled.LineEvent;
+import javax.sound.sampled.LineUnavailableException;
 import java.net.URL;
 
+import org.jbox2d.common.Vec2;
+
 /**
  * Class responsible for loading, playing, and managing all game audio including
  * background music and sound effects.
@@ -13,9 +18,11 @@ import java.net.URL;
  * - Loading and caching sound effects and music tracks
  * - Playing one-time sound effects
  * - Looping background music tracks
+ * - Playing positional sound effects with distance attenuation and stereo pan
  * - Pausing and resuming audio playback
  * - Switching between different music tracks
  * - Fallback loading from alternate locations if primary resource loading fails
+ * - Recording playback latency, decode time and voice usage in AudioMetrics
  */
 public class GameAudioManager {
 
@@ -33,6 +40,17 @@ public class GameAudioManager {
     /** Constant for game over sound effect */
     public static final int GAME_OVER = 8;
 
+    /**
+     * Distance (in world units) from the camera beyond which positional effects
+     * are culled. One view width, so sources up to half a screen past either
+     * edge can still be heard.
+     */
+    public static final float AUDIBLE_RADIUS = 786f / 20f;
+    /** Half of the view width in world units, used to map positions to pan */
+    private static final float HALF_VIEW_WIDTH = 786f / 40f;
+    /** Gain (in decibels) applied to a source at the edge of the audible radius */
+    private static final float MIN_GAIN_DB = -30f;
+
     /** Current audio clip being prepared for playback */
     Clip clip;
     /** Currently active background music clip */
@@ -41,6 +59,8 @@ public class GameAudioManager {
     URL[] urlSound = new URL[30];
     /** Stores the timestamp when audio is paused for resuming later */
     long cliptime = 0;
+    /** Playback counters and timing histograms */
+    public final AudioMetrics metrics = new AudioMetrics();
 
     /**
      * Constructor method that initializes the audio manager by loading all game
@@ -112,19 +132,41 @@ public class GameAudioManager {
     public void setFile(int i) {
         try {
             if (urlSound[i] == null) {
+                clip = null;
                 System.err.println("Error: Audio file at index " + i + " is not available");
                 return;
             }
 
+            long decodeStart = System.nanoTime();
             AudioInputStream ais = AudioSystem.getAudioInputStream(urlSound[i]);
             clip = AudioSystem.getClip();
             clip.open(ais);
+            metrics.decoded(soundName(i), decodeStart);
+        } catch (LineUnavailableException e) {
+            clip = null;
+            metrics.lineOpenFailed();
+            System.err.println("Error opening audio line for index " + i + ": " + e.getMessage());
         } catch (Exception e) {
+            clip = null;
             System.err.println("Error setting audio file at index " + i + ": " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    /**
+     * Returns the file name of a sound, used to label its metrics
+     * 
+     * @param i The index of the audio file
+     * @return The last path segment of the file's URL
+     */
+    private String soundName(int i) {
+        if (urlSound[i] == null) {
+            return "sound" + i;
+        }
+        String path = urlSound[i].getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
     /**
      * Plays the current audio clip once from beginning to end.
      * Typically used for sound effects that should play once on events.
@@ -137,6 +179,105 @@ public class GameAudioManager {
         }
     }
 
+    /**
+     * Plays a one-shot sound effect positioned relative to the camera.
+     * 
+     * The camera keeps the view centred on the origin and moves the world
+     * instead, so a body's position is already its offset to the camera. The
+     * distance to the origin attenuates the volume and the horizontal offset
+     * pans the effect between the speakers. Sources further away than
+     * AUDIBLE_RADIUS are culled before the file is decoded or a line is opened.
+     * 
+     * @param i              The index of the sound effect to play
+     * @param sourcePosition The position of the body that emitted the sound
+     */
+    public void playAt(int i, Vec2 sourcePosition) {
+        long requestTime = System.nanoTime();
+        metrics.requested();
+        float distance = sourcePosition.length();
+        if (distance > AUDIBLE_RADIUS) {
+            metrics.culled();
+            return;
+        }
+
+        setFile(i);
+        if (clip == null) {
+            return;
+        }
+        applyGain(clip, 1f - distance / AUDIBLE_RADIUS);
+        applyPan(clip, sourcePosition.x / HALF_VIEW_WIDTH);
+        playEffect(soundName(i), requestTime);
+    }
+
+    /**
+     * Plays a one-shot, non-positional sound effect such as the victory or game
+     * over jingles.
+     * 
+     * @param i The index of the sound effect to play
+     */
+    public void playEffect(int i) {
+        long requestTime = System.nanoTime();
+        metrics.requested();
+        setFile(i);
+        playEffect(soundName(i), requestTime);
+    }
+
+    /**
+     * Starts the current clip as a one-shot effect. The clip's line is closed as
+     * soon as it stops so finished effects don't keep holding a mixer voice.
+     * 
+     * @param sound       The name of the sound file, used to label its metrics
+     * @param requestTime The System.nanoTime value when the effect was requested
+     */
+    private void playEffect(String sound, long requestTime) {
+        if (clip == null) {
+            System.err.println("Warning: Attempted to play null audio clip");
+            return;
+        }
+        clip.addLineListener(event -> {
+            if (event.getType() == LineEvent.Type.START) {
+                metrics.voiceStarted(sound, requestTime);
+            } else if (event.getType() == LineEvent.Type.STOP) {
+                metrics.voiceStopped();
+                event.getLine().close();
+            }
+        });
+        clip.start();
+    }
+
+    /**
+     * Scales the volume of a clip.
+     * 
+     * @param c      The clip to attenuate
+     * @param volume The linear volume, from 0 (silent) to 1 (full volume)
+     */
+    private void applyGain(Clip c, float volume) {
+        if (!c.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
+            return;
+        }
+        FloatControl gain = (FloatControl) c.getControl(FloatControl.Type.MASTER_GAIN);
+        float decibels = volume > 0 ? (float) (20 * Math.log10(volume)) : MIN_GAIN_DB;
+        decibels = Math.max(decibels, Math.max(MIN_GAIN_DB, gain.getMinimum()));
+        gain.setValue(Math.min(decibels, gain.getMaximum()));
+    }
+
+    /**
+     * Positions a clip between the left and right speakers. Mono clips expose a
+     * pan control while stereo clips expose balance, so whichever is available
+     * is used.
+     * 
+     * @param c   The clip to pan
+     * @param pan The pan, from -1 (left) to 1 (right); values outside are clamped
+     */
+    private void applyPan(Clip c, float pan) {
+        pan = Math.max(-1f, Math.min(1f, pan));
+        if (c.isControlSupported(FloatControl.Type.PAN)) {
+            ((FloatControl) c.getControl(FloatControl.Type.PAN)).setValue(pan);
+        } else if (c.isControlSupported(FloatControl.Type.BALANCE)) {
+            ((FloatControl) c.getControl(FloatControl.Type.BALANCE)).setValue(pan);
+        }
+    }
+
     /**
      * Loops the current audio clip continuously.
      * Typically used for background music that should play until stopped.
@@ -164,7 +305,9 @@ public class GameAudioManager {
      * Stops playback of the current audio clip.
      */
     public void stop() {
-        clip.stop();
+        if (clip != null) {
+            clip.stop();
+        }
     }
 
     /**
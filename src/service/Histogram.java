@@ -0,0 +1,123 @@
+package service;
+
+/**
+ * Histogram records the distribution of a timing measurement in milliseconds.
+ *
+ * Samples are counted in fixed buckets whose upper bounds double from 0.25 ms
+ * up to about one second, with a final bucket for anything slower. Recording a
+ * sample is constant time and allocation free, so it is cheap enough to call
+ * from audio callbacks and the game loop. Percentiles are estimated from the
+ * bucket bounds.
+ *
+ * All methods are synchronized because samples can arrive from the audio
+ * system's own threads while the game thread reads the summary.
+ */
+public class Histogram {
+
+    // Upper bound (in milliseconds) of each bucket except the overflow bucket
+    private static final double[] BUCKET_BOUNDS = { 0.25, 0.5, 1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024 };
+
+    // Sample count per bucket, the last one holds samples above every bound
+    private final long[] bucketCounts = new long[BUCKET_BOUNDS.length + 1];
+
+    // Running totals
+    private long count = 0;
+    private double sum = 0;
+    private double max = 0;
+
+    /**
+     * Records one sample
+     *
+     * @param millis The measured duration in milliseconds
+     */
+    public synchronized void record(double millis) {
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS.length && millis > BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+        bucketCounts[bucket]++;
+        count++;
+        sum += millis;
+        if (millis > max) {
+            max = millis;
+        }
+    }
+
+    /**
+     * Records one sample measured with System.nanoTime
+     *
+     * @param startNanos The System.nanoTime value when the measurement started
+     */
+    public void recordSince(long startNanos) {
+        record((System.nanoTime() - startNanos) / 1_000_000.0);
+    }
+
+    /**
+     * @return The number of recorded samples
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The mean of the recorded samples in milliseconds, or 0 if empty
+     */
+    public synchronized double getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * @return The largest recorded sample in milliseconds
+     */
+    public synchronized double getMax() {
+        return max;
+    }
+
+    /**
+     * Estimates a percentile as the upper bound of the bucket containing it.
+     *
+     * @param percentile The percentile to estimate, between 0 and 100
+     * @return The estimated value in milliseconds, or 0 if empty
+     */
+    public synchronized double getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank) {
+                return Math.min(BUCKET_BOUNDS[i], max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Formats a one line summary of the distribution
+     *
+     * @return The count, mean, p50, p95 and max of the samples
+     */
+    public synchronized String summary() {
+        return String.format("n=%d mean=%.2fms p50=%.2fms p95=%.2fms max=%.2fms", count, getMean(),
+                getPercentile(50), getPercentile(95), max);
+    }
+
+    /**
+     * Formats the raw bucket counts, one "<=bound: count" pair per bucket
+     *
+     * @return The bucket counts as text
+     */
+    public synchronized String buckets() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < bucketCounts.length; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(i < BUCKET_BOUNDS.length ? "<=" + BUCKET_BOUNDS[i] : ">" + BUCKET_BOUNDS[i - 1]);
+            text.append(':').append(bucketCounts[i]);
+        }
+        return text.toString();
+    }
+}
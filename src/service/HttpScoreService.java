@@ -0,0 +1,151 @@
+package service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import assets.GameFileManager;
+
+/**
+ * HttpScoreService is the ScoreService of a LeaderboardServer, reached over
+ * HTTP. Every call is one request with short timeouts, so a server that is
+ * down costs the caller half a second, not a hang.
+ *
+ * Results and entries travel as name;level;time;score; lines, one per line.
+ */
+public class HttpScoreService implements ScoreService {
+
+    // Timeouts, in milliseconds
+    private static final int CONNECT_TIMEOUT = 500;
+    private static final int READ_TIMEOUT = 2000;
+
+    private final String baseUrl;
+
+    /**
+     * Thrown when the server refuses a request as invalid, so sending it
+     * again cannot succeed
+     */
+    public static class RejectedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        RejectedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * @param baseUrl The address of the server, like http://localhost:8787
+     */
+    public HttpScoreService(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    @Override
+    public void submit(String batchId, List<Result> results) throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (Result result : results) {
+            body.append(result.toLine()).append('\n');
+        }
+        HttpURLConnection connection = open("/submit?batch=" + encode(batchId));
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        readLines(connection);
+    }
+
+    @Override
+    public LeaderboardView query(int level, Leaderboard.Metric metric, int page, int pageSize, String name)
+            throws IOException {
+        List<String> lines = readLines(open("/view?level=" + level + "&metric=" + metric + "&page=" + page
+                + "&size=" + pageSize + "&name=" + encode(name)));
+        if (lines.isEmpty()) {
+            throw new IOException("Empty leaderboard response");
+        }
+
+        // rank;size; then the entries
+        List<String> header = GameFileManager.AnalyseLine(lines.get(0));
+        List<Leaderboard.Entry> entries = new ArrayList<>();
+        for (Result result : parse(lines.subList(1, lines.size()))) {
+            entries.add(new Leaderboard.Entry(result.name, result.level, result.time, result.score));
+        }
+        try {
+            return new LeaderboardView(level, metric, page, pageSize, entries, Integer.parseInt(header.get(0)),
+                    Integer.parseInt(header.get(1)));
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            throw new IOException("Malformed leaderboard response: " + lines.get(0), e);
+        }
+    }
+
+    @Override
+    public List<Result> playerResults(String name) throws IOException {
+        return parse(readLines(open("/player?name=" + encode(name))));
+    }
+
+    /**
+     * Opens a connection to an endpoint of the server
+     */
+    private HttpURLConnection open(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        return connection;
+    }
+
+    /**
+     * Reads the body of a successful response
+     *
+     * @throws RejectedException If the server refused the request; a timeout
+     *                           or too many requests are not refusals
+     * @throws IOException       If the server answered with another error
+     */
+    private static List<String> readLines(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        if (status / 100 != 2) {
+            String message = "Leaderboard server answered " + status + " " + connection.getResponseMessage();
+            connection.disconnect();
+            if (status / 100 == 4 && status != HttpURLConnection.HTTP_CLIENT_TIMEOUT && status != 429) {
+                throw new RejectedException(message);
+            }
+            throw new IOException(message);
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * @throws IOException If a line is not a result
+     */
+    private static List<Result> parse(List<String> lines) throws IOException {
+        List<Result> results = new ArrayList<>();
+        for (String line : lines) {
+            Result result = Result.parse(line);
+            if (result == null) {
+                throw new IOException("Malformed result: " + line);
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    private static String encode(String value) throws IOException {
+        return value == null ? "" : URLEncoder.encode(value, "UTF-8");
+    }
+}
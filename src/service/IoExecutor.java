@@ -0,0 +1,148 @@
+package service;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * IoExecutor writes saved games and results on a background thread, so
+ * clicking save or leaving a level never waits for the disk.
+ *
+ * The caller captures what to write on the game thread, as an immutable
+ * value, and submits a task that only encodes and writes it. Tasks run one at
+ * a time in submission order, so writes to the same file never interleave.
+ * When a task finishes, a short status message is published for the game
+ * view to show and the view is asked to repaint, on the event thread.
+ *
+ * Writes still queued when the game exits are given a moment to finish.
+ */
+public class IoExecutor {
+
+    // How long a status message stays on screen, in milliseconds
+    public static final long STATUS_DURATION = 2500;
+
+    // Longest wait for queued writes when the game exits, in milliseconds
+    private static final long SHUTDOWN_WAIT = 2000;
+
+    /**
+     * A write to perform in the background
+     */
+    public interface IoTask {
+        void run() throws IOException;
+    }
+
+    // Worker thread, a daemon so it never keeps the game running
+    private static final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "io-executor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            worker.shutdown();
+            try {
+                worker.awaitTermination(SHUTDOWN_WAIT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // Exit anyway
+            }
+        }, "io-executor-shutdown"));
+    }
+
+    // Latest status message and when it was published
+    private static volatile String status = null;
+    private static volatile long statusTime = 0;
+
+    // Called on the event thread when the status changes, may be null
+    private static volatile Runnable statusListener = null;
+
+    /**
+     * Queues a write
+     *
+     * @param success Status message shown when the write succeeds, or null
+     *                to show nothing
+     * @param failure Status message shown, and logged, when the write fails
+     * @param task    The write
+     */
+    public static void submit(String success, String failure, IoTask task) {
+        worker.execute(() -> {
+            try {
+                task.run();
+                if (success != null) {
+                    report(success);
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println(failure);
+                e.printStackTrace();
+                report(failure);
+            }
+        });
+    }
+
+    /**
+     * Waits for every queued write to finish, for tools and tests
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public static void flush() throws InterruptedException {
+        try {
+            worker.submit(() -> {
+            }).get();
+        } catch (ExecutionException e) {
+            // The empty task cannot fail
+        }
+    }
+
+    /**
+     * @return The latest status message, or null if there is none to show
+     */
+    public static String getStatus() {
+        String current = status;
+        return current != null && System.currentTimeMillis() - statusTime < STATUS_DURATION ? current : null;
+    }
+
+    /**
+     * Sets the action run on the event thread when a status is published,
+     * typically repainting the view
+     *
+     * @param listener The action, or null
+     */
+    public static void setStatusListener(Runnable listener) {
+        statusListener = listener;
+    }
+
+    /**
+     * Asks the view to repaint, on the event thread, without a status
+     * message; for tasks that fetched something to show
+     */
+    public static void repaint() {
+        Runnable listener = statusListener;
+        if (listener != null) {
+            SwingUtilities.invokeLater(listener);
+        }
+    }
+
+    /**
+     * Publishes a status message
+     *
+     * @param message The message
+     */
+    private static void report(String message) {
+        statusTime = System.currentTimeMillis();
+        status = message;
+        Runnable listener = statusListener;
+        if (listener != null) {
+            SwingUtilities.invokeLater(listener);
+
+            // Again once the message has expired, to clear it
+            Timer timer = new Timer((int) STATUS_DURATION, event -> listener.run());
+            timer.setRepeats(false);
+            timer.start();
+        }
+    }
+}
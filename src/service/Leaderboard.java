@@ -0,0 +1,173 @@
+package service;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import service.PlayerProgressTracker.LevelData;
+
+/**
+ * Leaderboard ranks the players by their best result for one metric, on one
+ * level or across all of them. Each player appears once, with the result
+ * that ranks them highest.
+ *
+ * The ranking is a RankedIndex, so recording a result, reading a page and
+ * finding a player's rank take O(log n) whatever the number of players.
+ * Players with equal results keep the order they first appeared in.
+ */
+public class Leaderboard {
+
+    /**
+     * What a leaderboard ranks by
+     */
+    public enum Metric {
+        // Highest score first
+        SCORE("Score", Comparator.comparingInt((LevelData dt) -> -dt.score)),
+        // Fastest time first
+        TIME("Time", Comparator.comparingInt((LevelData dt) -> dt.time)),
+        // Highest combined score first, see LevelData.calculateScoreTotal
+        TOTAL("Total", Comparator.comparingInt((LevelData dt) -> -dt.calculateScoreTotal()));
+
+        private final String label;
+        private final Comparator<LevelData> order;
+
+        Metric(String label, Comparator<LevelData> order) {
+            this.label = label;
+            this.order = order;
+        }
+
+        /**
+         * @return The name of the metric, for display
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * @return The next metric, wrapping around
+         */
+        public Metric next() {
+            return values()[(ordinal() + 1) % values().length];
+        }
+    }
+
+    /**
+     * A player and the result they are ranked by
+     */
+    public static class Entry {
+        public final String name;
+        public final int level;
+        public final int time;
+        public final int score;
+        final PlayerProgressTracker player;
+        final LevelData result;
+
+        Entry(PlayerProgressTracker player, LevelData result) {
+            this.player = player;
+            this.result = result;
+            name = player.nameUser;
+            level = result.num;
+            time = result.time;
+            score = result.score;
+        }
+
+        /**
+         * Creates an entry received from a LeaderboardServer, which cannot be
+         * ranked again
+         */
+        Entry(String name, int level, int time, int score) {
+            this.player = null;
+            this.result = null;
+            this.name = name;
+            this.level = level;
+            this.time = time;
+            this.score = score;
+        }
+    }
+
+    private final Metric metric;
+    private final RankedIndex<Entry> ranking;
+
+    // Entry of each player
+    private final Map<PlayerProgressTracker, Entry> entries = new HashMap<>();
+
+    /**
+     * Creates an empty leaderboard
+     *
+     * @param metric What it ranks by
+     */
+    public Leaderboard(Metric metric) {
+        this.metric = metric;
+        Comparator<Entry> byResult = (a, b) -> metric.order.compare(a.result, b.result);
+        ranking = new RankedIndex<>(byResult.thenComparingInt(entry -> entry.player.rankOrder));
+    }
+
+    /**
+     * @return What the leaderboard ranks by
+     */
+    public Metric getMetric() {
+        return metric;
+    }
+
+    /**
+     * Ranks a player by a result if it is better than their current one
+     *
+     * @param player The player
+     * @param result One of their results
+     * @return True if the player's entry changed
+     */
+    public boolean offer(PlayerProgressTracker player, LevelData result) {
+        Entry current = entries.get(player);
+        if (current != null) {
+            if (metric.order.compare(result, current.result) >= 0) {
+                return false;
+            }
+            ranking.remove(current);
+        }
+        Entry entry = new Entry(player, result);
+        entries.put(player, entry);
+        ranking.add(entry);
+        return true;
+    }
+
+    /**
+     * @param page     The page number, from 0
+     * @param pageSize The number of entries per page
+     * @return The entries of the page, best first; empty past the last page
+     */
+    public List<Entry> page(int page, int pageSize) {
+        return ranking.range(page * pageSize, pageSize);
+    }
+
+    /**
+     * @param pageSize The number of entries per page
+     * @return The number of pages, at least 1
+     */
+    public int pageCount(int pageSize) {
+        return Math.max(1, (ranking.size() + pageSize - 1) / pageSize);
+    }
+
+    /**
+     * @param player A player
+     * @return Their rank from 0, or -1 if they have no result here
+     */
+    public int rankOf(PlayerProgressTracker player) {
+        Entry entry = entries.get(player);
+        return entry == null ? -1 : ranking.rankOf(entry);
+    }
+
+    /**
+     * @return The entry ranked first, or null if the leaderboard is empty
+     */
+    public Entry first() {
+        return ranking.first();
+    }
+
+    /**
+     * @return The number of players ranked
+     */
+    public int size() {
+        return ranking.size();
+    }
+}
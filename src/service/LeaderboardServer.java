@@ -0,0 +1,414 @@
+package service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * LeaderboardServer serves a LeaderboardStore over HTTP on the loopback
+ * interface, so several copies of the game can share one leaderboard without
+ * each reading the score log. Start it with
+ *
+ * java -cp out service.LeaderboardServer [port] [directory]
+ *
+ * and the games with -Dplatformer.leaderboardService=http://localhost:port.
+ *
+ * Endpoints, all answering name;level;time;score; lines:
+ * - POST /submit?batch= takes results, one per line. They are queued for
+ * writing, and the server answers once they are written and ranked. When the
+ * queue is full, the write fails or takes longer than WRITE_WAIT it answers
+ * 503, and the game sends them again, under the same batch id, with its next
+ * results. A batch id seen recently is not written twice.
+ * - GET /view?level=&metric=&page=&size=&name= answers rank;size; then the
+ * entries of the page
+ * - GET /player?name= answers the best results of a player
+ * - GET /metrics answers the latency of each endpoint, the time results wait
+ * in the queue and the time taken to write them, as Histogram summaries
+ *
+ * A single writer thread takes the queued submissions and writes everything
+ * waiting, up to MAX_BATCH results, in one ScoreLog append: one lock and one
+ * pass over the index however many games are submitting. Results are ranked
+ * only once written, so a failed write leaves nothing in memory that the
+ * game's retry would add a second time. The log is compacted after the
+ * submissions are answered, so a rewrite of the whole log never delays one.
+ */
+public class LeaderboardServer {
+
+    public static final int DEFAULT_PORT = 8787;
+
+    // Submissions waiting to be written, beyond which submitting fails
+    private static final int QUEUE_CAPACITY = 256;
+
+    // Most results written in one append
+    private static final int MAX_BATCH = 1024;
+
+    // Threads answering requests
+    private static final int HANDLER_THREADS = 4;
+
+    // Longest a submission waits to be written before the server answers
+    // 503, in milliseconds; below the game's read timeout, and short enough
+    // that waiting submissions do not hold every handler thread for long
+    private static final long WRITE_WAIT = 1000;
+
+    // Batch ids remembered to recognize a batch sent again
+    private static final int RECENT_BATCHES = 4096;
+
+    // Largest page a client may ask for
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Results received in one request, and when
+     */
+    private static class Submission {
+        final List<ScoreService.Result> results;
+        final long receivedNanos = System.nanoTime();
+
+        // Completed once the results are written and ranked, exceptionally
+        // if they could not be written
+        final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        Submission(List<ScoreService.Result> results) {
+            this.results = results;
+        }
+    }
+
+    private final LeaderboardStore store;
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final BlockingQueue<Submission> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    // Latest submissions by batch id, oldest first
+    private final Map<String, Submission> recentBatches = new LinkedHashMap<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Metrics
+    private final Histogram submitLatency = new Histogram();
+    private final Histogram viewLatency = new Histogram();
+    private final Histogram playerLatency = new Histogram();
+    private final Histogram queueWait = new Histogram();
+    private final Histogram writeTime = new Histogram();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Starts serving a store, which must be loaded
+     *
+     * @param store The store
+     * @param port  The port to listen on, or 0 for any free port
+     * @throws IOException If the port cannot be bound
+     */
+    public LeaderboardServer(LeaderboardStore store, int port) throws IOException {
+        this.store = store;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        handlers = Executors.newFixedThreadPool(HANDLER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "leaderboard-handler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(handlers);
+        server.createContext("/submit", exchange -> handle(exchange, submitLatency, this::submit));
+        server.createContext("/view", exchange -> handle(exchange, viewLatency, this::view));
+        server.createContext("/player", exchange -> handle(exchange, playerLatency, this::player));
+        server.createContext("/metrics", exchange -> handle(exchange, null, this::metrics));
+
+        writer = new Thread(this::writeQueued, "leaderboard-writer");
+        writer.start();
+        server.start();
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops answering requests, then writes what is still queued
+     *
+     * @throws InterruptedException If interrupted while waiting for the
+     *                              writes
+     */
+    public void stop() throws InterruptedException {
+        server.stop(0);
+        handlers.shutdown();
+        handlers.awaitTermination(1, TimeUnit.SECONDS);
+        running = false;
+        writer.join();
+    }
+
+    /**
+     * Answers one request of an endpoint
+     */
+    private interface Endpoint {
+        String answer(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * Thrown to answer a request with an error status
+     */
+    private static class RequestException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange exchange, Histogram latency, Endpoint endpoint) throws IOException {
+        long start = System.nanoTime();
+        int status = 200;
+        String body;
+        try {
+            body = endpoint.answer(exchange);
+        } catch (RequestException e) {
+            status = e.status;
+            body = e.getMessage() + "\n";
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Leaderboard request failed: " + exchange.getRequestURI());
+            e.printStackTrace();
+            status = 500;
+            body = "Internal error\n";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        if (latency != null) {
+            latency.recordSince(start);
+        }
+    }
+
+    private String submit(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            throw new RequestException(405, "POST results to /submit");
+        }
+        List<ScoreService.Result> results = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                ScoreService.Result result = ScoreService.Result.parse(line);
+                if (result == null) {
+                    throw new RequestException(400, "Malformed result: " + line);
+                }
+                results.add(result);
+            }
+        }
+        Submission submission = queue(parseQuery(exchange).get("batch"), results);
+        try {
+            submission.written.get(WRITE_WAIT, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new RequestException(503, "Failed to write the results");
+        } catch (TimeoutException e) {
+            throw new RequestException(503, "Results not written yet");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RequestException(503, "Interrupted before the results were written");
+        }
+        return "";
+    }
+
+    /**
+     * Queues results for writing, unless they are a batch sent again whose
+     * first submission is written or waiting
+     *
+     * @param batchId The batch id, or null if the client sent none
+     * @return The submission whose completion answers the request
+     * @throws RequestException If the queue is full
+     */
+    private Submission queue(String batchId, List<ScoreService.Result> results) throws RequestException {
+        synchronized (recentBatches) {
+            Submission earlier = batchId == null ? null : recentBatches.get(batchId);
+            if (earlier != null && !earlier.written.isCompletedExceptionally()) {
+                return earlier;
+            }
+            Submission submission = new Submission(results);
+            if (!queue.offer(submission)) {
+                rejected.incrementAndGet();
+                throw new RequestException(503, "Too many results waiting to be written");
+            }
+            if (batchId != null) {
+                recentBatches.put(batchId, submission);
+                if (recentBatches.size() > RECENT_BATCHES) {
+                    Iterator<Submission> oldest = recentBatches.values().iterator();
+                    oldest.next();
+                    oldest.remove();
+                }
+            }
+            return submission;
+        }
+    }
+
+    private String view(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange);
+        LeaderboardView view;
+        try {
+            int pageSize = Math.min(MAX_PAGE_SIZE, Math.max(1, Integer.parseInt(query.get("size"))));
+            view = store.query(Integer.parseInt(query.get("level")), Leaderboard.Metric.valueOf(query.get("metric")),
+                    Math.max(0, Integer.parseInt(query.get("page"))), pageSize, query.get("name"));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new RequestException(400, "Expected level, metric, page, size and name");
+        }
+        StringBuilder body = new StringBuilder();
+        body.append(view.rank).append(';').append(view.size).append(";\n");
+        for (Leaderboard.Entry entry : view.entries) {
+            body.append(new ScoreService.Result(entry.name, entry.level, entry.time, entry.score).toLine())
+                    .append('\n');
+        }
+        return body.toString();
+    }
+
+    private String player(HttpExchange exchange) throws IOException {
+        String name = parseQuery(exchange).get("name");
+        if (name == null) {
+            throw new RequestException(400, "Expected name");
+        }
+        StringBuilder body = new StringBuilder();
+        for (ScoreService.Result result : store.playerResults(name)) {
+            body.append(result.toLine()).append('\n');
+        }
+        return body.toString();
+    }
+
+    private String metrics(HttpExchange exchange) {
+        return "submit " + submitLatency.summary() + "\n"
+                + "view " + viewLatency.summary() + "\n"
+                + "player " + playerLatency.summary() + "\n"
+                + "queue-wait " + queueWait.summary() + "\n"
+                + "write " + writeTime.summary() + "\n"
+                + "queued=" + queue.size() + " batches=" + batches.get() + " written=" + written.get()
+                + " rejected=" + rejected.get() + "\n";
+    }
+
+    /**
+     * Body of the writer thread: writes the queued submissions in batches,
+     * then ranks them and completes them, until the server stops and the
+     * queue is empty
+     */
+    private void writeQueued() {
+        List<Submission> taken = new ArrayList<>();
+        List<ScoreService.Result> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            Submission submission;
+            try {
+                submission = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (submission == null) {
+                continue;
+            }
+
+            // Everything waiting, up to MAX_BATCH results
+            taken.clear();
+            batch.clear();
+            do {
+                queueWait.recordSince(submission.receivedNanos);
+                taken.add(submission);
+                batch.addAll(submission.results);
+            } while (batch.size() < MAX_BATCH && (submission = queue.poll()) != null);
+
+            long start = System.nanoTime();
+            try {
+                store.persist(batch);
+                batches.incrementAndGet();
+                written.addAndGet(batch.size());
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Failed to write " + batch.size() + " results to " + ScoreLog.LOG_FILE);
+                e.printStackTrace();
+                // The games send them again
+                for (Submission failed : taken) {
+                    failed.written.completeExceptionally(e);
+                }
+                continue;
+            } finally {
+                writeTime.recordSince(start);
+            }
+            for (ScoreService.Result result : batch) {
+                store.record(result.name, result.level, result.time, result.score);
+            }
+            for (Submission done : taken) {
+                done.written.complete(null);
+            }
+
+            try {
+                store.compactIfNeeded();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Failed to compact " + ScoreLog.LOG_FILE);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static Map<String, String> parseQuery(HttpExchange exchange) throws IOException {
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+                        URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Serves the score log of a directory until the process is stopped
+     *
+     * @param args The port, DEFAULT_PORT if omitted, and the directory of the
+     *             score log, the working directory if omitted
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        LeaderboardStore store = new LeaderboardStore(new ScoreLog(Paths.get(args.length > 1 ? args[1] : "")));
+        store.load();
+        LeaderboardServer server = new LeaderboardServer(store, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.stop();
+            } catch (InterruptedException e) {
+                // Exit anyway
+            }
+        }, "leaderboard-shutdown"));
+        System.out.println("Leaderboard server on http://localhost:" + server.getPort());
+    }
+}
@@ -0,0 +1,220 @@
+package service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import service.PlayerProgressTracker.LevelData;
+
+/**
+ * LeaderboardStore holds every player's results in memory, ranked on a
+ * Leaderboard per level and metric, over a ScoreLog that persists them.
+ *
+ * It is the in-process ScoreService the game uses by default, and the store
+ * a LeaderboardServer serves. Recording a result in memory and persisting
+ * it are separate steps, so the game can update the screen at once and
+ * write on the IoExecutor; submit() does both.
+ *
+ * The in-memory methods are synchronized, for the server's threads.
+ */
+public class LeaderboardStore implements ScoreService {
+
+    // Level number of the leaderboards across all levels
+    public static final int ALL_LEVELS = Integer.MIN_VALUE;
+
+    private final ScoreLog scoreLog;
+
+    // Maps player names to their progress data
+    private final Map<String, PlayerProgressTracker> players = new HashMap<>();
+
+    // Leaderboards by level, then by metric
+    private final Map<Integer, EnumMap<Leaderboard.Metric, Leaderboard>> leaderboards = new HashMap<>();
+
+    /**
+     * Creates an empty store; load() reads the log
+     *
+     * @param scoreLog Where the results are persisted
+     */
+    public LeaderboardStore(ScoreLog scoreLog) {
+        this.scoreLog = scoreLog;
+    }
+
+    /**
+     * @return The players by name; the map is the store's own, updated as
+     *         results are recorded
+     */
+    public Map<String, PlayerProgressTracker> getPlayers() {
+        return players;
+    }
+
+    /**
+     * Loads the results kept in the score log, replacing those in memory
+     */
+    public synchronized void load() {
+        players.clear();
+        leaderboards.clear();
+        try {
+            scoreLog.load(new ScoreLog.ResultConsumer() {
+                @Override
+                public void accept(String name, int level, int time, int score) {
+                    record(name, level, time, score);
+                }
+
+                @Override
+                public void acceptTotals(String name, int level, int count, long totalTime) {
+                    // Only the best results were recorded; count the others too
+                    PlayerProgressTracker playerData = players.get(name);
+                    if (playerData != null) {
+                        playerData.setLevelTotals(level, count, totalTime);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Failed to load the scoreboard from " + ScoreLog.LOG_FILE);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads the results other processes appended to the score log since it
+     * was last read, without recording them, so they can be recorded on
+     * another thread
+     *
+     * @param appended Receives the results, in the order they were appended
+     * @return False if the log was compacted meanwhile and must be loaded
+     *         again
+     * @throws IOException If the log cannot be read
+     */
+    public boolean readAppended(List<Result> appended) throws IOException {
+        return scoreLog.refresh(
+                (name, level, time, score) -> appended.add(new Result(name, level, time, score)));
+    }
+
+    /**
+     * Replaces the results in memory with those of another store, typically
+     * one loaded in the background over the same score log
+     *
+     * @param loaded The other store, no longer used afterwards
+     */
+    public synchronized void replaceWith(LeaderboardStore loaded) {
+        synchronized (loaded) {
+            players.clear();
+            players.putAll(loaded.players);
+            leaderboards.clear();
+            leaderboards.putAll(loaded.leaderboards);
+        }
+    }
+
+    /**
+     * Adds a result to the player's record and to the leaderboards, in
+     * memory only
+     *
+     * @param playerName     The player's name
+     * @param levelNumber    The level number
+     * @param completionTime The time taken, in seconds
+     * @param playerScore    The score achieved
+     * @return The player's record
+     */
+    public synchronized PlayerProgressTracker record(String playerName, int levelNumber, int completionTime,
+            int playerScore) {
+        PlayerProgressTracker playerData = players.get(playerName);
+        if (playerData == null) {
+            playerData = new PlayerProgressTracker();
+            playerData.nameUser = playerName;
+            // The order players are added in breaks ties on every leaderboard
+            playerData.rankOrder = players.size();
+            players.put(playerName, playerData);
+        }
+        LevelData result = playerData.appendData(levelNumber, completionTime, playerScore);
+        for (Leaderboard.Metric metric : Leaderboard.Metric.values()) {
+            getLeaderboard(levelNumber, metric).offer(playerData, result);
+            getLeaderboard(ALL_LEVELS, metric).offer(playerData, result);
+        }
+        return playerData;
+    }
+
+    /**
+     * Appends results to the score log
+     *
+     * @param results The results
+     * @throws IOException If the log cannot be written
+     */
+    public void persist(List<Result> results) throws IOException {
+        scoreLog.appendAll(results);
+    }
+
+    /**
+     * Compacts the score log when superseded results have piled up. Kept
+     * apart from persist() because it rewrites the whole log, so callers can
+     * run it once the results are safely appended.
+     *
+     * @throws IOException If the log cannot be written
+     */
+    public void compactIfNeeded() throws IOException {
+        if (scoreLog.needsCompaction()) {
+            scoreLog.compact();
+        }
+    }
+
+    /**
+     * Records and persists results. In this process no answer is lost, so
+     * the batch id is not needed.
+     */
+    @Override
+    public void submit(String batchId, List<Result> results) throws IOException {
+        for (Result result : results) {
+            record(result.name, result.level, result.time, result.score);
+        }
+        persist(results);
+        compactIfNeeded();
+    }
+
+    /**
+     * @param levelNumber A level number, or ALL_LEVELS
+     * @param metric      What to rank by
+     * @return The leaderboard of this level and metric, empty if nobody
+     *         finished the level
+     */
+    public synchronized Leaderboard getLeaderboard(int levelNumber, Leaderboard.Metric metric) {
+        return leaderboards.computeIfAbsent(levelNumber, key -> new EnumMap<>(Leaderboard.Metric.class))
+                .computeIfAbsent(metric, Leaderboard::new);
+    }
+
+    /**
+     * Finds where a player ranks on a leaderboard
+     *
+     * @param levelNumber A level number, or ALL_LEVELS
+     * @param metric      What to rank by
+     * @param playerName  The player's name
+     * @return The player's rank from 1, or 0 if they have no result there
+     */
+    public synchronized int getRank(int levelNumber, Leaderboard.Metric metric, String playerName) {
+        PlayerProgressTracker playerData = players.get(playerName);
+        return playerData == null ? 0 : getLeaderboard(levelNumber, metric).rankOf(playerData) + 1;
+    }
+
+    @Override
+    public synchronized LeaderboardView query(int level, Leaderboard.Metric metric, int page, int pageSize,
+            String name) {
+        Leaderboard leaderboard = getLeaderboard(level, metric);
+        return new LeaderboardView(level, metric, page, pageSize, leaderboard.page(page, pageSize),
+                getRank(level, metric, name), leaderboard.size());
+    }
+
+    @Override
+    public synchronized List<Result> playerResults(String name) {
+        List<Result> results = new ArrayList<>();
+        PlayerProgressTracker playerData = players.get(name);
+        if (playerData != null) {
+            for (PlayerProgressTracker.LevelStats stats : playerData.allLevelStats()) {
+                for (LevelData dt : stats.bestResults()) {
+                    results.add(new Result(name, dt.num, dt.time, dt.score));
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,51 @@
+package service;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * LeaderboardView is one page of a leaderboard as it stood when it was
+ * queried, with the rank of the player who asked. It does not change, so it
+ * can be kept and drawn while the leaderboard moves on.
+ */
+public class LeaderboardView {
+
+    public final int level;
+    public final Leaderboard.Metric metric;
+    public final int page;
+    public final int pageSize;
+
+    // Entries of the page, best first
+    public final List<Leaderboard.Entry> entries;
+
+    // Rank of the player from 1, or 0 if they are not ranked
+    public final int rank;
+
+    // Number of players ranked
+    public final int size;
+
+    public LeaderboardView(int level, Leaderboard.Metric metric, int page, int pageSize,
+            List<Leaderboard.Entry> entries, int rank, int size) {
+        this.level = level;
+        this.metric = metric;
+        this.page = page;
+        this.pageSize = pageSize;
+        this.entries = Collections.unmodifiableList(entries);
+        this.rank = rank;
+        this.size = size;
+    }
+
+    /**
+     * @return The number of pages, at least 1
+     */
+    public int getPageCount() {
+        return Math.max(1, (size + pageSize - 1) / pageSize);
+    }
+
+    /**
+     * @return True if this is the page of this level and metric
+     */
+    public boolean isOf(int level, Leaderboard.Metric metric, int page) {
+        return this.level == level && this.metric == metric && this.page == page;
+    }
+}
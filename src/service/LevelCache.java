@@ -0,0 +1,124 @@
+package service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * LevelCache compiles level text files into a binary form so that a level is
+ * only parsed the first time it is loaded.
+ *
+ * Compiled levels are stored in CACHE_DIRECTORY under a key of the text
+ * file's path and the SHA-256 hash of its content, so editing a level
+ * automatically produces a new cache entry and stale entries are never used.
+ * Writing an entry deletes the earlier entries of the same file, so the
+ * directory holds one entry per level however often levels are edited. Cache files use BinaryLevelFormat, carrying
+ * the source hash in their header, so later loads are a memory-mapped table
+ * walk.
+ *
+ * A cache file that is truncated, corrupted or written by another version is
+ * ignored and rebuilt from the text file. Cache files are written to a
+ * temporary file first and then moved into place, so a crash never leaves a
+ * half-written entry behind.
+ */
+public class LevelCache {
+
+    // Directory holding the compiled levels
+    public static final String CACHE_DIRECTORY = "cache/levels";
+
+    // Bytes of the path hash naming the entries of a level file
+    private static final int PATH_KEY_LENGTH = 8;
+
+    /**
+     * Loads the elements of a level file, from the cache when possible
+     *
+     * @param filePath The path of the level text file
+     * @return The elements of the level, in file order
+     * @throws IOException If the level file cannot be read
+     */
+    public static List<LevelElement> load(String filePath) throws IOException {
+        byte[] source = Files.readAllBytes(Paths.get(filePath));
+        byte[] hash = sha256(source);
+        String pathKey = toHex(Arrays.copyOf(sha256(Paths.get(filePath).toAbsolutePath().normalize().toString()
+                .getBytes(StandardCharsets.UTF_8)), PATH_KEY_LENGTH));
+        Path cacheFile = Paths.get(CACHE_DIRECTORY, pathKey + "-" + toHex(hash) + BinaryLevelFormat.EXTENSION);
+
+        if (Files.exists(cacheFile)) {
+            try {
+                return BinaryLevelFormat.read(cacheFile, hash);
+            } catch (IOException e) {
+                System.err.println("Ignoring invalid level cache " + cacheFile + ": " + e.getMessage());
+            }
+        }
+
+        List<LevelElement> elements;
+        try (LevelTokenizer tokenizer = new LevelTokenizer(filePath,
+                Channels.newChannel(new ByteArrayInputStream(source)))) {
+            elements = tokenizer.readAll();
+        }
+        try {
+            BinaryLevelFormat.write(cacheFile, hash, elements);
+            deleteOtherEntries(cacheFile, pathKey);
+        } catch (IOException e) {
+            System.err.println("Failed to write level cache " + cacheFile);
+            e.printStackTrace();
+        }
+        return elements;
+    }
+
+    /**
+     * Deletes the entries of a level file other than the current one
+     *
+     * @param cacheFile The current entry
+     * @param pathKey   The key of the level file's path
+     * @throws IOException If the cache directory cannot be listed
+     */
+    private static void deleteOtherEntries(Path cacheFile, String pathKey) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(cacheFile.getParent(),
+                pathKey + "-*" + BinaryLevelFormat.EXTENSION)) {
+            for (Path entry : entries) {
+                if (!entry.equals(cacheFile)) {
+                    Files.deleteIfExists(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the SHA-256 hash of some content
+     *
+     * @param content The bytes to hash
+     * @return The 32 byte hash
+     */
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Formats bytes as lowercase hexadecimal
+     *
+     * @param bytes The bytes to format
+     * @return The hexadecimal text
+     */
+    private static String toHex(byte[] bytes) {
+        StringBuilder text = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            text.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return text.toString();
+    }
+}
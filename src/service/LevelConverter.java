@@ -0,0 +1,70 @@
+package service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * LevelConverter converts ';'-delimited text levels into the binary level
+ * format.
+ *
+ * Usage: java service.LevelConverter input.txt [output.plvl]
+ *
+ * When no output is given, the output file is the input file with its
+ * extension replaced by BinaryLevelFormat.EXTENSION. Invalid lines are
+ * reported with their line number and left out of the output.
+ */
+public class LevelConverter {
+
+    /**
+     * Converts one level file
+     *
+     * @param args The input file and an optional output file
+     */
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: java service.LevelConverter input.txt [output" + BinaryLevelFormat.EXTENSION
+                    + "]");
+            System.exit(2);
+        }
+        String input = args[0];
+        String output = args.length > 1 ? args[1] : defaultOutput(input);
+        try {
+            convert(input, Paths.get(output));
+        } catch (IOException e) {
+            System.err.println("Failed to convert " + input);
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Converts a text level into a binary level
+     *
+     * @param input  The text level file
+     * @param output The binary level file to write
+     * @return The number of elements written
+     * @throws IOException If the input cannot be read or the output cannot be
+     *                     written
+     */
+    public static int convert(String input, Path output) throws IOException {
+        List<LevelElement> elements = LevelTokenizer.readAll(input);
+        BinaryLevelFormat.write(output, null, elements);
+        System.out.println("Wrote " + elements.size() + " elements to " + output);
+        return elements.size();
+    }
+
+    /**
+     * Builds the default output name for an input file
+     *
+     * @param input The text level file
+     * @return The input path with the binary level extension
+     */
+    private static String defaultOutput(String input) {
+        int dot = input.lastIndexOf('.');
+        int separator = Math.max(input.lastIndexOf('/'), input.lastIndexOf('\\'));
+        String base = dot > separator ? input.substring(0, dot) : input;
+        return base + BinaryLevelFormat.EXTENSION;
+    }
+}
@@ -0,0 +1,284 @@
+package service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import org.jbox2d.common.Vec2;
+
+/**
+ * LevelElement is one parsed entry of a level or saved game file.
+ *
+ * Every element has a type, a position and, depending on the type, a physical
+ * shape, an image and a list of extra numeric parameters. Elements are plain
+ * immutable data: they know nothing about the world they will be built into,
+ * which lets them be parsed, validated and cached before a level is loaded.
+ * Two elements are equal when every field is equal, so two versions of a
+ * level can be compared element by element.
+ *
+ * Text format (one element per line, every field followed by ';', lines
+ * starting with '#' are comments):
+ * - platform;image;x;y;halfWidth;halfHeight[;imageHeight]   (empty image = invisible)
+ * - prop;image;x;y;imageHeight   (decoration only, no collisions)
+ * - box;image;x;y;halfWidth;halfHeight[;gravityScale]
+ * - ball;image;x;y;radius
+ * - polygon;image;x;y;imageHeight;x1;y1;x2;y2;...
+ * - enemy;x;y[;image;imageHeight]
+ * - coin, slime, spikedenemy, pursuerenemy, turretenemy, armoredenemy,
+ * door, key, electricportal, sword, intermittentplatform: type;x;y
+ * - fallingplatform;x;y[;standingTimer]
+ * - movingplatform;x;y;horizontalDistance;verticalDistance
+ * - prefabs, expanded when the camera reaches them (see Prefabs):
+ * logrow;x;y;count;spacing[;standingTimer], coinrow;x;y;count;spacing,
+ * coinarc;x;y;count;radius, patrolgroup;x;y;count;spacing
+ * - upgrade (gives the player the upgraded sword)
+ * - length;value, startingPosition;x;y
+ * - level;number, score;value, time;seconds, camera;position,
+ * player;x;y;hasSword (saved games)
+ */
+public class LevelElement {
+
+    // Shape kinds
+    public static final int SHAPE_NONE = 0;
+    public static final int SHAPE_BOX = 1;
+    public static final int SHAPE_CIRCLE = 2;
+    public static final int SHAPE_POLYGON = 3;
+
+    private static final float[] NO_VALUES = new float[0];
+
+    // Element type, as written in the first field
+    public final String type;
+
+    // Position of the element in the world
+    public final float x;
+    public final float y;
+
+    // Physical shape: box half extents, circle radius or polygon vertices
+    public final int shapeKind;
+    public final float[] shapeParams;
+
+    // Image drawn on the body, null if the body is invisible
+    public final String imagePath;
+    public final float imageHeight;
+
+    // Type-specific extra values
+    public final float[] params;
+
+    /**
+     * Creates a level element
+     *
+     * @param type        The element type
+     * @param x           The x position
+     * @param y           The y position
+     * @param shapeKind   One of the SHAPE_ constants
+     * @param shapeParams The shape dimensions
+     * @param imagePath   The image file, or null for none
+     * @param imageHeight The height of the image in world units
+     * @param params      The type-specific extra values
+     */
+    public LevelElement(String type, float x, float y, int shapeKind, float[] shapeParams, String imagePath,
+            float imageHeight, float[] params) {
+        this.type = type;
+        this.x = x;
+        this.y = y;
+        this.shapeKind = shapeKind;
+        this.shapeParams = shapeParams;
+        this.imagePath = imagePath;
+        this.imageHeight = imageHeight;
+        this.params = params;
+    }
+
+    /**
+     * Builds an element from the separated fields of one text line
+     *
+     * @param fields The fields of the line, the first one being the type
+     * @return The parsed element
+     * @throws IllegalArgumentException If the type is unknown or a field is
+     *                                  missing or not a number
+     */
+    public static LevelElement fromFields(List<String> fields) {
+        return fromFields(LevelFields.of(fields));
+    }
+
+    /**
+     * Builds an element from the fields of one text line
+     *
+     * @param fields The fields of the line, the first one being the type
+     * @return The parsed element
+     * @throws IllegalArgumentException If the type is unknown or a field is
+     *                                  missing or not a number
+     */
+    public static LevelElement fromFields(LevelFields fields) {
+        if (fields.size() == 0) {
+            throw new IllegalArgumentException("empty element");
+        }
+        String type = fields.text(0);
+        try {
+            switch (type) {
+                case "platform":
+                case "box": {
+                    float halfHeight = fields.number(5);
+                    float[] box = { fields.number(4), halfHeight };
+                    boolean platform = type.equals("platform");
+                    String image = image(fields, 1);
+                    float imageHeight = platform && fields.size() > 6 ? fields.number(6) : 2 * halfHeight;
+                    float[] params = !platform && fields.size() > 6 ? new float[] { fields.number(6) } : NO_VALUES;
+                    return new LevelElement(type, fields.number(2), fields.number(3), SHAPE_BOX, box, image,
+                            image != null ? imageHeight : 0, params);
+                }
+                case "ball": {
+                    float radius = fields.number(4);
+                    String image = image(fields, 1);
+                    return new LevelElement(type, fields.number(2), fields.number(3), SHAPE_CIRCLE,
+                            new float[] { radius }, image, image != null ? 2 * radius : 0, NO_VALUES);
+                }
+                case "polygon": {
+                    int count = fields.size() - 5;
+                    if (count < 6 || count % 2 != 0) {
+                        throw new IllegalArgumentException("polygon needs at least three x;y vertices");
+                    }
+                    String image = image(fields, 1);
+                    return new LevelElement(type, fields.number(2), fields.number(3), SHAPE_POLYGON,
+                            numbers(fields, 5), image, image != null ? fields.number(4) : 0, NO_VALUES);
+                }
+                case "prop": {
+                    String image = image(fields, 1);
+                    if (image == null) {
+                        throw new IllegalArgumentException("prop needs an image");
+                    }
+                    return new LevelElement(type, fields.number(2), fields.number(3), SHAPE_NONE, NO_VALUES,
+                            image, fields.number(4), NO_VALUES);
+                }
+                case "enemy": {
+                    String image = fields.size() > 3 ? image(fields, 3) : null;
+                    float imageHeight = image != null ? fields.number(4) : 0;
+                    return new LevelElement(type, fields.number(1), fields.number(2), SHAPE_NONE, NO_VALUES,
+                            image, imageHeight, NO_VALUES);
+                }
+                case "coin":
+                case "slime":
+                case "spikedenemy":
+                case "pursuerenemy":
+                case "turretenemy":
+                case "armoredenemy":
+                case "door":
+                case "key":
+                case "electricportal":
+                case "sword":
+                case "intermittentplatform":
+                case "fallingplatform":
+                case "movingplatform":
+                case "startingPosition":
+                case "logrow":
+                case "coinrow":
+                case "coinarc":
+                case "patrolgroup":
+                    if (type.equals("movingplatform") && fields.size() < 5) {
+                        throw new IllegalArgumentException("movingplatform needs two distances");
+                    }
+                    if (Prefabs.isPrefab(type) && (fields.size() < 5 || fields.number(3) < 1)) {
+                        throw new IllegalArgumentException(type + " needs a count of at least 1 and a spacing");
+                    }
+                    return new LevelElement(type, fields.number(1), fields.number(2), SHAPE_NONE, NO_VALUES,
+                            null, 0, numbers(fields, 3));
+                case "player":
+                    return new LevelElement(type, fields.number(1), fields.number(2), SHAPE_NONE, NO_VALUES,
+                            null, 0, new float[] { Boolean.valueOf(fields.text(3)) ? 1 : 0 });
+                case "length":
+                case "level":
+                case "score":
+                case "time":
+                case "camera":
+                    return new LevelElement(type, 0, 0, SHAPE_NONE, NO_VALUES, null, 0,
+                            new float[] { fields.number(1) });
+                case "upgrade":
+                    return new LevelElement(type, 0, 0, SHAPE_NONE, NO_VALUES, null, 0, NO_VALUES);
+                default:
+                    throw new IllegalArgumentException("unknown element type '" + type + "'");
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("missing field for " + type);
+        }
+    }
+
+    /**
+     * Reads every numeric field from an index to the end of the line
+     *
+     * @param fields The fields of the line
+     * @param from   The index of the first field
+     * @return The values, possibly empty
+     */
+    private static float[] numbers(LevelFields fields, int from) {
+        if (fields.size() <= from) {
+            return NO_VALUES;
+        }
+        float[] values = new float[fields.size() - from];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = fields.number(from + i);
+        }
+        return values;
+    }
+
+    /**
+     * Reads an image field, an empty field meaning no image
+     *
+     * @param fields The fields of the line
+     * @param index  The index of the field
+     * @return The image path, or null
+     */
+    private static String image(LevelFields fields, int index) {
+        String path = fields.text(index);
+        return path.isEmpty() ? null : path;
+    }
+
+    /**
+     * Returns an extra parameter, or a default value when it was not given
+     *
+     * @param index        The index of the parameter
+     * @param defaultValue The value used when the parameter is missing
+     * @return The parameter value
+     */
+    public float param(int index, float defaultValue) {
+        return index < params.length ? params[index] : defaultValue;
+    }
+
+    /**
+     * Returns a copy of this element moved by an offset
+     *
+     * @param dx The horizontal offset
+     * @param dy The vertical offset
+     * @return The moved element
+     */
+    public LevelElement translate(float dx, float dy) {
+        return new LevelElement(type, x + dx, y + dy, shapeKind, shapeParams, imagePath, imageHeight, params);
+    }
+
+    /**
+     * @return The position of the element as a vector
+     */
+    public Vec2 position() {
+        return new Vec2(x, y);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof LevelElement)) {
+            return false;
+        }
+        LevelElement e = (LevelElement) other;
+        return type.equals(e.type) && Float.compare(x, e.x) == 0 && Float.compare(y, e.y) == 0
+                && shapeKind == e.shapeKind && Arrays.equals(shapeParams, e.shapeParams)
+                && Objects.equals(imagePath, e.imagePath) && Float.compare(imageHeight, e.imageHeight) == 0
+                && Arrays.equals(params, e.params);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Objects.hash(type, x, y, shapeKind, imagePath, imageHeight);
+        hash = 31 * hash + Arrays.hashCode(shapeParams);
+        return 31 * hash + Arrays.hashCode(params);
+    }
+}
@@ -0,0 +1,67 @@
+package service;
+
+import java.util.List;
+
+/**
+ * LevelFields gives access to the ';'-separated fields of one level file line.
+ *
+ * It lets LevelElement read a line either from a list of strings or directly
+ * from the buffer of a LevelTokenizer, without creating a string per field.
+ */
+public interface LevelFields {
+
+    /**
+     * @return The number of fields on the line
+     */
+    int size();
+
+    /**
+     * Returns a field as text
+     *
+     * @param index The index of the field
+     * @return The field
+     * @throws IndexOutOfBoundsException If the line has no such field
+     */
+    String text(int index);
+
+    /**
+     * Returns a field as a number
+     *
+     * @param index The index of the field
+     * @return The value of the field
+     * @throws IndexOutOfBoundsException If the line has no such field
+     * @throws IllegalArgumentException  If the field is not a number
+     */
+    float number(int index);
+
+    /**
+     * Wraps a list of already separated fields
+     *
+     * @param fields The fields
+     * @return The fields as LevelFields
+     */
+    static LevelFields of(List<String> fields) {
+        return new LevelFields() {
+            @Override
+            public int size() {
+                return fields.size();
+            }
+
+            @Override
+            public String text(int index) {
+                return fields.get(index);
+            }
+
+            @Override
+            public float number(int index) {
+                String field = fields.get(index);
+                try {
+                    return Float.parseFloat(field);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("field " + index + " of " + fields.get(0)
+                            + " is not a number: '" + field + "'");
+                }
+            }
+        };
+    }
+}
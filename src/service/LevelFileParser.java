@@ -1,22 +1,34 @@
 package service;
 
-import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import entity.ArmoredEnemy;
 import entity.BasicPatrolEnemy;
+import entity.PhysicsActor;
+import entity.PursuerEnemy;
+import entity.Slime;
+import entity.SpikedEnemy;
+import entity.TurretEnemy;
 import game.Level;
 import org.jbox2d.common.Vec2;
 
 import game.GameWorld;
 import object.Coin;
+import object.DelayedFallingPlatform;
+import object.Door;
+import object.ElectricPortal;
 import object.IntermittentPlatform;
-import city.cs.engine.BodyImage;
-import city.cs.engine.BoxShape;
+import object.InteractiveStaticObject;
+import object.Key;
+import object.RectangularPathPlatform;
+import object.SwordPowerup;
+import city.cs.engine.Body;
 import city.cs.engine.DynamicBody;
-import city.cs.engine.Shape;
 import city.cs.engine.StaticBody;
-import assets.GameFileManager;
 
 /**
  * LevelFileParser handles loading and parsing level data from text files.
@@ -28,116 +40,314 @@ import assets.GameFileManager;
  * - Constructing the appropriate game objects based on parsed data
  * - Restoring the game world state during load operations
  * 
- * The parser supports multiple element types including platforms, coins,
- * boxes, enemies, and special objects, each with their own set of parameters.
+ * The parser supports every element type used by the built-in levels:
+ * platforms and props, physics objects, all enemy types, doors, keys,
+ * portals, moving and falling platforms, and collectibles. The format of
+ * each type is documented on LevelElement.
+ *
+ * Level files are compiled once through LevelCache, so only the first load
+ * of a level parses text. Levels can also be shipped already converted to
+ * BinaryLevelFormat. Saved games are small and always parsed directly.
  */
 public class LevelFileParser {
     /**
      * Loads a level from a specified file path.
-     * Reads the file line by line, parsing each element and creating
-     * the corresponding game objects in the world.
+     * Binary levels are read directly. Text levels are read from the compiled
+     * level cache (compiling the file on first use). The corresponding game
+     * objects are created in the world in file order.
      * 
      * @param w The game world to load the level into
      * @param f The file path of the level file to load
      */
     public static void loadLevel(GameWorld w, String f) {
-        List<String> str = GameFileManager.ReadTextLevel(f);
-        for (String line : str) {
-            if (!line.equals("")) {
-                analyseElement(GameFileManager.AnalyseLine(line), w);
-            }
+        try {
+            buildLevel(readLevel(f), w);
+        } catch (IOException e) {
+            System.err.println("Failed to load level: " + f);
+            e.printStackTrace();
         }
     }
 
     /**
-     * Analyzes a list of parameters and creates the corresponding game elements.
-     * This method interprets different types of game elements based on the first
-     * parameter:
-     * - "platform": Static platforms with customizable appearance
-     * - "coin": Collectible items that increase score
-     * - "box": Dynamic physics objects that can be pushed
-     * - "intermittentplatform": Platforms that appear and disappear periodically
-     * - "enemy": Enemy characters with patrol behavior
-     * - "length": Level boundary setting
-     * - "startingPosition": Player spawn location
-     * - "level": Level number setting (can trigger level loading)
-     * - "score": Player score setting for saved games
-     * - "time": Game timer setting for saved games
-     * - "player": Player position and state for saved games
-     * - "camera": Camera position for saved games
+     * Reads the elements of a level file without building anything, so it can
+     * run away from the game thread.
+     * 
+     * @param f The file path of the level file, text or binary
+     * @return The elements of the level, in file order
+     * @throws IOException If the file cannot be read
+     */
+    public static List<LevelElement> readLevel(String f) throws IOException {
+        return f.endsWith(BinaryLevelFormat.EXTENSION) ? BinaryLevelFormat.read(Paths.get(f)) : LevelCache.load(f);
+    }
+
+    /**
+     * Loads a saved game from a specified file path.
+     * The world is built directly from the saved state in one pass (see
+     * LevelLoader and GameWorld.commitLevel) instead of replaying the file
+     * line by line.
+     * 
+     * @param w The game world to load the saved game into
+     * @param f The file path of the saved game
+     */
+    public static void loadSavedGame(GameWorld w, String f) {
+        w.loadSavedGame(f);
+    }
+
+    /**
+     * Analyzes a list of parameters and creates the corresponding game element.
      * 
      * @param params A list of parameters, with the first parameter indicating the
      *               element type
      * @param w      The game world to add the elements to
      */
     public static void analyseElement(List<String> params, GameWorld w) {
-        switch (params.get(0)) {
+        buildElement(LevelElement.fromFields(params), w);
+    }
+
+    /**
+     * Creates the game objects of a whole level.
+     * Platforms, static polygons and props are merged into one terrain body
+     * by TerrainBuilder, built first so it is drawn behind everything else.
+     * Every other element is built on its own, in file order. The bodies of
+     * every element are recorded in the world's LiveLevel so the level can
+     * later be reloaded in place.
+     * 
+     * @param elements The elements of the level
+     * @param w        The game world to add the level to
+     */
+    public static void buildLevel(List<LevelElement> elements, GameWorld w) {
+        List<LevelElement> terrain = new ArrayList<>();
+        for (LevelElement element : elements) {
+            if (TerrainBuilder.isTerrain(element)) {
+                terrain.add(element);
+            }
+        }
+        w.liveLevel.setTerrain(terrain, TerrainBuilder.build(terrain, w));
+        w.liveLevel.setBase(elements);
+        for (LevelElement element : elements) {
+            if (!TerrainBuilder.isTerrain(element)) {
+                w.liveLevel.add(element, buildTracked(element, w, false));
+            }
+        }
+    }
+
+    /**
+     * Creates the game objects described by an element and returns them.
+     * Prefabs are handed to the world's ChunkActivator together with the
+     * returned list, which fills up when they are expanded.
+     * 
+     * @param e     The element to build, in level coordinates
+     * @param w     The game world to add the element to
+     * @param spawn True if the camera may have moved since the level was
+     *              loaded (see spawnElement)
+     * @return The bodies created for the element, possibly none
+     */
+    public static List<Body> buildTracked(LevelElement e, GameWorld w, boolean spawn) {
+        if (Prefabs.isPrefab(e.type)) {
+            List<Body> bodies = new ArrayList<>();
+            w.chunks.add(e, bodies);
+            return bodies;
+        }
+        // Mutable, as a rewind may replace a body that was destroyed since
+        List<Body> bodies = new ArrayList<>(1);
+        Body body = spawn ? spawnElement(e, w) : buildElement(e, w);
+        if (body != null) {
+            bodies.add(body);
+        }
+        return bodies;
+    }
+
+    /**
+     * Creates the game objects described by an element.
+     * Shapes and images come from the TemplateRegistry, so identical pieces
+     * share them. Interactive objects and enemies are registered with the
+     * world's static or movable object lists so they receive step events.
+     * Prefabs are handed to the world's ChunkActivator and built later.
+     * 
+     * @param e The element to build
+     * @param w The game world to add the element to
+     * @return The body created for the element, or null if the element only
+     *         changes the state of the game or is built later
+     */
+    public static Body buildElement(LevelElement e, GameWorld w) {
+        switch (e.type) {
             case "platform":
-                String nameFile = params.get(1);
-                float position_x = Float.valueOf(params.get(2));
-                float position_y = Float.valueOf(params.get(3));
-                float width = Float.valueOf(params.get(4));
-                float height = Float.valueOf(params.get(5));
-                Shape s = new BoxShape(width, height);
-                StaticBody platform = new StaticBody(w, s);
-                platform.setPosition(new Vec2(position_x, position_y));
-                platform.addImage(new BodyImage(nameFile, 2 * height));
-                break;
-            case "coin":
-                float position_xcoin = Float.valueOf(params.get(1));
-                float position_ycoin = Float.valueOf(params.get(2));
-                Coin c = new Coin(w);
-                c.setPosition(new Vec2(position_xcoin, position_ycoin));
-                break;
+            case "polygon":
+                return addImage(new StaticBody(w, TemplateRegistry.shape(e)), e);
+            case "prop":
+                return addImage(new StaticBody(w), e);
             case "box":
-                String nameFileBox = params.get(1);
-                float position_xbox = Float.valueOf(params.get(2));
-                float position_ybox = Float.valueOf(params.get(3));
-                float widthbox = Float.valueOf(params.get(4));
-                float heightbox = Float.valueOf(params.get(5));
-                Shape sbox = new BoxShape(widthbox, heightbox);
-                DynamicBody db = new DynamicBody(w, sbox);
-                db.setPosition(new Vec2(position_xbox, position_ybox));
-                db.addImage(new BodyImage(nameFileBox, 2 * heightbox));
-                break;
+            case "ball":
+                DynamicBody db = new DynamicBody(w, TemplateRegistry.shape(e));
+                addImage(db, e);
+                if (e.params.length > 0) {
+                    db.setGravityScale(e.params[0]);
+                }
+                return db;
+            case "coin":
+                Coin coin = new Coin(w);
+                coin.setPosition(e.position());
+                return coin;
             case "intermittentplatform":
-                float position_xdp = Float.valueOf(params.get(1));
-                float position_ydp = Float.valueOf(params.get(2));
-                IntermittentPlatform dp = new IntermittentPlatform(w, new Vec2(position_xdp, position_ydp), w.camera);
-                w.staticObjects.add(dp);
-                break;
+                return addObject(new IntermittentPlatform(w, e.position(), w.camera), w);
+            case "fallingplatform":
+                DelayedFallingPlatform fp = new DelayedFallingPlatform(w, e.position(), w.player, w.camera);
+                fp.TIMER_STANDING = (int) e.param(0, fp.TIMER_STANDING);
+                return addObject(fp, w);
+            case "movingplatform":
+                RectangularPathPlatform mp = new RectangularPathPlatform(w, e.params[0], e.params[1]);
+                mp.setPosition(e.position());
+                return addObject(mp, w);
+            case "door":
+                return addObject(new Door(w, e.position()), w);
+            case "key":
+                Key key = new Key(w);
+                key.setPosition(e.position());
+                return key;
+            case "electricportal":
+                ElectricPortal ep = new ElectricPortal(w);
+                ep.setPosition(e.position());
+                return addObject(ep, w);
+            case "sword":
+                SwordPowerup sword = new SwordPowerup(w);
+                sword.setPosition(e.position());
+                return sword;
             case "enemy":
-                float position_xenemy = Float.valueOf(params.get(1));
-                float position_yenemy = Float.valueOf(params.get(2));
                 BasicPatrolEnemy el1 = new BasicPatrolEnemy(w);
-                el1.setPosition(new Vec2(position_xenemy, position_yenemy));
-                w.movableObjects.add(el1);
+                if (e.imagePath != null) {
+                    el1.removeAllImages();
+                    el1.addImage(TemplateRegistry.image(e));
+                }
+                return addEnemy(el1, e, w);
+            case "slime":
+                return addEnemy(new Slime(w), e, w);
+            case "spikedenemy":
+                return addEnemy(new SpikedEnemy(w), e, w);
+            case "pursuerenemy":
+                return addEnemy(new PursuerEnemy(w, w.player), e, w);
+            case "turretenemy":
+                return addEnemy(new TurretEnemy(w), e, w);
+            case "armoredenemy":
+                return addEnemy(new ArmoredEnemy(w), e, w);
+            case "logrow":
+            case "coinrow":
+            case "coinarc":
+            case "patrolgroup":
+                w.chunks.add(e, new ArrayList<>());
+                break;
+            case "upgrade":
+                w.player.upgrade();
                 break;
             case "length":
-                Level.lengthLevelOpenLevel = Integer.valueOf(params.get(1));
+                Level.lengthLevelOpenLevel = e.params[0];
                 break;
             case "startingPosition":
-                Level.startingPositionOpenLevel = new Vec2(Float.valueOf(params.get(1)), Float.valueOf(params.get(2)));
+                Level.startingPositionOpenLevel = e.position();
                 break;
             case "level":
-                w.currentLevelNumber = Integer.valueOf(params.get(1));
-                w.loadLevel(Integer.valueOf(params.get(1)));
+                w.currentLevelNumber = (int) e.params[0];
+                w.loadLevel((int) e.params[0]);
                 break;
             case "score":
-                GameWorld.score = Integer.valueOf(params.get(1));
+                GameWorld.score = (int) e.params[0];
                 break;
             case "time":
-                GameWorld.previousElapsedTimeSeconds = Integer.valueOf(params.get(1));
-                GameWorld.currentElapsedTimeSeconds = Integer.valueOf(params.get(1));
-                GameWorld.levelStartTimeMillis = (new Date()).getTime() / 1000 - Integer.valueOf(params.get(1));
+                int time = (int) e.params[0];
+                GameWorld.previousElapsedTimeSeconds = time;
+                GameWorld.currentElapsedTimeSeconds = time;
+                GameWorld.levelStartTimeMillis = (new Date()).getTime() - time * 1000L;
                 break;
             case "player":
-                w.player.setPosition(new Vec2(Float.valueOf(params.get(1)), Float.valueOf(params.get(2))));
-                w.player.hasSword = Boolean.valueOf(params.get(3));
+                w.player.setPosition(e.position());
+                w.player.hasSword = e.params[0] != 0;
                 break;
             case "camera":
-                w.player.move(new Vec2(Float.valueOf(params.get(1)), 0));
+                // Scroll the level, the player's saved position is already
+                // relative to the camera
+                Vec2 playerPosition = w.player.getPosition();
+                WorldSnapshot.scrollTo(w, e.params[0]);
+                w.player.setPosition(playerPosition);
                 break;
         }
+        return null;
+    }
+
+    /**
+     * Creates the game objects described by an element after the camera has
+     * moved, converting its level position to the current view.
+     * 
+     * @param e The element to build, in level coordinates
+     * @param w The game world to add the element to
+     * @return The body created for the element, or null
+     */
+    public static Body spawnElement(LevelElement e, GameWorld w) {
+        switch (e.type) {
+            case "fallingplatform":
+            case "intermittentplatform":
+                // These place their bodies relative to the camera themselves
+                return buildElement(e, w);
+            default:
+                return buildElement(e.translate(-w.camera.cameraPosition, 0), w);
+        }
+    }
+
+    /**
+     * Removes a body built from a level element, together with any body it
+     * manages, and unregisters it from step events
+     * 
+     * @param body The body to remove
+     * @param w    The game world
+     */
+    public static void removeBody(Body body, GameWorld w) {
+        if (body instanceof InteractiveStaticObject) {
+            w.staticObjects.remove(body);
+            ((InteractiveStaticObject) body).removeFromWorld();
+        } else {
+            if (body instanceof PhysicsActor) {
+                w.movableObjects.remove(body);
+            }
+            body.destroy();
+        }
+    }
+
+    /**
+     * Positions a body built from an element and adds the element's image
+     * 
+     * @param body The body to set up
+     * @param e    The element describing it
+     * @return The body
+     */
+    private static Body addImage(Body body, LevelElement e) {
+        body.setPosition(e.position());
+        if (e.imagePath != null) {
+            body.addImage(TemplateRegistry.image(e));
+        }
+        return body;
+    }
+
+    /**
+     * Registers an interactive object for step events
+     * 
+     * @param object The object
+     * @param w      The game world
+     * @return The object
+     */
+    private static Body addObject(InteractiveStaticObject object, GameWorld w) {
+        w.staticObjects.add(object);
+        return object;
+    }
+
+    /**
+     * Positions an enemy and registers it for step events
+     * 
+     * @param enemy The enemy to set up
+     * @param e     The element describing it
+     * @param w     The game world
+     * @return The enemy
+     */
+    private static Body addEnemy(PhysicsActor enemy, LevelElement e, GameWorld w) {
+        enemy.setPosition(e.position());
+        w.movableObjects.add(enemy);
+        return enemy;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,43 @@
+package service;
+
+import java.io.IOException;
+
+/**
+ * LevelFormatException reports an invalid line in a level file, together with
+ * the file and line number where it was found.
+ */
+public class LevelFormatException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    // Where the error was found
+    private final String source;
+    private final int line;
+
+    /**
+     * Creates an exception for an invalid line
+     *
+     * @param source  The name of the level file
+     * @param line    The line number, starting at 1
+     * @param message What is wrong with the line
+     */
+    public LevelFormatException(String source, int line, String message) {
+        super(source + ":" + line + ": " + message);
+        this.source = source;
+        this.line = line;
+    }
+
+    /**
+     * @return The name of the level file
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return The line number, starting at 1
+     */
+    public int getLine() {
+        return line;
+    }
+}
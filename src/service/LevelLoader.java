@@ -0,0 +1,260 @@
+package service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import game.Level;
+
+/**
+ * LevelLoader prepares levels on a background thread so that loading never
+ * blocks input or rendering.
+ *
+ * Loading is split in two phases:
+ * - Preparation, on the loader thread: reading and parsing the level file
+ * (or its compiled cache) and interning every shape and image it uses in the
+ * TemplateRegistry, which decodes the images. The result is an immutable
+ * LoadedLevel that holds no reference to the world.
+ * - Commit, on the game thread inside a world step: destroying the old bodies
+ * and creating the new ones from the prepared descriptors. See
+ * GameWorld.commitLevel.
+ *
+ * Only the most recent request is delivered; a request made while another is
+ * still being prepared replaces it. prepare() runs the first phase on the
+ * calling thread for tools and tests that do not need a loading screen.
+ */
+public class LevelLoader {
+
+    // Kinds of load request
+    public static final int BUILT_IN = 0;
+    public static final int CUSTOM = 1;
+    public static final int SAVED_GAME = 2;
+
+    /**
+     * LoadedLevel is the immutable result of preparing a level: everything
+     * needed to build it, with all file access and decoding already done.
+     */
+    public static class LoadedLevel {
+        // What was requested
+        public final int kind;
+        public final int levelNumber;
+        public final String filePath;
+
+        // Elements of the level, in file order
+        public final List<LevelElement> levelElements;
+
+        // Elements of a text saved game that could not be converted to a
+        // delta, applied after the level; empty otherwise
+        public final List<LevelElement> savedElements;
+
+        // Binary saved game, which replaces the level elements, or null
+        public final WorldSnapshot snapshot;
+
+        // Saved game stored as a delta, applied after the level, or null
+        public final SaveDelta delta;
+
+        // Error that stopped the preparation, null on success
+        public final IOException error;
+
+        private LoadedLevel(int kind, int levelNumber, String filePath, List<LevelElement> levelElements,
+                List<LevelElement> savedElements, WorldSnapshot snapshot, SaveDelta delta, IOException error) {
+            this.kind = kind;
+            this.levelNumber = levelNumber;
+            this.filePath = filePath;
+            this.levelElements = Collections.unmodifiableList(levelElements);
+            this.savedElements = Collections.unmodifiableList(savedElements);
+            this.snapshot = snapshot;
+            this.delta = delta;
+            this.error = error;
+        }
+    }
+
+    // Worker thread, a daemon so it never keeps the game running
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "level-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Identifier of the latest request, older results are dropped
+    private final AtomicInteger latestRequest = new AtomicInteger();
+
+    // Prepared level waiting to be committed
+    private final AtomicReference<LoadedLevel> ready = new AtomicReference<>();
+
+    // Progress of the current preparation, for the loading screen
+    private volatile float progress = 0f;
+    private volatile String status = "";
+    private volatile boolean loading = false;
+
+    /**
+     * Starts preparing a level in the background
+     *
+     * @param kind        BUILT_IN, CUSTOM or SAVED_GAME
+     * @param levelNumber The built-in level number, for BUILT_IN
+     * @param filePath    The level or saved game file, for CUSTOM and
+     *                    SAVED_GAME
+     */
+    public void request(int kind, int levelNumber, String filePath) {
+        int id = latestRequest.incrementAndGet();
+        ready.set(null);
+        loading = true;
+        report(0f, "Reading level");
+        worker.submit(() -> {
+            LoadedLevel level = prepare(kind, levelNumber, filePath, this);
+            if (latestRequest.get() == id) {
+                report(1f, "Building level");
+                ready.set(level);
+            }
+        });
+    }
+
+    /**
+     * Takes the prepared level, if one is ready
+     *
+     * @return The prepared level, or null if none is ready yet
+     */
+    public LoadedLevel poll() {
+        LoadedLevel level = ready.getAndSet(null);
+        if (level != null) {
+            loading = false;
+        }
+        return level;
+    }
+
+    /**
+     * @return True while a requested level has not been taken with poll()
+     */
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * @return The progress of the current preparation, between 0 and 1
+     */
+    public float getProgress() {
+        return progress;
+    }
+
+    /**
+     * @return A short description of the current preparation step
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * Updates the progress shown on the loading screen
+     *
+     * @param progress The progress, between 0 and 1
+     * @param status   The current step
+     */
+    private void report(float progress, String status) {
+        this.progress = progress;
+        this.status = status;
+    }
+
+    /**
+     * Prepares a level on the calling thread
+     *
+     * @param kind        BUILT_IN, CUSTOM or SAVED_GAME
+     * @param levelNumber The built-in level number, for BUILT_IN
+     * @param filePath    The level or saved game file, for CUSTOM and
+     *                    SAVED_GAME
+     * @return The prepared level; its error is set if preparation failed
+     */
+    public static LoadedLevel prepare(int kind, int levelNumber, String filePath) {
+        return prepare(kind, levelNumber, filePath, null);
+    }
+
+    /**
+     * Prepares a level, reporting progress to a loader
+     *
+     * @param kind        BUILT_IN, CUSTOM or SAVED_GAME
+     * @param levelNumber The built-in level number, for BUILT_IN
+     * @param filePath    The level or saved game file
+     * @param loader      The loader to report progress to, or null
+     * @return The prepared level; its error is set if preparation failed
+     */
+    private static LoadedLevel prepare(int kind, int levelNumber, String filePath, LevelLoader loader) {
+        List<LevelElement> levelElements = new ArrayList<>();
+        List<LevelElement> savedElements = new ArrayList<>();
+        WorldSnapshot snapshot = null;
+        SaveDelta delta = null;
+        try {
+            if (kind == SAVED_GAME && WorldSnapshot.isSnapshot(Paths.get(filePath))) {
+                byte[] data = Files.readAllBytes(Paths.get(filePath));
+                if (SaveDelta.isDelta(data)) {
+                    // A delta is applied on top of its level
+                    delta = SaveDelta.decode(data);
+                    levelNumber = delta.levelNumber;
+                } else {
+                    // A full snapshot holds the whole world, the level file
+                    // is not needed
+                    snapshot = WorldSnapshot.decode(data);
+                    levelNumber = snapshot.levelNumber;
+                }
+                if (levelNumber >= Level.LEVEL_FILES.length) {
+                    throw new IOException("saved game refers to unknown level " + levelNumber);
+                }
+            } else if (kind == SAVED_GAME) {
+                savedElements = LevelTokenizer.readAll(filePath);
+                levelNumber = -1;
+                for (LevelElement element : savedElements) {
+                    if (element.type.equals("level")) {
+                        levelNumber = (int) element.params[0];
+                    }
+                }
+                if (levelNumber >= Level.LEVEL_FILES.length) {
+                    throw new IOException("saved game refers to unknown level " + levelNumber);
+                }
+            }
+            String levelFile = kind == CUSTOM ? filePath
+                    : levelNumber >= 0 ? Level.LEVEL_FILES[levelNumber] : delta != null ? delta.levelFile : null;
+            if (levelFile != null && snapshot == null) {
+                levelElements = LevelFileParser.readLevel(levelFile);
+            }
+            if (kind == SAVED_GAME && levelNumber >= 0 && !savedElements.isEmpty()) {
+                // Text saves of a built-in level are converted, so they are
+                // restored the same way as binary ones
+                SaveDelta converted = SaveDelta.fromText(savedElements, levelElements, levelFile);
+                if (converted != null) {
+                    delta = converted;
+                    savedElements = new ArrayList<>();
+                }
+            }
+            if (delta != null) {
+                delta.checkBase(levelElements);
+            }
+            if (loader != null) {
+                loader.report(0.3f, "Loading images");
+            }
+
+            // Intern every shape and image up front so the commit phase never
+            // touches the disk
+            List<LevelElement> built = snapshot != null ? snapshot.elements() : levelElements;
+            for (int i = 0; i < built.size(); i++) {
+                LevelElement element = built.get(i);
+                TemplateRegistry.shape(element);
+                TemplateRegistry.image(element);
+                if (loader != null && i % 16 == 0) {
+                    loader.report(0.3f + 0.6f * i / built.size(), "Loading images");
+                }
+            }
+            return new LoadedLevel(kind, levelNumber, filePath, levelElements, savedElements, snapshot, delta, null);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to load level " + (filePath != null ? filePath : levelNumber));
+            e.printStackTrace();
+            IOException error = e instanceof IOException ? (IOException) e : new IOException(e);
+            return new LoadedLevel(kind, levelNumber, filePath, levelElements, savedElements, snapshot, delta,
+                    error);
+        }
+    }
+}
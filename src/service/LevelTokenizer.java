@@ -0,0 +1,415 @@
+package service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * LevelTokenizer reads a level file as a stream of LevelElement records.
+ *
+ * The file is decoded chunk by chunk from a channel into a fixed CharBuffer,
+ * so memory use does not depend on the size of the file. Each line is
+ * assembled in a reusable buffer and split in place: field boundaries are
+ * kept as offsets and numbers are parsed straight from the characters.
+ * Repeated text fields such as types and image paths are interned, so a
+ * level with many copies of an element allocates its strings only once.
+ *
+ * Blank lines and lines starting with '#' are skipped. An invalid line raises
+ * a LevelFormatException naming the file and line, after which reading can
+ * continue with the next line.
+ */
+public class LevelTokenizer implements LevelFields, Closeable {
+
+    // Size of the read buffers
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    // Largest mantissa and power of ten for which fast number parsing is exact
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    // Input
+    private final String source;
+    private final ReadableByteChannel channel;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(CHUNK_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+    private boolean endOfInput = false;
+    private boolean exhausted = false;
+
+    // Current line and the boundaries of its fields
+    private char[] line = new char[256];
+    private int lineLength = 0;
+    private int lineNumber = 0;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int fieldCount = 0;
+
+    // Interned text fields
+    private String[] internTable = new String[256];
+    private int internCount = 0;
+
+    /**
+     * Opens a level file for reading
+     *
+     * @param filePath The path of the level file
+     * @throws IOException If the file cannot be opened
+     */
+    public LevelTokenizer(String filePath) throws IOException {
+        this(filePath, FileChannel.open(Paths.get(filePath), StandardOpenOption.READ));
+    }
+
+    /**
+     * Reads a level from a channel
+     *
+     * @param source  The name of the level, used in error messages
+     * @param channel The channel providing the UTF-8 level text
+     */
+    public LevelTokenizer(String source, ReadableByteChannel channel) {
+        this.source = source;
+        this.channel = channel;
+        chars.flip();
+    }
+
+    /**
+     * Reads every valid element of a level file.
+     * Invalid lines are reported on standard error and skipped.
+     *
+     * @param filePath The path of the level file
+     * @return The valid elements, in file order
+     * @throws IOException If the file cannot be read
+     */
+    public static List<LevelElement> readAll(String filePath) throws IOException {
+        try (LevelTokenizer tokenizer = new LevelTokenizer(filePath)) {
+            return tokenizer.readAll();
+        }
+    }
+
+    /**
+     * Reads every remaining valid element.
+     * Invalid lines are reported on standard error and skipped.
+     *
+     * @return The valid elements, in file order
+     * @throws IOException If the input cannot be read
+     */
+    public List<LevelElement> readAll() throws IOException {
+        List<LevelElement> elements = new ArrayList<>();
+        while (true) {
+            try {
+                LevelElement element = next();
+                if (element == null) {
+                    return elements;
+                }
+                elements.add(element);
+            } catch (LevelFormatException e) {
+                System.err.println(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads the next element
+     *
+     * @return The next element, or null at the end of the input
+     * @throws LevelFormatException If the next line is invalid; reading can
+     *                              continue after it
+     * @throws IOException          If the input cannot be read
+     */
+    public LevelElement next() throws IOException {
+        while (readLine()) {
+            if (!splitLine()) {
+                continue;
+            }
+            try {
+                return LevelElement.fromFields(this);
+            } catch (IllegalArgumentException e) {
+                throw new LevelFormatException(source, lineNumber, e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The number of the line read last, starting at 1
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Reads the next line into the line buffer
+     *
+     * @return False at the end of the input
+     * @throws IOException If the input cannot be read
+     */
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+        boolean readAnything = false;
+        while (true) {
+            if (!chars.hasRemaining() && !fill()) {
+                if (readAnything) {
+                    lineNumber++;
+                }
+                return readAnything;
+            }
+            readAnything = true;
+            char c = chars.get();
+            if (c == '\n') {
+                lineNumber++;
+                return true;
+            }
+            if (c == '\r') {
+                continue;
+            }
+            if (lineLength == line.length) {
+                line = Arrays.copyOf(line, line.length * 2);
+            }
+            line[lineLength++] = c;
+        }
+    }
+
+    /**
+     * Decodes the next chunk of input into the character buffer
+     *
+     * @return False when the input is exhausted
+     * @throws IOException If the input cannot be read
+     */
+    private boolean fill() throws IOException {
+        if (exhausted) {
+            return false;
+        }
+        chars.clear();
+        while (chars.position() == 0) {
+            if (!endOfInput && channel.read(bytes) < 0) {
+                endOfInput = true;
+            }
+            bytes.flip();
+            CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            if (result.isError()) {
+                result.throwException();
+            }
+            boolean leftover = bytes.hasRemaining();
+            bytes.compact();
+            if (endOfInput && !leftover) {
+                decoder.flush(chars);
+                exhausted = true;
+                break;
+            }
+        }
+        chars.flip();
+        return chars.hasRemaining();
+    }
+
+    /**
+     * Finds the fields of the current line
+     *
+     * @return False if the line is blank or a comment
+     */
+    private boolean splitLine() {
+        int start = 0;
+        int end = lineLength;
+        while (start < end && Character.isWhitespace(line[start])) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(line[end - 1])) {
+            end--;
+        }
+        if (start == end || line[start] == '#') {
+            return false;
+        }
+        fieldCount = 0;
+        int fieldStart = start;
+        for (int i = start; i < end; i++) {
+            if (line[i] == ';') {
+                if (fieldCount == fieldStarts.length) {
+                    fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+                    fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+                }
+                fieldStarts[fieldCount] = fieldStart;
+                fieldEnds[fieldCount] = i;
+                fieldCount++;
+                fieldStart = i + 1;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return fieldCount;
+    }
+
+    @Override
+    public String text(int index) {
+        checkIndex(index);
+        return intern(fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+    }
+
+    @Override
+    public float number(int index) {
+        checkIndex(index);
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        float value = parseSimpleNumber(start, end);
+        if (!Float.isNaN(value)) {
+            return value;
+        }
+        String field = new String(line, start, end - start);
+        try {
+            return Float.parseFloat(field);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("field " + index + " of " + text(0) + " is not a number: '"
+                    + field + "'");
+        }
+    }
+
+    /**
+     * Checks a field index
+     *
+     * @param index The index of the field
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("field " + index);
+        }
+    }
+
+    /**
+     * Parses a plain decimal number such as "-12.375" without allocating.
+     * The result is exact: the mantissa and power of ten are both exactly
+     * representable as doubles, so the division is correctly rounded, and
+     * the rare results that could round differently as a float are left to
+     * Float.parseFloat.
+     *
+     * @param start The first character of the number
+     * @param end   The position after the last character
+     * @return The value, or NaN if the text needs the general parser
+     */
+    private float parseSimpleNumber(int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (line[i] == '-' || line[i] == '+')) {
+            negative = line[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (; i < end; i++) {
+            char c = line[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+                if (mantissa >= MAX_EXACT_MANTISSA) {
+                    return Float.NaN;
+                }
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                return Float.NaN;
+            }
+        }
+        if (digits == 0 || decimals >= POWERS_OF_TEN.length) {
+            return Float.NaN;
+        }
+        double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+        // A double that lies exactly halfway between two floats may have been
+        // rounded onto the midpoint, so its float rounding is ambiguous
+        if ((Double.doubleToRawLongBits(value) & 0x1FFFFFFFL) == 0x10000000L) {
+            return Float.NaN;
+        }
+        return (float) (negative ? -value : value);
+    }
+
+    /**
+     * Returns the string for a run of the line buffer, reusing the same
+     * String object for identical text
+     *
+     * @param start  The first character
+     * @param length The number of characters
+     * @return The interned string
+     */
+    private String intern(int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + line[i];
+        }
+        int mask = internTable.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (internTable[slot] != null) {
+            String candidate = internTable[slot];
+            if (matches(candidate, start, length)) {
+                return candidate;
+            }
+            slot = (slot + 1) & mask;
+        }
+        String string = new String(line, start, length);
+        internTable[slot] = string;
+        internCount++;
+        if (internCount * 2 > internTable.length) {
+            rehash();
+        }
+        return string;
+    }
+
+    /**
+     * Compares a string with a run of the line buffer
+     *
+     * @param string The string
+     * @param start  The first character of the run
+     * @param length The number of characters in the run
+     * @return True if they hold the same text
+     */
+    private boolean matches(String string, int start, int length) {
+        if (string.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (string.charAt(i) != line[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Doubles the size of the intern table
+     */
+    private void rehash() {
+        String[] old = internTable;
+        internTable = new String[old.length * 2];
+        int mask = internTable.length - 1;
+        for (String string : old) {
+            if (string != null) {
+                int hash = string.hashCode();
+                int slot = (hash ^ (hash >>> 16)) & mask;
+                while (internTable[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                internTable[slot] = string;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
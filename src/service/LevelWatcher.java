@@ -0,0 +1,150 @@
+package service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * LevelWatcher watches the file of the level being played and parses it
+ * again whenever it is saved, so level designers see their changes without
+ * restarting the game.
+ *
+ * The watch runs on a daemon thread using a WatchService on the directory of
+ * the file. Editors often save a file in several writes, so after a change
+ * the watcher waits for the file to settle before reading it. The parsed
+ * elements are handed to the game thread through poll(), which applies them
+ * with LiveLevel.reload.
+ *
+ * Hot reload is off by default. It is turned on by starting the game with
+ * -Dplatformer.hotReload=true, or toggled with F5 while playing.
+ */
+public class LevelWatcher {
+
+    // Whether changes to the level file are picked up
+    public static volatile boolean enabled = Boolean.getBoolean("platformer.hotReload");
+
+    // Time to wait for further writes after a change, in milliseconds
+    private static final long SETTLE_TIME = 150;
+
+    // File being watched, null when none
+    private final AtomicReference<Path> watchedFile = new AtomicReference<>();
+
+    // Parsed elements waiting to be applied
+    private final AtomicReference<List<LevelElement>> changed = new AtomicReference<>();
+
+    // Watch service and the directories registered with it
+    private WatchService service;
+    private final Map<Path, WatchKey> directories = new HashMap<>();
+
+    /**
+     * Starts watching a level file instead of the previous one
+     *
+     * @param filePath The level file, or null to stop watching
+     */
+    public synchronized void watch(String filePath) {
+        changed.set(null);
+        if (!enabled || filePath == null) {
+            watchedFile.set(null);
+            return;
+        }
+        Path file = Paths.get(filePath).toAbsolutePath().normalize();
+        Path directory = file.getParent();
+        try {
+            if (service == null) {
+                service = FileSystems.getDefault().newWatchService();
+                Thread thread = new Thread(this::run, "level-watcher");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            if (!directories.containsKey(directory)) {
+                directories.put(directory, directory.register(service, StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_CREATE));
+            }
+            watchedFile.set(file);
+        } catch (IOException e) {
+            System.err.println("Failed to watch level file: " + filePath);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Takes the elements of the level file if it changed since the last call
+     *
+     * @return The new elements, or null if the file did not change
+     */
+    public List<LevelElement> poll() {
+        return changed.getAndSet(null);
+    }
+
+    /**
+     * Waits for changes and parses the watched file after each one
+     */
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean touched = isWatchedFileTouched(key);
+                key.reset();
+                if (!touched) {
+                    continue;
+                }
+
+                // Let the editor finish writing, absorbing the events it causes
+                WatchKey more;
+                while ((more = service.poll(SETTLE_TIME, TimeUnit.MILLISECONDS)) != null) {
+                    more.pollEvents();
+                    more.reset();
+                }
+
+                Path file = watchedFile.get();
+                if (file != null) {
+                    try {
+                        List<LevelElement> elements = LevelFileParser.readLevel(file.toString());
+                        synchronized (this) {
+                            // Drop the result if another level was loaded meanwhile
+                            if (watchedFile.get() == file) {
+                                changed.set(elements);
+                            }
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Failed to reload level: " + file);
+                        e.printStackTrace();
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The watcher is shutting down
+        }
+    }
+
+    /**
+     * Checks if the events of a key concern the watched file
+     *
+     * @param key The signalled key
+     * @return True if the watched file was created or modified
+     */
+    private boolean isWatchedFileTouched(WatchKey key) {
+        Path file = watchedFile.get();
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                touched = true;
+            } else if (file != null && key.watchable() instanceof Path) {
+                Path changedFile = ((Path) key.watchable()).resolve((Path) event.context());
+                touched |= changedFile.equals(file);
+            }
+        }
+        return touched;
+    }
+}
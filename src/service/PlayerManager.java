@@ -1,8 +1,6 @@
 package service;
 
-import entity.Player;
-import game.Camera;
-import assets.GameFileManager;
+import game.GameWorld;
 
 import java.io.File;
 
@@ -28,49 +26,46 @@ public class PlayerManager {
     /**
      * Saves the player's level result to the global leaderboard.
      * This method:
-     * - Records the level, time, and score in the player's progress tracker
-     * - Updates the data.txt file with the new result
-     * - Refreshes the leaderboard data to reflect the changes
-     * - Sorts the player's results to update max level and score statistics
+     * - Records the level, time, and score in the loaded leaderboard and the
+     * player's progress tracker, updating max level and score statistics
+     * - Sends the new result to the ScoreService in the background, batched
+     * with any others still waiting
      * 
      * @param level The level number that was completed
      * @param time  The time (in seconds) taken to complete the level
      * @param score The score achieved in the level
      */
     public static void saveResult(int level, int time, int score) {
-        data.appendData(level, time, score);
-        // we save and load again the results
-        GameFileManager.appendLine("data.txt", name + ";" + level + ";" + time + ";" + score + ";");
-        ScoreboardManager.loadLeaderBoardData();
+        ScoreboardManager.recordResult(name, level, time, score);
         data = ScoreboardManager.playerDataMap.get(name);
-        data.sort();
     }
 
     /**
      * Saves the current game state to a file for later resumption.
-     * The saved data includes:
-     * - Current level number
-     * - Player score
-     * - Player position and power-up state
-     * - Elapsed time
-     * - Camera position
+     * The game is saved as a SaveDelta: the level, score, time, camera, the
+     * player's position, health and power-ups, and whatever coins, keys,
+     * enemies and platforms changed since the level was loaded. A world that
+     * was not built from a level file is saved whole as a WorldSnapshot.
+     * 
+     * The state is captured immediately, on the game thread, then encoded
+     * and written by the IoExecutor. The file is replaced atomically, so an
+     * interrupted save leaves the previous one intact.
      * 
      * This allows players to continue their game from where they left off.
      * 
-     * @param level The current level number
-     * @param p     The player object containing position, health, and power-up
-     *              states
-     * @param c     The camera object with its current position
-     * @param score The current accumulated score
-     * @param time  The elapsed time in seconds
-     * @param f     The file to save the game state to
+     * @param w The game world to save
+     * @param f The file to save the game state to
      */
-    public static void saveGame(int level, Player p, Camera c, int score, int time, File f) {
-        GameFileManager.appendLine(f.getPath(), "level;" + level + ";");
-        GameFileManager.appendLine(f.getPath(), "score;" + score + ";");
-        GameFileManager.appendLine(f.getPath(),
-                "player;" + p.getPosition().x + ";" + p.getPosition().y + ";" + p.hasSword + ";");
-        GameFileManager.appendLine(f.getPath(), "time;" + time + ";");
-        GameFileManager.appendLine(f.getPath(), "camera;" + c.cameraPosition + ";");
+    public static void saveGame(GameWorld w, File f) {
+        // Only what changed since the level was loaded, when possible
+        SaveDelta delta = SaveDelta.capture(w);
+        WorldSnapshot snapshot = delta == null ? WorldSnapshot.capture(w) : null;
+        IoExecutor.submit("Game saved", "Failed to save game: " + f, () -> {
+            if (delta != null) {
+                delta.write(f.toPath());
+            } else {
+                snapshot.write(f.toPath());
+            }
+        });
     }
 }
\ No newline at end of file
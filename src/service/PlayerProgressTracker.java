@@ -1,9 +1,11 @@
 package service;
 
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.Map;
 
 /**
  * PlayerProgressTracker stores and manages a player's game progress and
@@ -12,9 +14,13 @@ import java.util.TreeMap;
  * - Completed levels and their statistics
  * - Scores and completion times
  * - Maximum level reached and highest scores
+ * - Running totals: the number of results, their average time, the best
+ * score, time and total score, overall and on each level
  * 
  * This class provides methods to add new level completion data and sort
- * the player's achievements for display and progression tracking.
+ * the player's achievements for display and progression tracking. Every
+ * statistic is updated as each result arrives, so adding a result takes
+ * O(log n) and reading a statistic O(1), however long the player's history.
  */
 public class PlayerProgressTracker {
 
@@ -24,8 +30,12 @@ public class PlayerProgressTracker {
     // List of level completion data
     List<LevelData> listLevelData = new LinkedList<>();
 
-    // Sorted map of level data for ranking
-    SortedMap<Integer, LevelData> sortedData = new TreeMap<>();
+    // Level data ranked by total score, highest first; equal scores rank
+    // the latest result first
+    static final Comparator<LevelData> BY_SCORE_TOTAL = Comparator
+            .comparingInt((LevelData dt) -> -dt.calculateScoreTotal())
+            .thenComparingInt(dt -> -dt.order);
+    RankedIndex<LevelData> sortedData = new RankedIndex<>(BY_SCORE_TOTAL);
 
     // Highest level the player has unlocked
     public int levelMax = 0;
@@ -33,50 +43,241 @@ public class PlayerProgressTracker {
     // Highest score the player has achieved
     int scoreMax = 0;
 
+    // Order the player first appeared in, to break ties in the ranking
+    int rankOrder = 0;
+
+    // Running totals over every result
+    private int resultCount = 0;
+    private long totalTime = 0;
+    private int bestScore = 0;
+    private int bestTime = Integer.MAX_VALUE;
+
+    // Statistics of each level the player has finished
+    private final Map<Integer, LevelStats> levelStats = new HashMap<>();
+
+    /**
+     * LevelStats holds a player's running totals on one level
+     */
+    public static class LevelStats {
+        private int count = 0;
+        private long totalTime = 0;
+        private LevelData bestScore;
+        private LevelData bestTime;
+        private LevelData bestTotal;
+
+        private void add(LevelData dt) {
+            count++;
+            totalTime += dt.time;
+            if (bestScore == null || dt.score > bestScore.score) {
+                bestScore = dt;
+            }
+            if (bestTime == null || dt.time < bestTime.time) {
+                bestTime = dt;
+            }
+            if (bestTotal == null || dt.calculateScoreTotal() > bestTotal.calculateScoreTotal()) {
+                bestTotal = dt;
+            }
+        }
+
+        /**
+         * @return The number of times the level was finished
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return The average completion time, in seconds
+         */
+        public double getAverageTime() {
+            return (double) totalTime / count;
+        }
+
+        /**
+         * @return The highest score achieved on the level
+         */
+        public int getBestScore() {
+            return bestScore.score;
+        }
+
+        /**
+         * @return The fastest completion time, in seconds
+         */
+        public int getBestTime() {
+            return bestTime.time;
+        }
+
+        /**
+         * @return The highest total score, see LevelData.calculateScoreTotal
+         */
+        public int getBestTotal() {
+            return bestTotal.calculateScoreTotal();
+        }
+
+        /**
+         * @return The results with the best score, time and total score,
+         *         each once, the first of them when several are equal
+         */
+        List<LevelData> bestResults() {
+            List<LevelData> best = new LinkedList<>();
+            best.add(bestTotal);
+            if (!best.contains(bestScore)) {
+                best.add(bestScore);
+            }
+            if (!best.contains(bestTime)) {
+                best.add(bestTime);
+            }
+            return best;
+        }
+    }
+
     /**
-     * Adds level completion data to the player's record
+     * Adds level completion data to the player's record and updates the
+     * sorted data and every statistic in O(log n)
      * 
      * @param num   The level number
      * @param time  The time taken to complete the level (in seconds)
      * @param score The score achieved in the level
+     * @return The new record
      */
-    public void appendData(int num, int time, int score) {
+    public LevelData appendData(int num, int time, int score) {
         LevelData lv = new LevelData(num, time, score);
         listLevelData.add(lv);
+        lv.order = listLevelData.size();
+        index(lv);
+        return lv;
     }
 
     /**
-     * Sorts the player's level data by score and updates max level and score.
-     * This method should be called after adding new level data to ensure
-     * the player's statistics are up to date.
+     * Sorts the player's level data by score and updates max level and score
+     * from scratch. appendData keeps them up to date, so this is only needed
+     * if listLevelData was changed directly.
      */
     public void sort() {
         sortedData.clear();
         levelMax = 0;
         scoreMax = 0;
+        resultCount = 0;
+        totalTime = 0;
+        bestScore = 0;
+        bestTime = Integer.MAX_VALUE;
+        levelStats.clear();
         int i = 0;
 
         for (LevelData dt : listLevelData) {
             i++;
+            dt.order = i;
+            index(dt);
+        }
+    }
 
-            // Update max level reached
-            if (dt.num > levelMax) {
-                levelMax = dt.num;
-            }
+    /**
+     * Adds one result to the sorted data and the statistics
+     * 
+     * @param dt The result, with its order set
+     */
+    private void index(LevelData dt) {
+        // Update max level reached; the next level is unlocked
+        if (dt.num + 1 > levelMax) {
+            levelMax = dt.num + 1;
+        }
 
-            // Calculate and update max score
-            int scoreTotal = dt.calculateScoreTotal();
-            if (scoreTotal > scoreMax) {
-                scoreMax = scoreTotal;
-            }
+        // Calculate and update max score
+        int scoreTotal = dt.calculateScoreTotal();
+        if (scoreTotal > scoreMax) {
+            scoreMax = scoreTotal;
+        }
+
+        // Running totals, overall and on the level
+        resultCount++;
+        totalTime += dt.time;
+        bestScore = Math.max(bestScore, dt.score);
+        bestTime = Math.min(bestTime, dt.time);
+        levelStats.computeIfAbsent(dt.num, key -> new LevelStats()).add(dt);
 
-            // Add to sorted map with a unique key
-            int l = listLevelData.size() + 1;
-            sortedData.put(l * scoreTotal + i, dt);
+        // Rank the result among the others
+        sortedData.add(dt);
+    }
+
+    /**
+     * Sets the number of results on a level and their total time to those of
+     * the player's whole history, when only their best results were added
+     * 
+     * @param level     The level number
+     * @param count     The number of results on the level
+     * @param totalTime Their total time, in seconds
+     */
+    void setLevelTotals(int level, int count, long totalTime) {
+        LevelStats stats = levelStats.get(level);
+        if (stats == null || count < stats.count) {
+            return;
         }
+        resultCount += count - stats.count;
+        this.totalTime += totalTime - stats.totalTime;
+        stats.count = count;
+        stats.totalTime = totalTime;
+    }
+
+    /**
+     * @param level A level number
+     * @return True if the player may play the level: the first level, and
+     *         each level after one they finished
+     */
+    public boolean isUnlocked(int level) {
+        return level <= levelMax;
+    }
+
+    /**
+     * @return The number of results recorded
+     */
+    public int getResultCount() {
+        return resultCount;
+    }
+
+    /**
+     * @return The average completion time, in seconds, or 0 if there are no
+     *         results
+     */
+    public double getAverageTime() {
+        return resultCount == 0 ? 0 : (double) totalTime / resultCount;
+    }
+
+    /**
+     * @return The highest score achieved on any level, or 0
+     */
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * @return The fastest completion time of any level, in seconds, or 0 if
+     *         there are no results
+     */
+    public int getBestTime() {
+        return resultCount == 0 ? 0 : bestTime;
+    }
 
-        // Increment max level to unlock the next level
-        levelMax += 1;
+    /**
+     * @return The highest total score achieved on any level, or 0
+     */
+    public int getBestTotal() {
+        return scoreMax;
+    }
+
+    /**
+     * @param level A level number
+     * @return The player's statistics on the level, or null if they never
+     *         finished it
+     */
+    public LevelStats getLevelStats(int level) {
+        return levelStats.get(level);
+    }
+
+    /**
+     * @return The statistics of every level the player finished
+     */
+    Collection<LevelStats> allLevelStats() {
+        return levelStats.values();
     }
 
     /**
@@ -86,6 +287,7 @@ public class PlayerProgressTracker {
         int num; // Level number
         int time; // Completion time in seconds
         int score; // Score achieved
+        int order; // Position in listLevelData, from 1, to break ties
 
         /**
          * Creates a new level data record
@@ -0,0 +1,104 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prefabs expands the compact level elements that stand for a repeated
+ * pattern into the plain elements they are made of.
+ *
+ * A level file can describe a whole row of falling logs or a group of enemies
+ * in one line instead of one line per object. Prefabs are not built when a
+ * level loads: the world keeps them aside and expands each one when the
+ * camera gets close to it (see game.ChunkActivator), so objects the player
+ * has not reached yet cost nothing.
+ *
+ * Prefab types (see LevelElement for the full format):
+ * - logrow;x;y;count;spacing[;standingTimer]   row of falling logs
+ * - coinrow;x;y;count;spacing                  row of coins
+ * - coinarc;x;y;count;radius                   coins on the upper half of a
+ * circle centred on x;y
+ * - patrolgroup;x;y;count;spacing              row of patrolling enemies
+ */
+public class Prefabs {
+
+    /**
+     * Checks if an element type is a prefab
+     *
+     * @param type The element type
+     * @return True if elements of this type must be expanded
+     */
+    public static boolean isPrefab(String type) {
+        switch (type) {
+            case "logrow":
+            case "coinrow":
+            case "coinarc":
+            case "patrolgroup":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the leftmost x position covered by a prefab, which decides when
+     * it is expanded
+     *
+     * @param e The prefab element
+     * @return The smallest x of the objects it expands to
+     */
+    public static float left(LevelElement e) {
+        int count = (int) e.params[0];
+        if (e.type.equals("coinarc")) {
+            return count > 1 ? e.x - e.params[1] : e.x;
+        }
+        return Math.min(e.x, e.x + (count - 1) * e.params[1]);
+    }
+
+    /**
+     * Expands a prefab into the elements it stands for
+     *
+     * @param e The prefab element
+     * @return The plain elements, in placement order
+     */
+    public static List<LevelElement> expand(LevelElement e) {
+        int count = (int) e.params[0];
+        List<LevelElement> elements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            switch (e.type) {
+                case "logrow":
+                    float[] timer = e.params.length > 2 ? new float[] { e.params[2] } : new float[0];
+                    elements.add(element("fallingplatform", e.x + i * e.params[1], e.y, timer));
+                    break;
+                case "coinrow":
+                    elements.add(element("coin", e.x + i * e.params[1], e.y, new float[0]));
+                    break;
+                case "coinarc":
+                    // From the left end of the arc over the top to the right end
+                    double angle = count > 1 ? Math.PI * (count - 1 - i) / (count - 1) : Math.PI / 2;
+                    elements.add(element("coin", e.x + (float) (e.params[1] * Math.cos(angle)),
+                            e.y + (float) (e.params[1] * Math.sin(angle)), new float[0]));
+                    break;
+                case "patrolgroup":
+                    elements.add(element("enemy", e.x + i * e.params[1], e.y, new float[0]));
+                    break;
+                default:
+                    throw new IllegalArgumentException("not a prefab: " + e.type);
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Creates a plain element without shape or image
+     *
+     * @param type   The element type
+     * @param x      The x position
+     * @param y      The y position
+     * @param params The type-specific extra values
+     * @return The element
+     */
+    private static LevelElement element(String type, float x, float y, float[] params) {
+        return new LevelElement(type, x, y, LevelElement.SHAPE_NONE, new float[0], null, 0, params);
+    }
+}
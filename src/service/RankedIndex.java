@@ -0,0 +1,281 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * RankedIndex keeps items sorted and answers rank queries: the item at a
+ * given rank, the rank of an item, and a page of items starting at a rank.
+ * Adding, removing and both queries take O(log n); a page of k items takes
+ * O(log n + k).
+ *
+ * It is a treap, a binary search tree kept balanced by random priorities,
+ * where each node also counts the nodes below it. The comparator decides the
+ * ranking and must never find two different items equal, so it should end
+ * with a tie-breaker such as the order the items were added in.
+ *
+ * An item must not change in a way that affects its order while it is in
+ * the index: remove it, change it, then add it again.
+ *
+ * @param <T> The type of the items
+ */
+public class RankedIndex<T> {
+
+    /**
+     * A node of the tree
+     */
+    private static class Node<T> {
+        final T item;
+        final int priority;
+        Node<T> left;
+        Node<T> right;
+        int size = 1;
+
+        Node(T item, int priority) {
+            this.item = item;
+            this.priority = priority;
+        }
+    }
+
+    private final Comparator<? super T> order;
+
+    // Priorities; the seed is fixed so runs are reproducible
+    private final Random priorities = new Random(0x5EED);
+
+    private Node<T> root;
+
+    /**
+     * Creates an empty index
+     *
+     * @param order The ranking, from rank 0 upwards; items it finds equal
+     *              replace each other
+     */
+    public RankedIndex(Comparator<? super T> order) {
+        this.order = order;
+    }
+
+    /**
+     * @return The number of items
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * @return True if the index has no items
+     */
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Removes every item
+     */
+    public void clear() {
+        root = null;
+    }
+
+    /**
+     * Adds an item, replacing the item equal to it if any
+     *
+     * @param item The item
+     */
+    public void add(T item) {
+        root = add(root, new Node<>(item, priorities.nextInt()));
+    }
+
+    /**
+     * Removes an item
+     *
+     * @param item The item, or one equal to it
+     * @return True if it was in the index
+     */
+    public boolean remove(T item) {
+        int before = size();
+        root = remove(root, item);
+        return size() < before;
+    }
+
+    /**
+     * @param rank A rank, from 0
+     * @return The item at this rank
+     * @throws IndexOutOfBoundsException If there are not that many items
+     */
+    public T get(int rank) {
+        if (rank < 0 || rank >= size()) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + size());
+        }
+        Node<T> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (rank < leftSize) {
+                node = node.left;
+            } else if (rank == leftSize) {
+                return node.item;
+            } else {
+                rank -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * @return The item at rank 0, or null if there is none
+     */
+    public T first() {
+        return root == null ? null : get(0);
+    }
+
+    /**
+     * @param item An item
+     * @return Its rank from 0, or -1 if it is not in the index
+     */
+    public int rankOf(T item) {
+        int rank = 0;
+        Node<T> node = root;
+        while (node != null) {
+            int comparison = order.compare(item, node.item);
+            if (comparison < 0) {
+                node = node.left;
+            } else if (comparison == 0) {
+                return rank + size(node.left);
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lists the items from a rank on, in order
+     *
+     * @param from  The first rank, from 0
+     * @param count The most items to list
+     * @return The items, fewer than count near the end of the index
+     */
+    public List<T> range(int from, int count) {
+        List<T> items = new ArrayList<>(Math.max(0, Math.min(count, size() - from)));
+        collect(root, Math.max(from, 0), from + count, 0, items);
+        return items;
+    }
+
+    /**
+     * @return Every item, in order
+     */
+    public List<T> toList() {
+        return range(0, size());
+    }
+
+    /**
+     * Adds the items of a subtree whose ranks are in [from, to)
+     *
+     * @param node   The subtree
+     * @param from   The first rank
+     * @param to     The rank after the last one
+     * @param offset The rank of the first item of the subtree
+     * @param items  Receives the items
+     */
+    private static <T> void collect(Node<T> node, int from, int to, int offset, List<T> items) {
+        if (node == null || offset >= to || offset + node.size <= from) {
+            return;
+        }
+        int rank = offset + size(node.left);
+        collect(node.left, from, to, offset, items);
+        if (rank >= from && rank < to) {
+            items.add(node.item);
+        }
+        collect(node.right, from, to, rank + 1, items);
+    }
+
+    private Node<T> add(Node<T> node, Node<T> added) {
+        if (node == null) {
+            return added;
+        }
+        int comparison = order.compare(added.item, node.item);
+        if (comparison == 0) {
+            Node<T> replaced = new Node<>(added.item, node.priority);
+            replaced.left = node.left;
+            replaced.right = node.right;
+            replaced.size = node.size;
+            return replaced;
+        }
+        if (comparison < 0) {
+            node.left = add(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = add(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<T> remove(Node<T> node, T item) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = order.compare(item, node.item);
+        if (comparison < 0) {
+            node.left = remove(node.left, item);
+        } else if (comparison > 0) {
+            node.right = remove(node.right, item);
+        } else {
+            return merge(node.left, node.right);
+        }
+        update(node);
+        return node;
+    }
+
+    /**
+     * Joins two subtrees, every item of the first ranking before the second
+     */
+    private static <T> Node<T> merge(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static <T> Node<T> rotateRight(Node<T> node) {
+        Node<T> top = node.left;
+        node.left = top.right;
+        top.right = node;
+        update(node);
+        update(top);
+        return top;
+    }
+
+    private static <T> Node<T> rotateLeft(Node<T> node) {
+        Node<T> top = node.right;
+        node.right = top.left;
+        top.left = node;
+        update(node);
+        update(top);
+        return top;
+    }
+
+    private static <T> void update(Node<T> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+}
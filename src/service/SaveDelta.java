@@ -0,0 +1,470 @@
+package service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import city.cs.engine.Body;
+import city.cs.engine.DynamicBody;
+import entity.Bullet;
+import entity.Player;
+import game.GameWorld;
+import service.WorldSnapshot.EntityState;
+
+/**
+ * SaveDelta is a saved game stored as the difference between the world and
+ * the level it was loaded from. Most of a level never changes during play,
+ * so only the player, the score and time, the camera and the objects that
+ * differ from the freshly loaded level are kept: coins and enemies that are
+ * gone, bodies that move and the timers of Stateful objects. A save is a few
+ * hundred bytes, and loading it is a normal level load, from the level cache,
+ * followed by a small patch.
+ *
+ * Objects are identified by the index of their element among the non-terrain
+ * elements of the level file, and by their part for prefabs. A checksum of
+ * the level elements is stored with the save, so a save is rejected if the
+ * level file has changed since.
+ *
+ * This is version 2 of the saved game format (see WorldSnapshot for the
+ * header). Worlds that were not built from a level file, such as one restored
+ * from a full snapshot, are saved as a full snapshot instead.
+ */
+public class SaveDelta {
+
+    // Format version, after the full snapshots of version 1
+    static final int VERSION = 2;
+
+    // Flags of an encoded body state
+    private static final int HAS_BODY = 1;
+    private static final int MOVING = 2;
+
+    /**
+     * The changes to one element of the level
+     */
+    public static class Patch {
+        // Index of the element among the non-terrain elements of the level
+        public final int id;
+
+        // Parts that are gone, such as collected coins or defeated enemies
+        public final int[] removed;
+
+        // Parts whose state differs from the freshly loaded level
+        public final List<EntityState> changed;
+
+        Patch(int id, int[] removed, List<EntityState> changed) {
+            this.id = id;
+            this.removed = removed;
+            this.changed = Collections.unmodifiableList(changed);
+        }
+    }
+
+    // Level being played: its number, or -1 and its file for custom levels
+    public final int levelNumber;
+    public final String levelFile;
+
+    // Checksum and number of the non-terrain elements of the level
+    public final long baseChecksum;
+    public final int baseCount;
+
+    // Progress
+    public final int score;
+    public final int time;
+    public final float cameraPosition;
+
+    // The player, the changed elements and the bullets in flight
+    public final EntityState player;
+    public final List<Patch> patches;
+    public final List<EntityState> bullets;
+
+    private SaveDelta(int levelNumber, String levelFile, long baseChecksum, int baseCount, int score, int time,
+            float cameraPosition, EntityState player, List<Patch> patches, List<EntityState> bullets) {
+        this.levelNumber = levelNumber;
+        this.levelFile = levelFile;
+        this.baseChecksum = baseChecksum;
+        this.baseCount = baseCount;
+        this.score = score;
+        this.time = time;
+        this.cameraPosition = cameraPosition;
+        this.player = player;
+        this.patches = Collections.unmodifiableList(patches);
+        this.bullets = Collections.unmodifiableList(bullets);
+    }
+
+    /**
+     * Captures the difference between the world and its level file. Must run
+     * on the game thread.
+     *
+     * @param w The game world
+     * @return The delta, or null if the world was not built from a level
+     *         file and must be saved as a full snapshot
+     */
+    public static SaveDelta capture(GameWorld w) {
+        List<LevelElement> base = w.liveLevel.getBase();
+        if (base == null || w.getLevelFile() == null) {
+            return null;
+        }
+        List<LevelElement> elements = withoutTerrain(base);
+        List<List<Body>> occurrences = w.liveLevel.baseOccurrences();
+        float camera = w.camera.cameraPosition;
+        Set<Body> inWorld = Collections.newSetFromMap(new IdentityHashMap<>());
+        inWorld.addAll(w.getStaticBodies());
+        inWorld.addAll(w.getDynamicBodies());
+        Set<Body> alive = WorldSnapshot.aliveBodies(w);
+
+        List<Patch> patches = new ArrayList<>();
+        for (int id = 0; id < elements.size(); id++) {
+            LevelElement element = elements.get(id);
+            List<Body> bodies = occurrences.get(id);
+            boolean prefab = Prefabs.isPrefab(element.type);
+            if (bodies.isEmpty() || prefab && w.chunks.isPending(element, bodies)) {
+                // Nothing built, or not reached yet, as in the fresh level
+                continue;
+            }
+            List<Integer> removed = new ArrayList<>();
+            List<EntityState> changed = new ArrayList<>();
+            for (int part = 0; part < bodies.size(); part++) {
+                Body body = bodies.get(part);
+                if (!alive.contains(body)) {
+                    removed.add(part);
+                } else if (body instanceof DynamicBody || body instanceof Stateful) {
+                    changed.add(WorldSnapshot.capture(part, body, inWorld.contains(body), camera));
+                }
+            }
+            // An expanded prefab is always kept, as it may be pending in the
+            // fresh level
+            if (prefab || !removed.isEmpty() || !changed.isEmpty()) {
+                int[] removedParts = removed.stream().mapToInt(Integer::intValue).toArray();
+                patches.add(new Patch(id, removedParts, changed));
+            }
+        }
+
+        List<EntityState> bullets = new ArrayList<>();
+        for (DynamicBody body : w.getDynamicBodies()) {
+            if (body instanceof Bullet) {
+                bullets.add(WorldSnapshot.capture(0, body, true, camera));
+            }
+        }
+
+        return new SaveDelta(w.currentLevelNumber, w.getLevelFile(), checksum(base), elements.size(),
+                GameWorld.score, GameWorld.currentElapsedTimeSeconds, camera,
+                WorldSnapshot.capture(0, w.player, true, camera), patches, bullets);
+    }
+
+    /**
+     * Converts a text saved game, written by older versions, into a delta
+     * with no patch: the level as loaded, scrolled to the saved camera
+     * position, with the saved player, score and time. Health and the other
+     * player state the text format did not record start afresh.
+     *
+     * @param saved     The elements of the text saved game
+     * @param base      The elements of the level it refers to
+     * @param levelFile The level file
+     * @return The equivalent delta, or null if the save does not record the
+     *         player
+     */
+    public static SaveDelta fromText(List<LevelElement> saved, List<LevelElement> base, String levelFile) {
+        int levelNumber = -1;
+        int score = 0;
+        int time = 0;
+        float camera = 0;
+        LevelElement player = null;
+        for (LevelElement element : saved) {
+            switch (element.type) {
+                case "level":
+                    levelNumber = (int) element.params[0];
+                    break;
+                case "score":
+                    score = (int) element.params[0];
+                    break;
+                case "time":
+                    time = (int) element.params[0];
+                    break;
+                case "camera":
+                    camera = element.params[0];
+                    break;
+                case "player":
+                    player = element;
+                    break;
+            }
+        }
+
+        if (player == null) {
+            return null;
+        }
+
+        // The saved player position is relative to the camera
+        EntityState playerState = new EntityState(0, true, player.x + camera, player.y, 0, 0, 0, 0,
+                Player.initialState(player.params.length > 0 && player.params[0] != 0));
+        return new SaveDelta(levelNumber, levelFile, checksum(base), withoutTerrain(base).size(), score, time, camera,
+                playerState, new ArrayList<>(), new ArrayList<>());
+    }
+
+    /**
+     * Checks that the level file is the one the game was saved in
+     *
+     * @param base The elements of the level file
+     * @throws IOException If the level changed or the delta does not fit it
+     */
+    public void checkBase(List<LevelElement> base) throws IOException {
+        List<LevelElement> elements = withoutTerrain(base);
+        if (elements.size() != baseCount || checksum(base) != baseChecksum) {
+            throw new IOException("the level has changed since the game was saved");
+        }
+        for (Patch patch : patches) {
+            LevelElement element = elements.get(patch.id);
+            int parts = Prefabs.isPrefab(element.type) ? Prefabs.expand(element).size() : 1;
+            for (int part : patch.removed) {
+                checkPart(part, parts, element);
+            }
+            for (EntityState entity : patch.changed) {
+                checkPart(entity.part, parts, element);
+            }
+        }
+    }
+
+    /**
+     * Applies the delta to the freshly loaded level. checkBase must have
+     * accepted the level.
+     *
+     * @param w The game world, with the level just built
+     */
+    public void apply(GameWorld w) {
+        WorldSnapshot.scrollTo(w, cameraPosition);
+        List<LevelElement> elements = withoutTerrain(w.liveLevel.getBase());
+        List<List<Body>> occurrences = w.liveLevel.baseOccurrences();
+        for (Patch patch : patches) {
+            LevelElement element = elements.get(patch.id);
+            List<Body> bodies = occurrences.get(patch.id);
+            if (Prefabs.isPrefab(element.type) && w.chunks.isPending(element, bodies)) {
+                // The prefab was reached during play but not yet at the start
+                w.chunks.remove(element, bodies, w);
+                for (LevelElement part : Prefabs.expand(element)) {
+                    bodies.add(LevelFileParser.spawnElement(part, w));
+                }
+            }
+            for (int part : patch.removed) {
+                LevelFileParser.removeBody(bodies.get(part), w);
+            }
+            for (EntityState entity : patch.changed) {
+                WorldSnapshot.apply(bodies.get(entity.part), entity, cameraPosition);
+            }
+        }
+        for (EntityState bullet : bullets) {
+            WorldSnapshot.spawnBullet(bullet, w, cameraPosition);
+        }
+        WorldSnapshot.restoreProgress(w, player, score, time, cameraPosition);
+    }
+
+    /**
+     * Encodes the delta in the binary format
+     *
+     * @return The encoded delta, header included
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            WorldSnapshot.writeHeader(out, VERSION);
+            out.writeInt(levelNumber);
+            out.writeUTF(levelFile);
+            out.writeLong(baseChecksum);
+            out.writeInt(baseCount);
+            out.writeInt(score);
+            out.writeInt(time);
+            out.writeFloat(cameraPosition);
+            writeEntity(out, player);
+            out.writeInt(patches.size());
+            for (Patch patch : patches) {
+                out.writeInt(patch.id);
+                out.writeShort(patch.removed.length);
+                for (int part : patch.removed) {
+                    out.writeShort(part);
+                }
+                out.writeShort(patch.changed.size());
+                for (EntityState entity : patch.changed) {
+                    writeEntity(out, entity);
+                }
+            }
+            out.writeInt(bullets.size());
+            for (EntityState bullet : bullets) {
+                writeEntity(out, bullet);
+            }
+        } catch (IOException e) {
+            // Writing to memory cannot fail
+            throw new IllegalStateException(e);
+        }
+        return WorldSnapshot.seal(bytes.toByteArray());
+    }
+
+    /**
+     * Decodes a delta
+     *
+     * @param data An encoded delta
+     * @return The delta
+     * @throws IOException If the data is not a valid delta
+     */
+    public static SaveDelta decode(byte[] data) throws IOException {
+        DataInputStream in = WorldSnapshot.openPayload(data, VERSION);
+        int levelNumber = in.readInt();
+        String levelFile = in.readUTF();
+        long baseChecksum = in.readLong();
+        int baseCount = in.readInt();
+        int score = in.readInt();
+        int time = in.readInt();
+        float cameraPosition = in.readFloat();
+        EntityState player = readEntity(in);
+        int patchCount = WorldSnapshot.count(in);
+        List<Patch> patches = new ArrayList<>(patchCount);
+        for (int i = 0; i < patchCount; i++) {
+            int id = in.readInt();
+            if (id < 0 || id >= baseCount) {
+                throw new IOException("invalid element " + id);
+            }
+            int[] removed = new int[in.readUnsignedShort()];
+            for (int j = 0; j < removed.length; j++) {
+                removed[j] = in.readUnsignedShort();
+            }
+            int changedCount = in.readUnsignedShort();
+            List<EntityState> changed = new ArrayList<>(changedCount);
+            for (int j = 0; j < changedCount; j++) {
+                changed.add(readEntity(in));
+            }
+            patches.add(new Patch(id, removed, changed));
+        }
+        int bulletCount = WorldSnapshot.count(in);
+        List<EntityState> bullets = new ArrayList<>(bulletCount);
+        for (int i = 0; i < bulletCount; i++) {
+            bullets.add(readEntity(in));
+        }
+        return new SaveDelta(levelNumber, levelFile, baseChecksum, baseCount, score, time, cameraPosition, player,
+                patches, bullets);
+    }
+
+    /**
+     * Writes a saved game atomically (see WorldSnapshot.write)
+     *
+     * @param file The saved game file to create or replace
+     * @throws IOException If the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        WorldSnapshot.writeAtomically(file, encode());
+    }
+
+    /**
+     * @param data An encoded saved game
+     * @return True if it is a delta rather than a full snapshot
+     */
+    public static boolean isDelta(byte[] data) {
+        return WorldSnapshot.version(data) == VERSION;
+    }
+
+    /**
+     * @param elements The elements of a level file
+     * @return Those that are not merged into the terrain, in file order
+     */
+    private static List<LevelElement> withoutTerrain(List<LevelElement> elements) {
+        List<LevelElement> result = new ArrayList<>();
+        for (LevelElement element : elements) {
+            if (!TerrainBuilder.isTerrain(element)) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param elements The elements of a level file
+     * @return A checksum of all their values, in file order
+     */
+    private static long checksum(List<LevelElement> elements) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (LevelElement element : elements) {
+                WorldSnapshot.writeElement(out, element);
+            }
+        } catch (IOException e) {
+            // Writing to memory cannot fail
+            throw new IllegalStateException(e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        return crc.getValue();
+    }
+
+    /**
+     * Rejects a part that the element does not have
+     */
+    private static void checkPart(int part, int parts, LevelElement element) throws IOException {
+        if (part >= parts) {
+            throw new IOException("invalid part " + part + " of " + element.type);
+        }
+    }
+
+    /**
+     * Writes the state of one body, leaving out the position of bodies that
+     * are not in the world and the velocity of bodies that cannot move
+     *
+     * @param out    The output
+     * @param entity The state
+     * @throws IOException Never for in-memory output
+     */
+    private static void writeEntity(DataOutputStream out, EntityState entity) throws IOException {
+        boolean moving = entity.vx != 0 || entity.vy != 0 || entity.spin != 0;
+        out.writeShort(entity.part);
+        out.writeByte((entity.hasBody ? HAS_BODY : 0) | (moving ? MOVING : 0));
+        if (entity.hasBody) {
+            out.writeFloat(entity.x);
+            out.writeFloat(entity.y);
+            out.writeFloat(entity.angle);
+        }
+        if (moving) {
+            out.writeFloat(entity.vx);
+            out.writeFloat(entity.vy);
+            out.writeFloat(entity.spin);
+        }
+        out.writeByte(entity.state.length);
+        for (int value : entity.state) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Reads the state of one body
+     *
+     * @param in The input
+     * @return The state
+     * @throws IOException If the data is truncated
+     */
+    private static EntityState readEntity(DataInputStream in) throws IOException {
+        int part = in.readUnsignedShort();
+        int flags = in.readUnsignedByte();
+        float x = 0;
+        float y = 0;
+        float angle = 0;
+        if ((flags & HAS_BODY) != 0) {
+            x = in.readFloat();
+            y = in.readFloat();
+            angle = in.readFloat();
+        }
+        float vx = 0;
+        float vy = 0;
+        float spin = 0;
+        if ((flags & MOVING) != 0) {
+            vx = in.readFloat();
+            vy = in.readFloat();
+            spin = in.readFloat();
+        }
+        int[] state = new int[in.readUnsignedByte()];
+        for (int i = 0; i < state.length; i++) {
+            state[i] = in.readInt();
+        }
+        return new EntityState(part, (flags & HAS_BODY) != 0, x, y, angle, vx, vy, spin, state);
+    }
+}
@@ -0,0 +1,600 @@
+package service;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * ScoreAnalytics reports on score exports: files of name;level;time;score;
+ * lines, like the old data.txt, possibly merged from many machines and
+ * millions of lines long.
+ *
+ * Usage: java service.ScoreAnalytics [--threads n] [--out report.csv]
+ * [--distribution buckets.csv] [--bucket width] export.txt ...
+ *
+ * The report has one CSV row per level, numbered from 1 as in the game: the
+ * number of results and of distinct players, the minimum, mean, median, 90th
+ * and 99th percentile and maximum of the time and of the score, and the
+ * completion funnel: how many players got at least this far, as a count and
+ * as a share of every player. The distribution file, if asked for, counts
+ * the times and scores of each level in buckets of a fixed width.
+ *
+ * The files are memory-mapped and cut into chunks at line boundaries. Each
+ * chunk is copied from its mapping in one bulk read and parsed as a byte
+ * array, without building a String per line; the chunks are parsed in
+ * parallel. Each chunk counts into its own tables, which are merged at the
+ * end, so the threads share nothing while parsing.
+ * Percentiles are exact: times and scores are counted per value.
+ */
+public class ScoreAnalytics {
+
+    // Size of the chunks the files are cut into, at most
+    private static final long MAX_CHUNK = 16L << 20;
+
+    // Chunks per thread, so uneven chunks still keep every thread busy
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // Longest line; longer ones are malformed, wherever they are
+    private static final int MAX_LINE = 4096;
+
+    // Values counted one by one; larger ones are counted as this value
+    private static final int MAX_VALUE = (1 << 22) - 1;
+
+    // Level numbers accepted
+    private static final int MAX_LEVEL = 1 << 16;
+
+    // Default width of the distribution buckets
+    private static final int DEFAULT_BUCKET = 10;
+
+    // Percentiles reported for times and scores
+    private static final double[] PERCENTILES = { 50, 90, 99 };
+
+    /**
+     * Counts of one level's values, per value
+     */
+    static class ValueCounts {
+        long[] counts = new long[64];
+        long sum = 0;
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+
+        void add(int value) {
+            int slot = Math.min(value, MAX_VALUE);
+            if (slot >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.min(MAX_VALUE + 1, Math.max(slot + 1, 2 * counts.length)));
+            }
+            counts[slot]++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        void addAll(ValueCounts other) {
+            if (other.counts.length > counts.length) {
+                counts = Arrays.copyOf(counts, other.counts.length);
+            }
+            for (int i = 0; i < other.counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+
+        /**
+         * @return The smallest value with at least percentile % of the values
+         *         at or below it
+         */
+        int percentile(double percentile, long total) {
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+            long seen = 0;
+            for (int value = 0; value < counts.length; value++) {
+                seen += counts[value];
+                if (seen >= rank) {
+                    return value;
+                }
+            }
+            return max;
+        }
+    }
+
+    /**
+     * What was counted on one level
+     */
+    static class LevelCounts {
+        long results = 0;
+        final ValueCounts times = new ValueCounts();
+        final ValueCounts scores = new ValueCounts();
+
+        void addAll(LevelCounts other) {
+            results += other.results;
+            times.addAll(other.times);
+            scores.addAll(other.scores);
+        }
+    }
+
+    /**
+     * Interns player names read as bytes, without decoding them: an
+     * open-addressing table from the bytes of a name to a number. A slot packs
+     * the hash and the number in one long, and the names are copied one after
+     * the other into a single array, so a lookup touches few cache lines.
+     */
+    static class NameTable {
+        // Hash in the high half, number + 1 in the low half, 0 if empty
+        private long[] slots = new long[1024];
+
+        // Bytes of the names, name i from starts[i] to starts[i + 1]
+        private byte[] arena = new byte[16 * 1024];
+        private int[] starts = new int[513];
+        private int size = 0;
+
+        /**
+         * @return The number of the name in bytes[from, to), added if new
+         */
+        int intern(byte[] bytes, int from, int to) {
+            int hash = 1;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            int mask = slots.length - 1;
+            for (int slot = spread(hash) & mask;; slot = (slot + 1) & mask) {
+                long entry = slots[slot];
+                if (entry == 0) {
+                    return add(slot, hash, bytes, from, to);
+                }
+                int id = (int) entry - 1;
+                if ((int) (entry >>> 32) == hash && matches(id, bytes, from, to)) {
+                    return id;
+                }
+            }
+        }
+
+        String name(int id) {
+            return new String(arena, starts[id], starts[id + 1] - starts[id], StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return The number of a name of another table in this one, added
+         *         if new
+         */
+        int intern(NameTable other, int id) {
+            return intern(other.arena, other.starts[id], other.starts[id + 1]);
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Scatters the hashes of similar names, like p1 and p2, which would
+         * otherwise fill neighbouring slots
+         */
+        private static int spread(int hash) {
+            int h = hash * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        private boolean matches(int id, byte[] bytes, int from, int to) {
+            int start = starts[id];
+            if (starts[id + 1] - start != to - from) {
+                return false;
+            }
+            for (int i = from; i < to; i++) {
+                if (arena[start++] != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int add(int slot, int hash, byte[] bytes, int from, int to) {
+            int start = starts[size];
+            if (start + to - from > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(2 * arena.length, start + to - from));
+            }
+            System.arraycopy(bytes, from, arena, start, to - from);
+            if (size + 2 > starts.length) {
+                starts = Arrays.copyOf(starts, 2 * starts.length);
+            }
+            starts[size + 1] = start + to - from;
+            slots[slot] = ((long) hash << 32) | (size + 1);
+            size++;
+            if (2 * size > slots.length) {
+                grow();
+            }
+            return size - 1;
+        }
+
+        private void grow() {
+            long[] old = slots;
+            slots = new long[2 * old.length];
+            int mask = slots.length - 1;
+            for (long entry : old) {
+                if (entry != 0) {
+                    int slot = spread((int) (entry >>> 32)) & mask;
+                    while (slots[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    slots[slot] = entry;
+                }
+            }
+        }
+    }
+
+    /**
+     * What was counted in one chunk, or in all of them once merged
+     */
+    static class Counts {
+        final List<LevelCounts> levels = new ArrayList<>();
+
+        // Levels finished by each player, by name number: the first 64
+        // levels as bits of a long, the others in a BitSet
+        final NameTable names = new NameTable();
+        private long[] levelMasks = new long[1024];
+        private final Map<Integer, BitSet> highLevels = new HashMap<>();
+
+        long rows = 0;
+        long malformed = 0;
+
+        LevelCounts level(int level) {
+            while (levels.size() <= level) {
+                levels.add(new LevelCounts());
+            }
+            return levels.get(level);
+        }
+
+        void add(int player, int level, int time, int score) {
+            rows++;
+            LevelCounts counts = level(level);
+            counts.results++;
+            counts.times.add(time);
+            counts.scores.add(score);
+            if (level < Long.SIZE) {
+                addLevels(player, 1L << level);
+            } else {
+                highLevels.computeIfAbsent(player, key -> new BitSet()).set(level);
+            }
+        }
+
+        private void addLevels(int player, long mask) {
+            if (player >= levelMasks.length) {
+                levelMasks = Arrays.copyOf(levelMasks, Math.max(player + 1, 2 * levelMasks.length));
+            }
+            levelMasks[player] |= mask;
+        }
+
+        /**
+         * @return The levels a player finished
+         */
+        BitSet levelsOf(int player) {
+            BitSet levels = BitSet.valueOf(new long[] { player < levelMasks.length ? levelMasks[player] : 0 });
+            BitSet high = highLevels.get(player);
+            if (high != null) {
+                levels.or(high);
+            }
+            return levels;
+        }
+
+        /**
+         * Adds the counts of a chunk to these merged counts
+         */
+        void addAll(Counts chunk) {
+            rows += chunk.rows;
+            malformed += chunk.malformed;
+            for (int level = 0; level < chunk.levels.size(); level++) {
+                level(level).addAll(chunk.levels.get(level));
+            }
+            for (int player = 0; player < chunk.names.size(); player++) {
+                int merged = names.intern(chunk.names, player);
+                if (player < chunk.levelMasks.length) {
+                    addLevels(merged, chunk.levelMasks[player]);
+                }
+                BitSet high = chunk.highLevels.get(player);
+                if (high != null) {
+                    highLevels.computeIfAbsent(merged, key -> new BitSet()).or(high);
+                }
+            }
+        }
+    }
+
+    /**
+     * Analyses the given exports and writes the report
+     *
+     * @param args The options and the export files
+     */
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int bucket = DEFAULT_BUCKET;
+        String out = null;
+        String distribution = null;
+        List<Path> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--threads") && i + 1 < args.length) {
+                    threads = Math.max(1, Integer.parseInt(args[++i]));
+                } else if (args[i].equals("--out") && i + 1 < args.length) {
+                    out = args[++i];
+                } else if (args[i].equals("--distribution") && i + 1 < args.length) {
+                    distribution = args[++i];
+                } else if (args[i].equals("--bucket") && i + 1 < args.length) {
+                    bucket = Math.max(1, Integer.parseInt(args[++i]));
+                } else if (args[i].startsWith("-")) {
+                    files.clear();
+                    break;
+                } else {
+                    files.add(Paths.get(args[i]));
+                }
+            }
+        } catch (NumberFormatException e) {
+            files.clear();
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: java service.ScoreAnalytics [--threads n] [--out report.csv]"
+                    + " [--distribution buckets.csv] [--bucket width] export.txt ...");
+            System.exit(2);
+        }
+
+        try {
+            long start = System.nanoTime();
+            Counts counts = analyse(files, threads);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long bytes = 0;
+            for (Path file : files) {
+                bytes += file.toFile().length();
+            }
+
+            try (PrintStream report = out == null ? null : new PrintStream(out, "UTF-8")) {
+                writeReport(counts, report == null ? System.out : report);
+            }
+            if (distribution != null) {
+                try (PrintStream buckets = new PrintStream(distribution, "UTF-8")) {
+                    writeDistribution(counts, bucket, buckets);
+                }
+            }
+            System.err.printf("%d rows, %d malformed, %d players in %.2fs (%.0f MB/s)%n", counts.rows,
+                    counts.malformed, counts.names.size(), seconds, bytes / 1e6 / seconds);
+        } catch (IOException e) {
+            System.err.println("Failed to analyse " + files);
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Counts the results of export files, in parallel
+     *
+     * @param files   The files
+     * @param threads The number of threads to parse with
+     * @return The merged counts
+     * @throws IOException If a file cannot be read
+     */
+    public static Counts analyse(List<Path> files, int threads) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        // Each thread copies its chunks into the same array
+        ThreadLocal<byte[]> buffer = ThreadLocal.withInitial(() -> new byte[0]);
+        try {
+            List<Future<Counts>> parsed = new ArrayList<>();
+            for (Path file : files) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long size = channel.size();
+                    long chunks = (long) threads * CHUNKS_PER_THREAD;
+                    long chunk = Math.max(MAX_LINE, Math.min(MAX_CHUNK, (size + chunks - 1) / chunks));
+                    for (long start = 0; start < size; start += chunk) {
+                        // Map a byte before the chunk, to tell whether a line
+                        // starts there, and enough after it to end its last
+                        // line; the mappings stay valid once the channel is
+                        // closed
+                        long from = Math.max(0, start - 1);
+                        long to = Math.min(size, start + chunk + MAX_LINE);
+                        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+                        int begin = (int) (start - from);
+                        int end = (int) (Math.min(size, start + chunk) - from);
+                        boolean last = to == size;
+                        parsed.add(pool.submit(() -> {
+                            byte[] data = buffer.get();
+                            if (data.length < bytes.limit()) {
+                                data = new byte[bytes.limit()];
+                                buffer.set(data);
+                            }
+                            bytes.get(data, 0, bytes.limit());
+                            return parse(data, begin, end, bytes.limit(), last);
+                        }));
+                    }
+                }
+            }
+
+            Counts counts = new Counts();
+            for (Future<Counts> chunk : parsed) {
+                counts.addAll(chunk.get());
+            }
+            return counts;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to parse a chunk", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Parses the lines starting in bytes[begin, end)
+     *
+     * @param bytes The bytes of the chunk
+     * @param begin Where the chunk starts; the byte before it, if any, is
+     *              read too
+     * @param end   Where the chunk ends
+     * @param limit Where the bytes end
+     * @param last  Whether the bytes reach the end of the file, so a
+     *              line without a line break is complete
+     * @return The counts of the chunk
+     */
+    static Counts parse(byte[] bytes, int begin, int end, int limit, boolean last) {
+        Counts counts = new Counts();
+        int position = begin;
+
+        // Skip the end of a line started in the previous chunk
+        if (begin > 0 && bytes[begin - 1] != '\n') {
+            while (position < limit && bytes[position] != '\n') {
+                position++;
+            }
+            position++;
+        }
+
+        int[] fields = new int[3];
+        while (position < end) {
+            position = parseLine(bytes, position, limit, last, counts, fields);
+            if (position < 0) {
+                // Longer than MAX_LINE, and so the last line starting in the
+                // chunk
+                counts.malformed++;
+                break;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Parses and counts one name;level;time;score; line, in a single pass.
+     * Anything after the score is ignored.
+     *
+     * @param position Where the line starts
+     * @param fields   Receives the level, time and score
+     * @return Where the next line starts, or -1 if the line does not end
+     *         within the bytes
+     */
+    private static int parseLine(byte[] bytes, int position, int limit, boolean last, Counts counts,
+            int[] fields) {
+        int start = position;
+        while (position < limit && bytes[position] != ';' && bytes[position] != '\n') {
+            position++;
+        }
+        int nameEnd = position;
+        boolean valid = nameEnd > start && position < limit && bytes[position] == ';';
+
+        // Three non-negative ints, each followed by ';' except perhaps the
+        // last
+        for (int field = 0; valid && field < fields.length; field++) {
+            position++;
+            int value = 0;
+            int digits = 0;
+            while (position < limit && digits < 10) {
+                int digit = bytes[position] - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = 10 * value + digit;
+                digits++;
+                position++;
+            }
+            byte next = position < limit ? bytes[position] : (byte) '\n';
+            valid = digits > 0 && digits < 10
+                    && (next == ';' || field == fields.length - 1 && (next == '\n' || next == '\r'));
+            fields[field] = value;
+        }
+
+        while (position < limit && bytes[position] != '\n') {
+            position++;
+        }
+        if (position == limit && !last) {
+            return -1;
+        }
+        if (valid && fields[0] < MAX_LEVEL && position - start <= MAX_LINE) {
+            counts.add(counts.names.intern(bytes, start, nameEnd), fields[0], fields[1], fields[2]);
+        } else if (position > start && !(position == start + 1 && bytes[start] == '\r')) {
+            counts.malformed++;
+        }
+        return position + 1;
+    }
+
+    /**
+     * Writes one CSV row per level
+     */
+    static void writeReport(Counts counts, PrintStream out) {
+        StringBuilder header = new StringBuilder("level,results,players");
+        for (String metric : new String[] { "time", "score" }) {
+            header.append(',').append(metric).append("_min,").append(metric).append("_mean");
+            for (double percentile : PERCENTILES) {
+                header.append(',').append(metric).append("_p").append((int) percentile);
+            }
+            header.append(',').append(metric).append("_max");
+        }
+        out.println(header.append(",reached,reached_share"));
+
+        // Players per level, and players whose furthest level is each level
+        int levelCount = counts.levels.size();
+        long[] players = new long[levelCount];
+        long[] furthest = new long[levelCount];
+        for (int player = 0; player < counts.names.size(); player++) {
+            BitSet levels = counts.levelsOf(player);
+            for (int level = levels.nextSetBit(0); level >= 0; level = levels.nextSetBit(level + 1)) {
+                players[level]++;
+            }
+            furthest[levels.length() - 1]++;
+        }
+
+        long reached = counts.names.size();
+        for (int level = 0; level < levelCount; level++) {
+            LevelCounts stats = counts.levels.get(level);
+            if (stats.results > 0) {
+                StringBuilder row = new StringBuilder();
+                row.append(level + 1).append(',').append(stats.results).append(',').append(players[level]);
+                appendValues(row, stats.times, stats.results);
+                appendValues(row, stats.scores, stats.results);
+                row.append(',').append(reached).append(',')
+                        .append(String.format("%.4f", (double) reached / counts.names.size()));
+                out.println(row);
+            }
+            reached -= furthest[level];
+        }
+    }
+
+    private static void appendValues(StringBuilder row, ValueCounts values, long total) {
+        row.append(',').append(values.min).append(',').append(String.format("%.2f", (double) values.sum / total));
+        for (double percentile : PERCENTILES) {
+            row.append(',').append(values.percentile(percentile, total));
+        }
+        row.append(',').append(values.max);
+    }
+
+    /**
+     * Writes the number of times and scores of each level in each bucket, as
+     * level,metric,from,to,count CSV rows, leaving out empty buckets
+     */
+    static void writeDistribution(Counts counts, int bucket, PrintStream out) {
+        out.println("level,metric,from,to,count");
+        for (int level = 0; level < counts.levels.size(); level++) {
+            LevelCounts stats = counts.levels.get(level);
+            writeBuckets(level + 1, "time", stats.times, bucket, out);
+            writeBuckets(level + 1, "score", stats.scores, bucket, out);
+        }
+    }
+
+    private static void writeBuckets(int level, String metric, ValueCounts values, int bucket, PrintStream out) {
+        for (int from = 0; from < values.counts.length; from += bucket) {
+            long count = 0;
+            for (int value = from; value < Math.min(from + bucket, values.counts.length); value++) {
+                count += values.counts[value];
+            }
+            if (count > 0) {
+                out.println(level + "," + metric + "," + from + "," + (from + bucket - 1) + "," + count);
+            }
+        }
+    }
+}
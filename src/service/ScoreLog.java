@@ -0,0 +1,726 @@
+package service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import assets.GameFileManager;
+
+/**
+ * ScoreLog stores the results of every player in three binary files, so the
+ * scoreboard can be loaded without reading the whole history:
+ *
+ * - scores.log is an append-only log of fixed-width records: player id,
+ * level, time and score, four ints each
+ * - players.dat interns the player names; a player's id is the position of
+ * its name in the file
+ * - scores.idx is a memory-mapped index with one fixed-width slot per player
+ * and level. A slot counts the results and their total time and holds the
+ * record numbers of the best score, the best time and the best total score.
+ *
+ * Loading reads the players and the index, then only the records the index
+ * points to, so it depends on the number of players and levels and not on the
+ * number of results. A record that is no longer the best of its slot is
+ * superseded; compact() rewrites the log without them once they outnumber
+ * the others. The log and the index share a generation number, so an index
+ * that does not match its log is rebuilt from the log.
+ *
+ * Several game processes may share the files. Every operation holds an
+ * exclusive FileChannel lock on scores.lock, and first catches up with what
+ * the other processes wrote since: new players, new slots and new records,
+ * read from where it stopped last time. Records are always appended at the
+ * real end of the log, so two processes never write the same record.
+ * refresh() hands the records written by other processes to the game; a
+ * compaction by another process changes the generation, after which the
+ * game has to load() again.
+ *
+ * The first time the log is opened, the results in the old data.txt text
+ * file are imported into it. data.txt is left in place and no longer read.
+ *
+ * Every method is synchronized; writes are meant to run on the IoExecutor.
+ */
+public class ScoreLog {
+
+    // File names, in the game's working directory
+    public static final String LOG_FILE = "scores.log";
+    public static final String INDEX_FILE = "scores.idx";
+    public static final String PLAYERS_FILE = "players.dat";
+    public static final String LOCK_FILE = "scores.lock";
+    public static final String LEGACY_FILE = "data.txt";
+
+    // "PSCL", "PSIX" and "PSPL" in ASCII
+    private static final int LOG_MAGIC = 0x5053434C;
+    private static final int INDEX_MAGIC = 0x50534958;
+    private static final int PLAYERS_MAGIC = 0x5053504C;
+    private static final int VERSION = 1;
+
+    // Log layout: magic, version, generation, then the records
+    private static final int LOG_HEADER = 12;
+    private static final int RECORD_SIZE = 16;
+
+    // Index layout: magic, version, generation, slot count, indexed records,
+    // padded to one slot, then the slots
+    private static final int INDEX_HEADER = 32;
+    private static final int SLOT_SIZE = 32;
+    private static final int INITIAL_SLOTS = 64;
+
+    // Header fields of the index, as offsets
+    private static final int INDEX_GENERATION = 8;
+    private static final int INDEX_SLOTS = 12;
+    private static final int INDEX_RECORDS = 16;
+
+    // Slot fields, as offsets in the slot
+    private static final int SLOT_PLAYER = 0;
+    private static final int SLOT_LEVEL = 4;
+    private static final int SLOT_COUNT = 8;
+    private static final int SLOT_TIME = 12;
+    private static final int SLOT_BEST_SCORE = 16;
+    private static final int SLOT_BEST_TIME = 20;
+    private static final int SLOT_BEST_TOTAL = 24;
+
+    // Superseded records tolerated before compacting, beyond the live ones
+    private static final int COMPACT_MIN = 4096;
+
+    /**
+     * Receives the results kept in the log
+     */
+    public interface ResultConsumer {
+        void accept(String name, int level, int time, int score);
+
+        /**
+         * Receives, after load() passed a player's best results on a level,
+         * how many results the log recorded there and their total time
+         */
+        default void acceptTotals(String name, int level, int count, long totalTime) {
+        }
+    }
+
+    private final Path logFile;
+    private final Path indexFile;
+    private final Path playersFile;
+    private final Path lockFile;
+    private final Path legacyFile;
+
+    // Open files, null until load()
+    private FileChannel lockChannel;
+    private FileChannel log;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int generation;
+
+    // Interned players, by id and by name, and the bytes of the players
+    // file they were read from
+    private final List<String> players = new ArrayList<>();
+    private final Map<String, Integer> playerIds = new HashMap<>();
+    private long playersLength;
+
+    // Slot of each player and level; the key packs both ints
+    private final Map<Long, Integer> slots = new HashMap<>();
+
+    // Number of records in the log
+    private int records;
+
+    // Records the game has seen: those before this number, and the ones
+    // this process appended after it
+    private int seen;
+    private final Set<Integer> ownRecords = new HashSet<>();
+
+    // Whether another process compacted the log since the last load()
+    private boolean stale;
+
+    /**
+     * Creates a score log in a directory; nothing is read until load()
+     *
+     * @param directory The directory of the files
+     */
+    public ScoreLog(Path directory) {
+        logFile = directory.resolve(LOG_FILE);
+        indexFile = directory.resolve(INDEX_FILE);
+        playersFile = directory.resolve(PLAYERS_FILE);
+        lockFile = directory.resolve(LOCK_FILE);
+        legacyFile = directory.resolve(LEGACY_FILE);
+    }
+
+    /**
+     * Opens the log, importing data.txt the first time, and passes the
+     * results it keeps to a consumer: for each player and level, the results
+     * with the best score, the best time and the best total score
+     *
+     * @param consumer Receives the results, each once
+     * @throws IOException If the files cannot be read or created
+     */
+    public synchronized void load(ResultConsumer consumer) throws IOException {
+        close();
+        lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock = lockChannel.lock();
+        try {
+            boolean isNew = !Files.exists(logFile);
+            if (isNew) {
+                Files.deleteIfExists(indexFile);
+                Files.deleteIfExists(playersFile);
+            }
+            players.clear();
+            playerIds.clear();
+            playersLength = 0;
+            readPlayers();
+            openLog();
+            openIndex();
+            if (isNew && Files.exists(legacyFile)) {
+                importLegacy();
+            }
+
+            // Only the records the index points to
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            int slotCount = index.getInt(INDEX_SLOTS);
+            for (int slot = 0; slot < slotCount; slot++) {
+                Set<Integer> best = new LinkedHashSet<>();
+                best.add(index.getInt(slotOffset(slot) + SLOT_BEST_TOTAL));
+                best.add(index.getInt(slotOffset(slot) + SLOT_BEST_SCORE));
+                best.add(index.getInt(slotOffset(slot) + SLOT_BEST_TIME));
+                for (int recordNumber : best) {
+                    readRecord(recordNumber, record);
+                    consumer.accept(players.get(record.getInt(0)), record.getInt(4), record.getInt(8),
+                            record.getInt(12));
+                }
+                consumer.acceptTotals(players.get(index.getInt(slotOffset(slot) + SLOT_PLAYER)),
+                        index.getInt(slotOffset(slot) + SLOT_LEVEL), index.getInt(slotOffset(slot) + SLOT_COUNT),
+                        Integer.toUnsignedLong(index.getInt(slotOffset(slot) + SLOT_TIME)));
+            }
+            seen = records;
+            ownRecords.clear();
+            stale = false;
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Appends a result at the end of the log and updates the index
+     *
+     * @param name  The player's name
+     * @param level The level number
+     * @param time  The time taken, in seconds
+     * @param score The score achieved
+     * @throws IOException If the files cannot be written
+     */
+    public synchronized void append(String name, int level, int time, int score) throws IOException {
+        appendAll(Collections.singletonList(new ScoreService.Result(name, level, time, score)));
+    }
+
+    /**
+     * Appends results at the end of the log and updates the index, taking
+     * the lock once for all of them
+     *
+     * @param results The results, in order
+     * @throws IOException If the files cannot be written
+     */
+    public synchronized void appendAll(List<ScoreService.Result> results) throws IOException {
+        if (log == null) {
+            throw new IOException("Score log is not loaded");
+        }
+        FileLock lock = lockChannel.lock();
+        try {
+            catchUp();
+            for (ScoreService.Result result : results) {
+                ownRecords.add(write(result.name, result.level, result.time, result.score));
+            }
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Passes the results other processes appended since the last call to a
+     * consumer, reading only the end of the log
+     *
+     * @param consumer Receives the new results, in the order they were
+     *                 appended
+     * @return False if another process compacted the log, in which case
+     *         nothing is passed and the log must be loaded again
+     * @throws IOException If the files cannot be read
+     */
+    public synchronized boolean refresh(ResultConsumer consumer) throws IOException {
+        if (log == null) {
+            return false;
+        }
+        FileLock lock = lockChannel.lock();
+        try {
+            catchUp();
+            if (stale) {
+                return false;
+            }
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            for (int recordNumber = seen; recordNumber < records; recordNumber++) {
+                if (!ownRecords.contains(recordNumber)) {
+                    readRecord(recordNumber, record);
+                    consumer.accept(players.get(record.getInt(0)), record.getInt(4), record.getInt(8),
+                            record.getInt(12));
+                }
+            }
+            seen = records;
+            ownRecords.clear();
+            return true;
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * @return True if superseded records outnumber the live ones enough to
+     *         be worth a compaction
+     */
+    public synchronized boolean needsCompaction() {
+        if (log == null) {
+            return false;
+        }
+        int live = 3 * slots.size();
+        return records - live > Math.max(COMPACT_MIN, live);
+    }
+
+    /**
+     * Rewrites the log with only the records the index points to. Nothing
+     * is done while results of other processes have not been refreshed yet,
+     * since compacting changes the record numbers.
+     *
+     * The new log is written next to the old one. The index is then
+     * rewritten in place for the new log and its generation, and the new log
+     * is moved over the old one. The index is marked invalid while it is
+     * being rewritten, and until the move it does not match the generation
+     * of the old log, so after a crash at any point it is rebuilt from
+     * whichever log is in place.
+     *
+     * @throws IOException If the files cannot be written
+     */
+    public synchronized void compact() throws IOException {
+        if (log == null) {
+            return;
+        }
+        FileLock lock = lockChannel.lock();
+        try {
+            catchUp();
+            for (int recordNumber = seen; recordNumber < records && !stale; recordNumber++) {
+                if (!ownRecords.contains(recordNumber)) {
+                    return;
+                }
+            }
+            int slotCount = slots.size();
+            int newGeneration = generation + 1;
+
+            // Live records in log order, and their new numbers
+            int[] live = new int[3 * slotCount];
+            for (int slot = 0; slot < slotCount; slot++) {
+                live[3 * slot] = index.getInt(slotOffset(slot) + SLOT_BEST_SCORE);
+                live[3 * slot + 1] = index.getInt(slotOffset(slot) + SLOT_BEST_TIME);
+                live[3 * slot + 2] = index.getInt(slotOffset(slot) + SLOT_BEST_TOTAL);
+            }
+            int[] kept = Arrays.stream(live).sorted().distinct().toArray();
+
+            // New log
+            Path newLog = logFile.resolveSibling(LOG_FILE + ".tmp");
+            try (FileChannel out = FileChannel.open(newLog, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocate(LOG_HEADER + kept.length * RECORD_SIZE);
+                buffer.putInt(LOG_MAGIC).putInt(VERSION).putInt(newGeneration);
+                ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+                for (int recordNumber : kept) {
+                    readRecord(recordNumber, record);
+                    buffer.put(record);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            }
+
+            // Index pointing to the new record numbers
+            index.putInt(INDEX_GENERATION, -1);
+            index.force();
+            for (int slot = 0; slot < slotCount; slot++) {
+                int offset = slotOffset(slot);
+                index.putInt(offset + SLOT_BEST_SCORE, Arrays.binarySearch(kept, live[3 * slot]));
+                index.putInt(offset + SLOT_BEST_TIME, Arrays.binarySearch(kept, live[3 * slot + 1]));
+                index.putInt(offset + SLOT_BEST_TOTAL, Arrays.binarySearch(kept, live[3 * slot + 2]));
+            }
+            index.putInt(INDEX_RECORDS, kept.length);
+            index.putInt(INDEX_GENERATION, newGeneration);
+            index.force();
+
+            // New log in place
+            log.close();
+            Files.move(newLog, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            openLog();
+            seen = records;
+            ownRecords.clear();
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * @return The number of records in the log
+     */
+    public synchronized int getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Closes the files; load() opens them again
+     */
+    public synchronized void close() {
+        try {
+            if (log != null) {
+                log.close();
+            }
+            if (indexChannel != null) {
+                indexChannel.close();
+            }
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to close score log");
+            e.printStackTrace();
+        }
+        log = null;
+        indexChannel = null;
+        index = null;
+        lockChannel = null;
+    }
+
+    /**
+     * Brings this process up to date with what other processes wrote since
+     * it last held the lock; the caller holds the lock
+     *
+     * @throws IOException If the files cannot be read
+     */
+    private void catchUp() throws IOException {
+        readPlayers();
+        if (index.getInt(INDEX_GENERATION) != generation) {
+            // Compacted or rebuilt: the record numbers changed
+            log.close();
+            openLog();
+            openIndex();
+            stale = true;
+            ownRecords.clear();
+            return;
+        }
+        countRecords();
+        readSlots();
+        indexTail();
+    }
+
+    /**
+     * Reads the player names added to the players file since the last call
+     *
+     * @throws IOException If the file exists but cannot be read
+     */
+    private void readPlayers() throws IOException {
+        if (!Files.exists(playersFile) || Files.size(playersFile) <= playersLength) {
+            return;
+        }
+        byte[] bytes;
+        try (FileChannel channel = FileChannel.open(playersFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) (channel.size() - playersLength));
+            while (buffer.hasRemaining() && channel.read(buffer, playersLength + buffer.position()) >= 0) {
+                // Read until the buffer is full
+            }
+            bytes = buffer.array();
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        int length = 0;
+        try {
+            if (playersLength == 0) {
+                if (in.readInt() != PLAYERS_MAGIC || in.readInt() != VERSION) {
+                    throw new IOException("Not a players file: " + playersFile);
+                }
+                length = 8;
+            }
+            while (length < bytes.length) {
+                String name = in.readUTF();
+                playerIds.put(name, players.size());
+                players.add(name);
+                length = bytes.length - in.available();
+            }
+        } catch (EOFException e) {
+            // A name cut short by a crash, dropped so the next one is readable
+            try (FileChannel channel = FileChannel.open(playersFile, StandardOpenOption.WRITE)) {
+                channel.truncate(playersLength + length);
+            }
+        }
+        playersLength += length;
+    }
+
+    /**
+     * @param name A player's name
+     * @return The player's id, adding the name to the players file if new
+     * @throws IOException If the players file cannot be written
+     */
+    private int intern(String name) throws IOException {
+        Integer id = playerIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        if (playersLength == 0) {
+            out.writeInt(PLAYERS_MAGIC);
+            out.writeInt(VERSION);
+        }
+        out.writeUTF(name);
+        Files.write(playersFile, bytes.toByteArray(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        playersLength += bytes.size();
+        playerIds.put(name, players.size());
+        players.add(name);
+        return players.size() - 1;
+    }
+
+    /**
+     * Appends a record and indexes it; the caller holds the lock
+     *
+     * @return The number of the new record
+     */
+    private int write(String name, int level, int time, int score) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.putInt(intern(name)).putInt(level).putInt(time).putInt(score).flip();
+        long position = recordOffset(records);
+        while (record.hasRemaining()) {
+            position += log.write(record, position);
+        }
+        records++;
+        index(record, records - 1);
+        index.putInt(INDEX_RECORDS, records);
+        return records - 1;
+    }
+
+    /**
+     * Opens the log, creating it if needed
+     *
+     * @throws IOException If the log cannot be opened or is not a score log
+     */
+    private void openLog() throws IOException {
+        log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (log.size() < LOG_HEADER) {
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER);
+            header.putInt(LOG_MAGIC).putInt(VERSION).putInt(0).flip();
+            log.truncate(0);
+            log.write(header, 0);
+        }
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER);
+        log.read(header, 0);
+        if (header.getInt(0) != LOG_MAGIC || header.getInt(4) != VERSION) {
+            close();
+            throw new IOException("Not a score log: " + logFile);
+        }
+        generation = header.getInt(8);
+        countRecords();
+    }
+
+    /**
+     * Counts the records of the log, dropping a record cut short by a crash
+     *
+     * @throws IOException If the log cannot be read
+     */
+    private void countRecords() throws IOException {
+        records = (int) ((log.size() - LOG_HEADER) / RECORD_SIZE);
+        if (log.size() > recordOffset(records)) {
+            log.truncate(recordOffset(records));
+        }
+    }
+
+    /**
+     * Maps the index, rebuilding it if it does not match the log and
+     * indexing the records appended after it was last written. A rebuilt
+     * index starts a new generation, so other processes notice it.
+     *
+     * @throws IOException If the index cannot be mapped
+     */
+    private void openIndex() throws IOException {
+        if (indexChannel == null) {
+            indexChannel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        }
+        boolean valid = false;
+        if (indexChannel.size() >= INDEX_HEADER) {
+            map(indexChannel.size());
+            valid = index.getInt(0) == INDEX_MAGIC && index.getInt(4) == VERSION
+                    && index.getInt(INDEX_GENERATION) == generation && index.getInt(INDEX_RECORDS) <= records
+                    && indexChannel.size() >= slotOffset(index.getInt(INDEX_SLOTS));
+        }
+        if (!valid) {
+            generation++;
+            ByteBuffer header = ByteBuffer.allocate(4);
+            header.putInt(generation).flip();
+            log.write(header, 8);
+            map(Math.max(indexChannel.size(), slotOffset(INITIAL_SLOTS)));
+            for (int i = 0; i < INDEX_HEADER; i += 4) {
+                index.putInt(i, 0);
+            }
+            index.putInt(0, INDEX_MAGIC).putInt(4, VERSION).putInt(INDEX_GENERATION, generation);
+        }
+        slots.clear();
+        readSlots();
+        indexTail();
+    }
+
+    /**
+     * Reads the slots added to the index since the last call, mapping more
+     * of the file if another process made it grow
+     *
+     * @throws IOException If the index cannot be mapped
+     */
+    private void readSlots() throws IOException {
+        int slotCount = index.getInt(INDEX_SLOTS);
+        if (index.capacity() < slotOffset(slotCount)) {
+            map(indexChannel.size());
+        }
+        for (int slot = slots.size(); slot < slotCount; slot++) {
+            int offset = slotOffset(slot);
+            slots.put(key(index.getInt(offset + SLOT_PLAYER), index.getInt(offset + SLOT_LEVEL)), slot);
+        }
+    }
+
+    /**
+     * Indexes the records the index has not seen yet, written by a process
+     * that stopped before updating the index
+     *
+     * @throws IOException If the records cannot be read
+     */
+    private void indexTail() throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        for (int recordNumber = index.getInt(INDEX_RECORDS); recordNumber < records; recordNumber++) {
+            readRecord(recordNumber, record);
+            if (record.getInt(0) < players.size()) {
+                index(record, recordNumber);
+            }
+        }
+        index.putInt(INDEX_RECORDS, records);
+    }
+
+    /**
+     * Imports the results of the old data.txt file; the caller holds the
+     * lock
+     */
+    private void importLegacy() throws IOException {
+        int imported = 0;
+        for (String dataLine : GameFileManager.ReadTextLevel(legacyFile.toString())) {
+            try {
+                List<String> dataFields = GameFileManager.AnalyseLine(dataLine);
+                write(dataFields.get(0), Integer.valueOf(dataFields.get(1)), Integer.valueOf(dataFields.get(2)),
+                        Integer.valueOf(dataFields.get(3)));
+                imported++;
+            } catch (Exception e) {
+                // Skip invalid data entries
+            }
+        }
+        log.force(false);
+        System.out.println("Imported " + imported + " results from " + legacyFile + " into " + logFile);
+    }
+
+    /**
+     * Updates the slot of a record's player and level
+     *
+     * @param record       The record, as read or written
+     * @param recordNumber Its number in the log
+     * @throws IOException If the index has to grow and cannot
+     */
+    private void index(ByteBuffer record, int recordNumber) throws IOException {
+        int player = record.getInt(0);
+        int level = record.getInt(4);
+        int time = record.getInt(8);
+        int score = record.getInt(12);
+        Integer slot = slots.get(key(player, level));
+        if (slot == null) {
+            // New slot, pointing to this record for every metric
+            slot = slots.size();
+            if (index.capacity() < slotOffset(slot + 1)) {
+                map(Math.max(indexChannel.size(), slotOffset(2 * (slot + 1))));
+            }
+            slots.put(key(player, level), slot);
+            int offset = slotOffset(slot);
+            index.putInt(offset + SLOT_PLAYER, player).putInt(offset + SLOT_LEVEL, level);
+            index.putInt(offset + SLOT_COUNT, 1).putInt(offset + SLOT_TIME, time);
+            index.putInt(offset + SLOT_BEST_SCORE, recordNumber).putInt(offset + SLOT_BEST_TIME, recordNumber)
+                    .putInt(offset + SLOT_BEST_TOTAL, recordNumber);
+            index.putInt(INDEX_SLOTS, slots.size());
+            return;
+        }
+
+        int offset = slotOffset(slot);
+        index.putInt(offset + SLOT_COUNT, index.getInt(offset + SLOT_COUNT) + 1);
+        index.putInt(offset + SLOT_TIME, index.getInt(offset + SLOT_TIME) + time);
+        ByteBuffer best = ByteBuffer.allocate(RECORD_SIZE);
+        readRecord(index.getInt(offset + SLOT_BEST_SCORE), best);
+        if (score > best.getInt(12)) {
+            index.putInt(offset + SLOT_BEST_SCORE, recordNumber);
+        }
+        readRecord(index.getInt(offset + SLOT_BEST_TIME), best);
+        if (time < best.getInt(8)) {
+            index.putInt(offset + SLOT_BEST_TIME, recordNumber);
+        }
+        readRecord(index.getInt(offset + SLOT_BEST_TOTAL), best);
+        if ((60 - time) + score > (60 - best.getInt(8)) + best.getInt(12)) {
+            index.putInt(offset + SLOT_BEST_TOTAL, recordNumber);
+        }
+    }
+
+    /**
+     * Maps the index file, growing it to a size
+     *
+     * @param size The size to map, in bytes
+     * @throws IOException If the file cannot be mapped
+     */
+    private void map(long size) throws IOException {
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * Reads a record of the log
+     *
+     * @param recordNumber The record number
+     * @param record       A buffer of RECORD_SIZE bytes to read into
+     * @throws IOException If the record cannot be read
+     */
+    private void readRecord(int recordNumber, ByteBuffer record) throws IOException {
+        record.clear();
+        long position = recordOffset(recordNumber);
+        while (record.hasRemaining()) {
+            if (log.read(record, position + record.position()) < 0) {
+                throw new EOFException("Missing score record " + recordNumber);
+            }
+        }
+        record.flip();
+    }
+
+    private static long recordOffset(int recordNumber) {
+        return LOG_HEADER + (long) recordNumber * RECORD_SIZE;
+    }
+
+    private static int slotOffset(int slot) {
+        return INDEX_HEADER + slot * SLOT_SIZE;
+    }
+
+    private static long key(int player, int level) {
+        return ((long) player << 32) | (level & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,97 @@
+package service;
+
+import java.io.IOException;
+import java.util.List;
+
+import assets.GameFileManager;
+
+/**
+ * ScoreService records level results and answers leaderboard queries.
+ *
+ * The ScoreboardManager is its client. By default the service is a
+ * LeaderboardStore in the game process, over the score log in the working
+ * directory. Started with -Dplatformer.leaderboardService=http://host:port,
+ * the game uses an HttpScoreService instead, talking to a LeaderboardServer
+ * that owns the store and is shared by every game pointed at it.
+ */
+public interface ScoreService {
+
+    /**
+     * A level result: who finished which level, how fast and with which
+     * score. Written as name;level;time;score; like the old data.txt lines,
+     * so a name keeps no ';' or line break, which would split the line.
+     */
+    class Result {
+        public final String name;
+        public final int level;
+        public final int time;
+        public final int score;
+
+        public Result(String name, int level, int time, int score) {
+            this.name = cleanName(name);
+            this.level = level;
+            this.time = time;
+            this.score = score;
+        }
+
+        /**
+         * @param name A player's name
+         * @return The name with each ';' and line break replaced by '_'
+         */
+        public static String cleanName(String name) {
+            return name.replace(';', '_').replace('\n', '_').replace('\r', '_');
+        }
+
+        /**
+         * @return The result as a name;level;time;score; line
+         */
+        public String toLine() {
+            return name + ";" + level + ";" + time + ";" + score + ";";
+        }
+
+        /**
+         * @param line A name;level;time;score; line
+         * @return The result, or null if the line is not one
+         */
+        public static Result parse(String line) {
+            List<String> fields = GameFileManager.AnalyseLine(line);
+            try {
+                return new Result(fields.get(0), Integer.parseInt(fields.get(1)), Integer.parseInt(fields.get(2)),
+                        Integer.parseInt(fields.get(3)));
+            } catch (IndexOutOfBoundsException | NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Records results
+     *
+     * @param batchId Identifies the batch; a batch sent again under the same
+     *                id, because the answer to it was lost, is recorded once
+     * @param results The results, in the order they were achieved
+     * @throws IOException If the results could not be recorded
+     */
+    void submit(String batchId, List<Result> results) throws IOException;
+
+    /**
+     * Reads a page of a leaderboard and where a player ranks on it
+     *
+     * @param level    A level number, or ScoreboardManager.ALL_LEVELS
+     * @param metric   What to rank by
+     * @param page     The page number, from 0
+     * @param pageSize The number of entries per page
+     * @param name     The player whose rank is wanted
+     * @return The page
+     * @throws IOException If the service cannot be reached
+     */
+    LeaderboardView query(int level, Leaderboard.Metric metric, int page, int pageSize, String name)
+            throws IOException;
+
+    /**
+     * @param name A player's name
+     * @return The results kept for the player: their best ones on each level
+     * @throws IOException If the service cannot be reached
+     */
+    List<Result> playerResults(String name) throws IOException;
+}
@@ -1,89 +1,430 @@
 package service;
 
 import java.awt.Color;
+import java.awt.Font;
 import java.awt.Graphics2D;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.function.IntConsumer;
 
-import ui.GameView;
+import javax.swing.SwingUtilities;
 
-import service.PlayerProgressTracker.LevelData;
-import assets.GameFileManager;
+import ui.GameView;
 
 /**
  * ScoreboardManager handles loading, processing, and displaying player scores
  * and rankings.
  * It maintains a database of player achievements and provides visualization in
  * different formats:
- * - Global scoreboard showing top players across all levels
+ * - Global scoreboard showing top players across all levels, or on one
+ * level, ranked by score, time or combined score, a page at a time
  * - Player-specific scoreboard showing individual achievements and progress
+ * 
+ * It is the client of a ScoreService. By default that is a LeaderboardStore
+ * in this process: the score log is read once, by ensureLoaded, and after
+ * that the leaderboards are kept up to date in memory. recordResult ranks a
+ * result in O(log n) and queues it; the queued results are sent to the
+ * service in one batch by the IoExecutor. Other game processes may share the
+ * log; refresh adds the results they appended since.
+ * 
+ * Started with -Dplatformer.leaderboardService=http://host:port, the game
+ * keeps only the current player's results and asks a LeaderboardServer for
+ * the leaderboard pages instead. Pages, ranks and the player's own results
+ * are fetched on the IoExecutor, after the results queued before them, and
+ * shown once they arrive, so the event thread never waits for the server.
+ * 
+ * What is drawn is prepared as ScoreboardRows when the scores or the page
+ * change, so a repaint only draws the strings of one page.
  */
 public class ScoreboardManager {
-    // Maps player names to their progress data
-    public static Map<String, PlayerProgressTracker> playerDataMap = new HashMap<String, PlayerProgressTracker>();
+    // Address of the leaderboard server, or null to keep the scores locally
+    public static final String SERVICE_URL = System.getProperty("platformer.leaderboardService");
+
+    // Level number of the leaderboards across all levels
+    public static final int ALL_LEVELS = LeaderboardStore.ALL_LEVELS;
+
+    // The score log and the scores of this process, used when there is no
+    // server
+    private static final ScoreLog scoreLog = new ScoreLog(Paths.get(""));
+    private static final LeaderboardStore localStore = new LeaderboardStore(scoreLog);
+
+    // Where results are sent and pages read from
+    private static final ScoreService service = SERVICE_URL == null ? localStore : new HttpScoreService(SERVICE_URL);
+
+    // Maps player names to their progress data; with a server, only the
+    // current player's
+    public static Map<String, PlayerProgressTracker> playerDataMap = SERVICE_URL == null ? localStore.getPlayers()
+            : new HashMap<String, PlayerProgressTracker>();
+
+    // Whether the scores have been read, and whether the score log is being
+    // read on the IoExecutor
+    private static boolean loaded = false;
+    private static boolean reading = false;
 
-    // Sorted map of players by score for ranking
-    private static SortedMap<Integer, PlayerProgressTracker> rankedPlayerData = new TreeMap<Integer, PlayerProgressTracker>();
+    // Results recorded but not sent to the service yet, and whether a task to
+    // send them is queued
+    private static final List<ScoreService.Result> pending = new ArrayList<>();
+    private static boolean sendQueued = false;
+
+    // A batch that may not have reached the service, sent again under the
+    // same id before any newer results; only used on the IoExecutor
+    private static List<ScoreService.Result> unsent = null;
+    private static String unsentId = null;
+
+    // While the score log is read from the start, the results recorded since
+    // the reading started, to rank again on top of what it read
+    private static List<ScoreService.Result> recordedWhileReading = null;
+
+    // Latest leaderboard page, for the player it was read for, and the page
+    // being fetched from the server
+    private static volatile LeaderboardView view = null;
+    private static volatile String viewPlayer = null;
+    private static String fetching = null;
+
+    // Incremented whenever the scores change, so prepared rows are rebuilt
+    // and scores read from the server before are not applied over them
+    private static int version = 0;
+
+    // Rows last drawn for each scoreboard
+    private static ScoreboardRows leaderboardRows = null;
+    private static ScoreboardRows playerRows = null;
 
     // Rendering constants
-    private static final int MAX_DISPLAYED_ENTRIES = 5;
+    public static final int MAX_DISPLAYED_ENTRIES = 5;
     private static final int COLUMN_X_NAME = 210;
     private static final int COLUMN_X_SCORE = 310;
     private static final int COLUMN_X_TIME = 410;
     private static final int COLUMN_X_LEVEL = 510;
-    private static final int GLOBAL_SCOREBOARD_Y = 230;
     private static final int PLAYER_SCOREBOARD_Y = 260;
     private static final int ROW_HEIGHT = 30;
+    private static final int FOOTER_X = 210;
+    private static final int FOOTER_Y = 420;
+    private static final int FOOTER_LINE_HEIGHT = 20;
+    private static final Color OWN_ROW_COLOR = new Color(255, 220, 90);
+    private static final Font FOOTER_FONT = new Font("", Font.BOLD, 14);
+
+    /**
+     * Loads the player score data from the score log, unless it was already
+     * loaded
+     */
+    public static void ensureLoaded() {
+        if (!loaded) {
+            loadScoreboardData();
+        }
+    }
 
     /**
-     * Loads player score data from the data file
-     * Parses player names, levels, times, and scores
+     * Loads the player score data if it was not loaded yet, or else adds the
+     * results other game processes recorded since the last refresh. If
+     * another process compacted the log meanwhile, everything is loaded
+     * again. With a server, reads the current player's results from it. The
+     * scores are read in the background and shown once read.
+     */
+    public static void refresh() {
+        version++;
+        view = null;
+        fetching = null;
+        if (SERVICE_URL != null || !loaded) {
+            loadScoreboardData();
+            return;
+        }
+        readScoreLog(false);
+    }
+
+    /**
+     * Loads player score data from the score log, importing data.txt the
+     * first time. Each player gets their best results on each level. With a
+     * server, only the current player's results are read, from the server.
+     * Either way they are read in the background.
      */
     public static void loadScoreboardData() {
-        // Clear existing data
-        playerDataMap.clear();
-        rankedPlayerData.clear();
+        loaded = true;
+        version++;
+        view = null;
+        if (SERVICE_URL == null) {
+            readScoreLog(true);
+            return;
+        }
 
-        // Read data from file
-        List<String> dataLines = GameFileManager.ReadTextLevel("data.txt");
+        // Read after this process's own results queued so far are sent
+        String playerName = PlayerManager.name;
+        int loadVersion = version;
+        IoExecutor.submit(null, "Failed to read the scores of " + playerName + " from " + SERVICE_URL, () -> {
+            List<ScoreService.Result> results = service.playerResults(playerName);
+            SwingUtilities.invokeLater(() -> {
+                // A result recorded meanwhile is in the player's record but
+                // maybe not in these; the next refresh reads it
+                if (version != loadVersion || !Objects.equals(playerName, PlayerManager.name)) {
+                    return;
+                }
+                playerDataMap.clear();
+                for (ScoreService.Result result : results) {
+                    addOwnResult(result.name, result.level, result.time, result.score);
+                }
+                if (playerDataMap.containsKey(playerName)) {
+                    PlayerManager.data = playerDataMap.get(playerName);
+                }
+                version++;
+                IoExecutor.repaint();
+            });
+        });
+    }
 
-        // Parse each line of data
-        for (String dataLine : dataLines) {
+    /**
+     * Reads the score log on the IoExecutor, and ranks what was read on the
+     * event thread. Reading only what other processes appended since the
+     * last read, the results are added to those in memory; reading the log
+     * from the start, which is done when the log was compacted by another
+     * process, they replace them. Does nothing if the log is being read
+     * already.
+     * 
+     * @param fromStart Whether to read the log from the start
+     */
+    private static void readScoreLog(boolean fromStart) {
+        if (reading) {
+            return;
+        }
+        reading = true;
+        IoExecutor.submit(null, "Failed to read the scoreboard from " + ScoreLog.LOG_FILE, () -> {
             try {
-                List<String> dataFields = GameFileManager.AnalyseLine(dataLine);
-                String playerName = dataFields.get(0);
-                int levelNumber = Integer.valueOf(dataFields.get(1));
-                int completionTime = Integer.valueOf(dataFields.get(2));
-                int playerScore = Integer.valueOf(dataFields.get(3));
+                List<ScoreService.Result> appended = new ArrayList<>();
+                if (!fromStart && localStore.readAppended(appended)) {
+                    SwingUtilities.invokeLater(() -> {
+                        for (ScoreService.Result result : appended) {
+                            localStore.record(result.name, result.level, result.time, result.score);
+                        }
+                        finishReading();
+                    });
+                    return;
+                }
 
-                if (playerDataMap.containsKey(playerName)) {
-                    // Add data to existing player record
-                    playerDataMap.get(playerName).appendData(levelNumber, completionTime, playerScore);
+                // This process's results not in the log yet, and from now
+                // on those recorded while it is read
+                List<ScoreService.Result> unwritten = new ArrayList<>();
+                synchronized (pending) {
+                    if (unsent != null) {
+                        unwritten.addAll(unsent);
+                    }
+                    unwritten.addAll(pending);
+                    recordedWhileReading = new ArrayList<>();
+                }
+                LeaderboardStore loadedStore = new LeaderboardStore(scoreLog);
+                loadedStore.load();
+                SwingUtilities.invokeLater(() -> {
+                    List<ScoreService.Result> recorded;
+                    synchronized (pending) {
+                        recorded = recordedWhileReading;
+                        recordedWhileReading = null;
+                    }
+                    localStore.replaceWith(loadedStore);
+                    for (ScoreService.Result result : unwritten) {
+                        localStore.record(result.name, result.level, result.time, result.score);
+                    }
+                    for (ScoreService.Result result : recorded) {
+                        localStore.record(result.name, result.level, result.time, result.score);
+                    }
+                    finishReading();
+                });
+            } catch (IOException | RuntimeException e) {
+                synchronized (pending) {
+                    recordedWhileReading = null;
+                }
+                SwingUtilities.invokeLater(() -> reading = false);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Shows the scores just read from the score log, on the event thread
+     */
+    private static void finishReading() {
+        reading = false;
+        version++;
+        view = null;
+        if (playerDataMap.containsKey(PlayerManager.name)) {
+            PlayerManager.data = playerDataMap.get(PlayerManager.name);
+        }
+        IoExecutor.repaint();
+    }
+
+    /**
+     * Adds a new result to the scoreboard without reading the scores again,
+     * and queues it to be sent to the service. Only the player's own record
+     * is updated and moved in the ranking.
+     * 
+     * @param playerName     The player's name
+     * @param levelNumber    The level number
+     * @param completionTime The time taken, in seconds
+     * @param playerScore    The score achieved
+     */
+    public static void recordResult(String playerName, int levelNumber, int completionTime, int playerScore) {
+        ensureLoaded();
+        if (SERVICE_URL == null) {
+            localStore.record(playerName, levelNumber, completionTime, playerScore);
+        } else {
+            addOwnResult(playerName, levelNumber, completionTime, playerScore);
+        }
+        version++;
+        view = null;
+
+        synchronized (pending) {
+            ScoreService.Result result = new ScoreService.Result(playerName, levelNumber, completionTime, playerScore);
+            pending.add(result);
+            if (recordedWhileReading != null) {
+                recordedWhileReading.add(result);
+            }
+            if (sendQueued) {
+                return;
+            }
+            sendQueued = true;
+        }
+        IoExecutor.submit(null, "Failed to save results to " + (SERVICE_URL == null ? ScoreLog.LOG_FILE : SERVICE_URL),
+                ScoreboardManager::sendPending);
+    }
+
+    /**
+     * Adds a result to a player's record when the leaderboards are on a
+     * server
+     */
+    private static void addOwnResult(String playerName, int levelNumber, int completionTime, int playerScore) {
+        PlayerProgressTracker playerData = playerDataMap.get(playerName);
+        if (playerData == null) {
+            playerData = new PlayerProgressTracker();
+            playerData.nameUser = playerName;
+            playerDataMap.put(playerName, playerData);
+        }
+        playerData.appendData(levelNumber, completionTime, playerScore);
+    }
+
+    /**
+     * Sends the queued results in one batch. Runs on the IoExecutor. A batch
+     * that could not be sent is kept and sent again, under the same id, with
+     * the next results, unless the server refused it, which it would do
+     * again.
+     * 
+     * @throws IOException If the results could not be sent
+     */
+    private static void sendPending() throws IOException {
+        synchronized (pending) {
+            sendQueued = false;
+        }
+        while (true) {
+            List<ScoreService.Result> batch = unsent;
+            String batchId = unsentId;
+            unsent = null;
+            if (batch == null) {
+                synchronized (pending) {
+                    if (pending.isEmpty()) {
+                        return;
+                    }
+                    batch = new ArrayList<>(pending);
+                    pending.clear();
+                }
+                batchId = UUID.randomUUID().toString();
+            }
+            try {
+                if (SERVICE_URL == null) {
+                    // Already ranked by recordResult
+                    localStore.persist(batch);
                 } else {
-                    // Create new player record
-                    PlayerProgressTracker playerData = new PlayerProgressTracker();
-                    playerData.nameUser = playerName;
-                    playerData.appendData(levelNumber, completionTime, playerScore);
-                    playerDataMap.put(playerName, playerData);
+                    service.submit(batchId, batch);
                 }
-            } catch (Exception e) {
-                // Skip invalid data entries
+            } catch (HttpScoreService.RejectedException e) {
+                throw new IOException("Dropped " + batch.size() + " results refused by " + SERVICE_URL, e);
+            } catch (IOException e) {
+                unsent = batch;
+                unsentId = batchId;
+                throw e;
+            }
+            if (SERVICE_URL == null) {
+                localStore.compactIfNeeded();
             }
         }
+    }
 
-        // Sort and rank all players
-        int multiplier = playerDataMap.size() + 1;
-        int index = 0;
+    /**
+     * Finds where a player ranks on a leaderboard. Locally the rank is given
+     * at once; from a server, it is read on the IoExecutor and given on the
+     * event thread when it arrives, or not at all if the server cannot be
+     * reached.
+     * 
+     * @param levelNumber A level number, or ALL_LEVELS
+     * @param metric      What to rank by
+     * @param playerName  The player's name
+     * @param onRank      Receives the player's rank from 1, or 0 if they have
+     *                    no result there
+     */
+    public static void findRank(int levelNumber, Leaderboard.Metric metric, String playerName, IntConsumer onRank) {
+        if (SERVICE_URL == null) {
+            onRank.accept(localStore.getRank(levelNumber, metric, playerName));
+            return;
+        }
+        IoExecutor.submit(null, "Failed to read a rank from " + SERVICE_URL, () -> {
+            int rank = service.query(levelNumber, metric, 0, 1, playerName).rank;
+            SwingUtilities.invokeLater(() -> {
+                onRank.accept(rank);
+                IoExecutor.repaint();
+            });
+        });
+    }
 
-        for (Entry<String, PlayerProgressTracker> playerEntry : playerDataMap.entrySet()) {
-            index++;
-            PlayerProgressTracker playerData = playerEntry.getValue();
-            playerData.sort();
+    /**
+     * @param levelNumber A level number, or ALL_LEVELS
+     * @param metric      What to rank by
+     * @return The number of pages of the leaderboard, as far as is known
+     */
+    public static int getPageCount(int levelNumber, Leaderboard.Metric metric) {
+        if (SERVICE_URL == null) {
+            return localStore.getLeaderboard(levelNumber, metric).pageCount(MAX_DISPLAYED_ENTRIES);
+        }
+        LeaderboardView current = view;
+        return current != null && current.level == levelNumber && current.metric == metric
+                ? current.getPageCount()
+                : 1;
+    }
 
-            // Create a unique ranking key based on score and index
-            int rankingKey = multiplier * playerData.scoreMax + index;
-            rankedPlayerData.put(rankingKey, playerData);
+    /**
+     * Gets a page of a leaderboard. Locally it is read at once; from a
+     * server, a fetch is queued and the last page read is returned until the
+     * new one arrives.
+     * 
+     * @param levelNumber A level number, or ALL_LEVELS
+     * @param metric      What to rank by
+     * @param page        The page number, from 0
+     * @param playerName  The player whose rank is wanted, or null
+     * @return The page, or null if none was read from the server yet
+     */
+    private static LeaderboardView getView(int levelNumber, Leaderboard.Metric metric, int page, String playerName) {
+        LeaderboardView current = view;
+        if (current != null && current.isOf(levelNumber, metric, page) && Objects.equals(viewPlayer, playerName)) {
+            return current;
+        }
+        if (SERVICE_URL == null) {
+            current = localStore.query(levelNumber, metric, page, MAX_DISPLAYED_ENTRIES, playerName);
+            viewPlayer = playerName;
+            view = current;
+            return current;
         }
+
+        String key = levelNumber + "/" + metric + "/" + page + "/" + playerName;
+        if (!key.equals(fetching)) {
+            fetching = key;
+            IoExecutor.submit(null, "Failed to read the leaderboard from " + SERVICE_URL, () -> {
+                LeaderboardView fetched = service.query(levelNumber, metric, page, MAX_DISPLAYED_ENTRIES,
+                        playerName);
+                SwingUtilities.invokeLater(() -> {
+                    viewPlayer = playerName;
+                    view = fetched;
+                    if (key.equals(fetching)) {
+                        fetching = null;
+                    }
+                    IoExecutor.repaint();
+                });
+            });
+        }
+        return current;
     }
 
     /**
@@ -92,33 +433,29 @@ public class ScoreboardManager {
      * @param graphics The Graphics2D context used for drawing
      */
     public static void drawGlobalScoreboard(Graphics2D graphics) {
-        int rowIndex = 0;
-
-        // Convert sorted map to list for easier iteration
-        List<PlayerProgressTracker> rankedPlayers = new LinkedList<>();
-        for (Entry<Integer, PlayerProgressTracker> entry : rankedPlayerData.entrySet()) {
-            rankedPlayers.add(entry.getValue());
-        }
-
-        // Display top players in descending order of score
-        for (int i = rankedPlayers.size() - 1; i >= 0; i--) {
-            PlayerProgressTracker playerData = rankedPlayers.get(i);
-            rowIndex++;
-
-            if (rowIndex <= MAX_DISPLAYED_ENTRIES) {
-                // Get the player's best level data
-                LevelData bestLevelData = playerData.sortedData.get(playerData.sortedData.lastKey());
-                int yPosition = GLOBAL_SCOREBOARD_Y + rowIndex * ROW_HEIGHT;
-
-                // Render player data row
-                graphics.setColor(Color.WHITE);
-                graphics.setFont(GameView.GAME_FONT);
-                graphics.drawString(playerData.nameUser, COLUMN_X_NAME, yPosition);
-                graphics.drawString(String.valueOf(bestLevelData.score), COLUMN_X_SCORE, yPosition);
-                graphics.drawString(String.valueOf(bestLevelData.time), COLUMN_X_TIME, yPosition);
-                graphics.drawString(String.valueOf(bestLevelData.num + 1), COLUMN_X_LEVEL, yPosition);
-            }
+        drawLeaderboard(graphics, ALL_LEVELS, Leaderboard.Metric.TOTAL, 0, null);
+    }
+
+    /**
+     * Renders a page of a leaderboard, with a footer giving the level, the
+     * metric, the page and the rank of the current player
+     * 
+     * @param graphics    The Graphics2D context used for drawing
+     * @param levelNumber A level number, or ALL_LEVELS
+     * @param metric      What to rank by
+     * @param pageNumber  The page number, from 0
+     * @param playerName  The current player, whose row is highlighted, or
+     *                    null
+     */
+    public static void drawLeaderboard(Graphics2D graphics, int levelNumber, Leaderboard.Metric metric,
+            int pageNumber, String playerName) {
+        LeaderboardView page = getView(levelNumber, metric, pageNumber, playerName);
+        ScoreboardRows rows = leaderboardRows;
+        if (rows == null || !rows.isOf(page, playerName, version)) {
+            rows = ScoreboardRows.of(page, playerName, version, ALL_LEVELS);
+            leaderboardRows = rows;
         }
+        drawRows(graphics, rows);
     }
 
     /**
@@ -129,34 +466,49 @@ public class ScoreboardManager {
      * @param playerName The name of the player whose data to display
      */
     public static void drawPlayerScoreboard(Graphics2D graphics, String playerName) {
-        int rowIndex = 0;
-
-        if (playerDataMap.containsKey(playerName)) {
-            // Get the player's data
-            PlayerProgressTracker playerData = playerDataMap.get(playerName);
+        PlayerProgressTracker playerData = playerDataMap.get(playerName);
+        ScoreboardRows rows = playerRows;
+        if (rows == null || !rows.isOf(playerData, playerName, version)) {
+            // Display player's levels in descending order
+            rows = ScoreboardRows.of(playerData, playerName, MAX_DISPLAYED_ENTRIES, version);
+            playerRows = rows;
+        }
+        drawRows(graphics, rows);
+    }
 
-            // Convert level data to list for easier iteration
-            List<LevelData> playerLevels = new LinkedList<>();
-            for (Entry<Integer, LevelData> entry : playerData.sortedData.entrySet()) {
-                playerLevels.add(entry.getValue());
+    /**
+     * Draws prepared scoreboard rows, the first one at PLAYER_SCOREBOARD_Y,
+     * then their footer. The font and colour are only set when they change.
+     * 
+     * @param graphics The Graphics2D context used for drawing
+     * @param rows     The rows
+     */
+    private static void drawRows(Graphics2D graphics, ScoreboardRows rows) {
+        int yPosition = PLAYER_SCOREBOARD_Y;
+        boolean own = false;
+        graphics.setFont(GameView.GAME_FONT);
+        graphics.setColor(Color.WHITE);
+        for (ScoreboardRows.Row row : rows.rows) {
+            if (row.own != own) {
+                own = row.own;
+                graphics.setColor(own ? OWN_ROW_COLOR : Color.WHITE);
             }
+            graphics.drawString(row.name, COLUMN_X_NAME, yPosition);
+            graphics.drawString(row.score, COLUMN_X_SCORE, yPosition);
+            graphics.drawString(row.time, COLUMN_X_TIME, yPosition);
+            graphics.drawString(row.level, COLUMN_X_LEVEL, yPosition);
+            yPosition += ROW_HEIGHT;
+        }
 
-            // Display player's levels in descending order
-            for (int i = playerLevels.size() - 1; i >= 0; i--) {
-                if (rowIndex < MAX_DISPLAYED_ENTRIES) {
-                    LevelData levelData = playerLevels.get(i);
-                    int yPosition = PLAYER_SCOREBOARD_Y + rowIndex * ROW_HEIGHT;
-
-                    // Render level data row
-                    graphics.setColor(Color.WHITE);
-                    graphics.setFont(GameView.GAME_FONT);
-                    graphics.drawString(playerName, COLUMN_X_NAME, yPosition);
-                    graphics.drawString(String.valueOf(levelData.score), COLUMN_X_SCORE, yPosition);
-                    graphics.drawString(String.valueOf(levelData.time), COLUMN_X_TIME, yPosition);
-                    graphics.drawString(String.valueOf(levelData.num + 1), COLUMN_X_LEVEL, yPosition);
-                }
-                rowIndex++;
-            }
+        if (rows.footer.isEmpty()) {
+            return;
+        }
+        graphics.setColor(Color.WHITE);
+        graphics.setFont(FOOTER_FONT);
+        yPosition = FOOTER_Y;
+        for (String line : rows.footer) {
+            graphics.drawString(line, FOOTER_X, yPosition);
+            yPosition += FOOTER_LINE_HEIGHT;
         }
     }
 
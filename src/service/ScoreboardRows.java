@@ -0,0 +1,120 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import service.PlayerProgressTracker.LevelData;
+
+/**
+ * ScoreboardRows is a scoreboard ready to be drawn: the text of every cell and
+ * of the footer is formatted once, when the scores change, and kept with what
+ * it was built from. Drawing a frame is then only drawString calls for the
+ * rows of one page, however many players there are.
+ */
+class ScoreboardRows {
+
+    /**
+     * One line of the scoreboard
+     */
+    static class Row {
+        final String name;
+        final String score;
+        final String time;
+        final String level;
+
+        // Whether this is the current player's row, drawn highlighted
+        final boolean own;
+
+        Row(String name, int score, int time, int level, boolean own) {
+            this.name = name;
+            this.score = String.valueOf(score);
+            this.time = String.valueOf(time);
+            this.level = String.valueOf(level + 1);
+            this.own = own;
+        }
+    }
+
+    // What the rows were built from, for whom, and at which version of the
+    // scores
+    private final Object source;
+    private final String player;
+    private final int version;
+
+    final List<Row> rows;
+
+    // Lines drawn below the rows, possibly none
+    final List<String> footer;
+
+    private ScoreboardRows(Object source, String player, int version, List<Row> rows, List<String> footer) {
+        this.source = source;
+        this.player = player;
+        this.version = version;
+        this.rows = Collections.unmodifiableList(rows);
+        this.footer = Collections.unmodifiableList(footer);
+    }
+
+    /**
+     * @return True if the rows were built from this source, for this player,
+     *         at this version of the scores
+     */
+    boolean isOf(Object source, String player, int version) {
+        return this.source == source && this.version == version && Objects.equals(this.player, player);
+    }
+
+    /**
+     * Builds the rows of a leaderboard page
+     *
+     * @param page       The page, or null while it is being fetched
+     * @param playerName The current player, whose row is highlighted and
+     *                   whose rank is given in the footer, or null for no
+     *                   footer
+     * @param version    The version of the scores
+     * @param allLevels  The level number of the leaderboards across all
+     *                   levels
+     */
+    static ScoreboardRows of(LeaderboardView page, String playerName, int version, int allLevels) {
+        List<Row> rows = new ArrayList<>();
+        List<String> footer = new ArrayList<>();
+        if (page == null) {
+            footer.add("Loading...");
+            return new ScoreboardRows(null, playerName, version, rows, footer);
+        }
+
+        for (Leaderboard.Entry entry : page.entries) {
+            rows.add(new Row(entry.name, entry.score, entry.time, entry.level, entry.name.equals(playerName)));
+        }
+        if (playerName != null) {
+            // Which board and page this is, and where the player stands
+            String level = page.level == allLevels ? "All levels" : "Level " + (page.level + 1);
+            footer.add(level + " - " + page.metric.getLabel() + " - page " + (page.page + 1) + "/"
+                    + page.getPageCount());
+            footer.add((page.rank > 0 ? "Your rank: " + page.rank + " of " + page.size : "Not ranked yet")
+                    + "   (arrows: page and level, M: metric)");
+        }
+        return new ScoreboardRows(page, playerName, version, rows, footer);
+    }
+
+    /**
+     * Builds the rows of a player's best results, best first, with a footer
+     * summing up their progress
+     *
+     * @param playerData The player's record, or null if they have none
+     * @param playerName The player's name
+     * @param count      The number of rows to show
+     * @param version    The version of the scores
+     */
+    static ScoreboardRows of(PlayerProgressTracker playerData, String playerName, int count, int version) {
+        List<Row> rows = new ArrayList<>();
+        List<String> footer = new ArrayList<>();
+        if (playerData != null) {
+            for (LevelData levelData : playerData.sortedData.range(0, count)) {
+                rows.add(new Row(playerName, levelData.score, levelData.time, levelData.num, false));
+            }
+            footer.add("Levels finished: " + playerData.allLevelStats().size() + "   Best score: "
+                    + playerData.getBestScore() + "   Best time: " + playerData.getBestTime() + "s");
+        }
+        return new ScoreboardRows(playerData, playerName, version, rows, footer);
+    }
+}
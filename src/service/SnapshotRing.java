@@ -0,0 +1,118 @@
+package service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * SnapshotRing keeps the latest snapshots of the game in memory, so the
+ * player can respawn or rewind without the level being rebuilt or read from
+ * disk.
+ *
+ * Snapshots are kept encoded, a few kilobytes each. When the ring holds more
+ * than its memory budget the oldest snapshots are dropped, but the newest one
+ * is always kept. The budget is set in kilobytes with
+ * -Dplatformer.snapshotBudget, and defaults to 256.
+ */
+public class SnapshotRing {
+
+    // Default memory budget, in bytes
+    public static final long DEFAULT_BUDGET = Long.getLong("platformer.snapshotBudget", 256) * 1024;
+
+    // Encoded snapshots, newest first
+    private final Deque<byte[]> snapshots = new ArrayDeque<>();
+
+    // Memory budget and memory used, in bytes
+    private final long budget;
+    private long size = 0;
+
+    /**
+     * Creates an empty ring
+     *
+     * @param budget The memory the snapshots may use, in bytes
+     */
+    public SnapshotRing(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Adds a snapshot, dropping the oldest ones if the budget is exceeded
+     *
+     * @param snapshot The snapshot
+     */
+    public void push(WorldSnapshot snapshot) {
+        byte[] data = snapshot.encode();
+        snapshots.addFirst(data);
+        size += data.length;
+        while (size > budget && snapshots.size() > 1) {
+            size -= snapshots.removeLast().length;
+        }
+    }
+
+    /**
+     * Takes the newest snapshot. It is removed from the ring unless it is the
+     * last one, so going back repeatedly goes further back in time but never
+     * past the oldest snapshot.
+     *
+     * @return The snapshot, or null if the ring is empty
+     */
+    public WorldSnapshot pop() {
+        if (snapshots.isEmpty()) {
+            return null;
+        }
+        byte[] data = snapshots.peekFirst();
+        if (snapshots.size() > 1) {
+            snapshots.removeFirst();
+            size -= data.length;
+        }
+        return decode(data);
+    }
+
+    /**
+     * Reads the newest snapshot, leaving it in the ring, so going back
+     * repeatedly always goes back to the same moment
+     *
+     * @return The snapshot, or null if the ring is empty
+     */
+    public WorldSnapshot peek() {
+        return snapshots.isEmpty() ? null : decode(snapshots.peekFirst());
+    }
+
+    private static WorldSnapshot decode(byte[] data) {
+        try {
+            return WorldSnapshot.decode(data);
+        } catch (IOException e) {
+            // The ring only holds snapshots it encoded itself
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Drops every snapshot, when the level is replaced or changed
+     */
+    public void clear() {
+        snapshots.clear();
+        size = 0;
+    }
+
+    /**
+     * @return True if there is no snapshot to go back to
+     */
+    public boolean isEmpty() {
+        return snapshots.isEmpty();
+    }
+
+    /**
+     * @return The number of snapshots held
+     */
+    public int getCount() {
+        return snapshots.size();
+    }
+
+    /**
+     * @return The memory used by the snapshots, in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+}
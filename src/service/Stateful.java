@@ -0,0 +1,27 @@
+package service;
+
+/**
+ * Stateful is implemented by game objects whose behaviour depends on more
+ * than the position and velocity of their body, such as timers, directions
+ * or open and closed states.
+ *
+ * The state is exchanged as a short array of ints so a WorldSnapshot can
+ * store it without knowing the class; float fields are stored with
+ * Float.floatToIntBits.
+ */
+public interface Stateful {
+
+    /**
+     * @return The current state of the object
+     */
+    int[] saveState();
+
+    /**
+     * Puts the object back in a saved state. The object has either just been
+     * built from its level element or is being rewound, so the state may
+     * move it in either direction. Its body has already been moved.
+     *
+     * @param state A state returned by saveState
+     */
+    void restoreState(int[] state);
+}
@@ -0,0 +1,162 @@
+package service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import city.cs.engine.Body;
+import city.cs.engine.BodyImage;
+import city.cs.engine.BoxShape;
+import city.cs.engine.CircleShape;
+import city.cs.engine.Fixture;
+import city.cs.engine.GhostlyFixture;
+import city.cs.engine.PolygonShape;
+import city.cs.engine.Shape;
+import city.cs.engine.SolidFixture;
+
+/**
+ * TemplateRegistry interns the immutable pieces that bodies are built from:
+ * shapes, images and fixture definitions.
+ *
+ * Identical level pieces (rows of platforms, coins, falling logs) ask the
+ * registry for their parts instead of creating them, so every platform of
+ * the same size shares one Shape and every coin shares one decoded
+ * BodyImage. Objects that rebuild their body while the game runs, such as
+ * falling and intermittent platforms or doors, reuse the same templates on
+ * each rebuild instead of allocating new ones.
+ *
+ * Sharing is safe because the physics engine copies a shape into each
+ * fixture it creates and a BodyImage is only read when drawing. The registry
+ * is filled from the level loader thread and read on the game thread, so
+ * its tables are concurrent.
+ */
+public class TemplateRegistry {
+
+    // Fixture kinds
+    public static final int SOLID = 0;
+    public static final int GHOSTLY = 1;
+
+    /**
+     * FixtureTemplate describes a fixture that can be attached to any number
+     * of bodies.
+     */
+    public static class FixtureTemplate {
+        public final Shape shape;
+        public final int kind;
+
+        private FixtureTemplate(Shape shape, int kind) {
+            this.shape = shape;
+            this.kind = kind;
+        }
+
+        /**
+         * Creates a fixture from this template on a body, with the default
+         * density of that body
+         *
+         * @param body The body to add the fixture to
+         * @return The new fixture
+         */
+        public Fixture attach(Body body) {
+            return kind == GHOSTLY ? new GhostlyFixture(body, shape) : new SolidFixture(body, shape);
+        }
+    }
+
+    // Interned templates
+    private static final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+    private static final Map<String, BodyImage> images = new ConcurrentHashMap<>();
+    private static final Map<List<Object>, FixtureTemplate> fixtures = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the shared box shape with the given half extents
+     *
+     * @param halfWidth  Half of the width
+     * @param halfHeight Half of the height
+     * @return The shape
+     */
+    public static Shape box(float halfWidth, float halfHeight) {
+        return shapes.computeIfAbsent("box;" + halfWidth + ";" + halfHeight,
+                key -> new BoxShape(halfWidth, halfHeight));
+    }
+
+    /**
+     * Returns the shared circle shape with the given radius
+     *
+     * @param radius The radius
+     * @return The shape
+     */
+    public static Shape circle(float radius) {
+        return shapes.computeIfAbsent("circle;" + radius, key -> new CircleShape(radius));
+    }
+
+    /**
+     * Returns the shared polygon shape with the given vertices
+     *
+     * @param vertices The vertices as x1, y1, x2, y2, ...
+     * @return The shape
+     */
+    public static Shape polygon(float... vertices) {
+        float[] copy = vertices.clone();
+        return shapes.computeIfAbsent("polygon;" + Arrays.toString(copy), key -> new PolygonShape(copy));
+    }
+
+    /**
+     * Returns the shared shape described by a level element
+     *
+     * @param e The element
+     * @return The shape, or null if the element has none
+     */
+    public static Shape shape(LevelElement e) {
+        switch (e.shapeKind) {
+            case LevelElement.SHAPE_BOX:
+                return box(e.shapeParams[0], e.shapeParams[1]);
+            case LevelElement.SHAPE_CIRCLE:
+                return circle(e.shapeParams[0]);
+            case LevelElement.SHAPE_POLYGON:
+                return polygon(e.shapeParams);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the shared image for a file drawn at a given height, decoding
+     * the file the first time it is requested
+     *
+     * @param path   The image file
+     * @param height The height of the image in world units
+     * @return The image
+     */
+    public static BodyImage image(String path, float height) {
+        return images.computeIfAbsent(height + ";" + path, key -> new BodyImage(path, height));
+    }
+
+    /**
+     * Returns the shared image of a level element
+     *
+     * @param e The element
+     * @return The image, or null if the element is invisible
+     */
+    public static BodyImage image(LevelElement e) {
+        return e.imagePath != null ? image(e.imagePath, e.imageHeight) : null;
+    }
+
+    /**
+     * Returns the shared fixture definition for a shape
+     *
+     * @param shape The shape, normally obtained from this registry
+     * @param kind  SOLID or GHOSTLY
+     * @return The fixture template
+     */
+    public static FixtureTemplate fixture(Shape shape, int kind) {
+        // Shapes compare by identity, so templates of equal but separate shapes stay apart
+        return fixtures.computeIfAbsent(Arrays.asList(shape, kind), key -> new FixtureTemplate(shape, kind));
+    }
+
+    /**
+     * @return The number of distinct shapes, images and fixtures interned
+     */
+    public static String getStatistics() {
+        return shapes.size() + " shapes, " + images.size() + " images, " + fixtures.size() + " fixtures";
+    }
+}
@@ -0,0 +1,141 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jbox2d.common.Vec2;
+
+import city.cs.engine.AttachedImage;
+import city.cs.engine.BoxShape;
+import city.cs.engine.PolygonShape;
+import city.cs.engine.SolidFixture;
+import city.cs.engine.StaticBody;
+import city.cs.engine.World;
+
+/**
+ * TerrainBuilder turns the static geometry of a level into a single terrain
+ * body.
+ *
+ * Levels are made of many platforms, each of which used to be its own static
+ * body with its own fixture. Every body costs a move on each camera step and
+ * every fixture is a proxy in the physics broadphase. Instead, the builder:
+ * - merges platform rectangles that touch or overlap along an edge of the
+ * same length into one box fixture, including invisible borders
+ * - adds every remaining rectangle and polygon as a fixture of one static
+ * body, positioned at the world origin
+ * - attaches the image of every platform, polygon and prop to that body at
+ * its original position
+ *
+ * Props are purely decorative: they are drawn but have no fixture, so they
+ * never take part in collisions.
+ *
+ * The physics engine has no chain shapes, so merging is limited to
+ * rectangles that combine into an exact rectangle.
+ */
+public class TerrainBuilder {
+
+    // Tolerance when comparing edges, in world units
+    private static final float EPSILON = 1e-3f;
+
+    /**
+     * Checks if an element is part of the static terrain
+     *
+     * @param e The element
+     * @return True for platforms, static polygons and props
+     */
+    public static boolean isTerrain(LevelElement e) {
+        return e.type.equals("platform") || e.type.equals("polygon") || e.type.equals("prop");
+    }
+
+    /**
+     * Builds the terrain body of a level
+     *
+     * @param elements The terrain elements, in level coordinates
+     * @param world    The world to build the terrain in
+     * @return The terrain body, or null if there are no terrain elements
+     */
+    public static StaticBody build(List<LevelElement> elements, World world) {
+        if (elements.isEmpty()) {
+            return null;
+        }
+        StaticBody terrain = new StaticBody(world);
+        terrain.setPosition(new Vec2(0, 0));
+
+        List<float[]> boxes = new ArrayList<>();
+        for (LevelElement e : elements) {
+            if (e.type.equals("platform")) {
+                boxes.add(new float[] { e.x - e.shapeParams[0], e.y - e.shapeParams[1], e.x + e.shapeParams[0],
+                        e.y + e.shapeParams[1] });
+            } else if (e.type.equals("polygon")) {
+                float[] vertices = new float[e.shapeParams.length];
+                for (int i = 0; i < vertices.length; i += 2) {
+                    vertices[i] = e.shapeParams[i] + e.x;
+                    vertices[i + 1] = e.shapeParams[i + 1] + e.y;
+                }
+                new SolidFixture(terrain, new PolygonShape(vertices));
+            }
+            if (e.imagePath != null) {
+                AttachedImage image = terrain.addImage(TemplateRegistry.image(e));
+                image.setOffset(e.position());
+            }
+        }
+
+        for (float[] box : merge(boxes)) {
+            float halfWidth = (box[2] - box[0]) / 2;
+            float halfHeight = (box[3] - box[1]) / 2;
+            Vec2 centre = new Vec2(box[0] + halfWidth, box[1] + halfHeight);
+            new SolidFixture(terrain, new BoxShape(halfWidth, halfHeight, centre));
+        }
+        return terrain;
+    }
+
+    /**
+     * Merges rectangles that share a full edge or overlap along it.
+     * Rectangles are given as { left, bottom, right, top }.
+     *
+     * @param boxes The rectangles
+     * @return The merged rectangles, which cover exactly the same area
+     */
+    public static List<float[]> merge(List<float[]> boxes) {
+        List<float[]> merged = boxes;
+        int before;
+        do {
+            before = merged.size();
+            // Rows: same bottom and top, touching left to right
+            merged = sweep(merged, 1, 3, 0, 2);
+            // Columns: same left and right, touching bottom to top
+            merged = sweep(merged, 0, 2, 1, 3);
+        } while (merged.size() < before);
+        return merged;
+    }
+
+    /**
+     * Merges rectangles that have the same extent on one axis and touch or
+     * overlap on the other
+     *
+     * @param boxes    The rectangles
+     * @param sameLow  Index of the low edge that must match
+     * @param sameHigh Index of the high edge that must match
+     * @param low      Index of the low edge along the merge axis
+     * @param high     Index of the high edge along the merge axis
+     * @return The merged rectangles
+     */
+    private static List<float[]> sweep(List<float[]> boxes, int sameLow, int sameHigh, int low, int high) {
+        List<float[]> sorted = new ArrayList<>(boxes);
+        sorted.sort(Comparator.<float[]>comparingDouble(box -> box[sameLow])
+                .thenComparingDouble(box -> box[sameHigh]).thenComparingDouble(box -> box[low]));
+        List<float[]> result = new ArrayList<>();
+        float[] current = null;
+        for (float[] box : sorted) {
+            if (current != null && Math.abs(current[sameLow] - box[sameLow]) < EPSILON
+                    && Math.abs(current[sameHigh] - box[sameHigh]) < EPSILON && box[low] <= current[high] + EPSILON) {
+                current[high] = Math.max(current[high], box[high]);
+            } else {
+                current = box.clone();
+                result.add(current);
+            }
+        }
+        return result;
+    }
+}
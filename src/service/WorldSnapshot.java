@@ -0,0 +1,851 @@
+package service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.jbox2d.common.Vec2;
+
+import city.cs.engine.Body;
+import city.cs.engine.DynamicBody;
+import entity.Bullet;
+import game.GameWorld;
+
+/**
+ * WorldSnapshot is the complete state of a game in progress: the level, the
+ * score and time, the camera, the player and every object still in the
+ * world with its position, velocity and internal state (see Stateful).
+ * Collected coins and keys and defeated enemies are simply absent.
+ *
+ * Objects are stored as the level element they were built from plus their
+ * current state, grouped the same way as in the world's LiveLevel, so a
+ * snapshot can rebuild the world without the level file. Prefabs the camera
+ * has not reached yet are stored unexpanded.
+ *
+ * Binary format (big-endian): "PSAV" magic, version, CRC32 of the payload,
+ * then the payload. Saved games are written to a temporary file with a single
+ * channel write, forced to disk and atomically renamed over the target, so a
+ * crash never leaves a partial save behind.
+ */
+public class WorldSnapshot {
+
+    // File identification; version 2 files are SaveDeltas
+    static final int MAGIC = 0x50534156; // "PSAV"
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 4 + 4 + 8;
+
+    // Element standing for the bullets in flight, which have no level element
+    private static final LevelElement BULLET = new LevelElement("bullet", 0, 0, LevelElement.SHAPE_NONE,
+            new float[0], null, 0, new float[0]);
+
+    /**
+     * The state of one body
+     */
+    public static class EntityState {
+        // Index of the body among those of its element
+        public final int part;
+
+        // False for objects whose own body is not in the world, such as
+        // doors, which manage a separate body
+        public final boolean hasBody;
+
+        // Position in level coordinates, angle and velocity
+        public final float x;
+        public final float y;
+        public final float angle;
+        public final float vx;
+        public final float vy;
+        public final float spin;
+
+        // Internal state of a Stateful object, empty otherwise
+        public final int[] state;
+
+        EntityState(int part, boolean hasBody, float x, float y, float angle, float vx, float vy, float spin,
+                int[] state) {
+            this.part = part;
+            this.hasBody = hasBody;
+            this.x = x;
+            this.y = y;
+            this.angle = angle;
+            this.vx = vx;
+            this.vy = vy;
+            this.spin = spin;
+            this.state = state;
+        }
+    }
+
+    /**
+     * A level element and the state of the bodies still alive that were built
+     * from it
+     */
+    public static class Group {
+        public final LevelElement element;
+
+        // True for a prefab that has not been expanded yet
+        public final boolean pending;
+
+        public final List<EntityState> entities;
+
+        Group(LevelElement element, boolean pending, List<EntityState> entities) {
+            this.element = element;
+            this.pending = pending;
+            this.entities = Collections.unmodifiableList(entities);
+        }
+    }
+
+    // Level being played: its number, or -1 and its file for custom levels
+    public final int levelNumber;
+    public final String levelFile;
+    public final float levelLength;
+
+    // Progress
+    public final int score;
+    public final int time;
+    public final float cameraPosition;
+
+    // The player and the objects of the level
+    public final EntityState player;
+    public final List<LevelElement> terrain;
+    public final List<Group> groups;
+
+    private WorldSnapshot(int levelNumber, String levelFile, float levelLength, int score, int time,
+            float cameraPosition, EntityState player, List<LevelElement> terrain, List<Group> groups) {
+        this.levelNumber = levelNumber;
+        this.levelFile = levelFile;
+        this.levelLength = levelLength;
+        this.score = score;
+        this.time = time;
+        this.cameraPosition = cameraPosition;
+        this.player = player;
+        this.terrain = Collections.unmodifiableList(terrain);
+        this.groups = Collections.unmodifiableList(groups);
+    }
+
+    /**
+     * Captures the state of the world. Must run on the game thread.
+     *
+     * @param w The game world
+     * @return The snapshot
+     */
+    public static WorldSnapshot capture(GameWorld w) {
+        float camera = w.camera.cameraPosition;
+        Set<Body> inWorld = Collections.newSetFromMap(new IdentityHashMap<>());
+        inWorld.addAll(w.getStaticBodies());
+        inWorld.addAll(w.getDynamicBodies());
+        Set<Body> alive = aliveBodies(w);
+
+        List<Group> groups = new ArrayList<>();
+        w.liveLevel.forEach((element, bodies) -> {
+            boolean prefab = Prefabs.isPrefab(element.type);
+            List<EntityState> entities = new ArrayList<>();
+            for (int i = 0; i < bodies.size(); i++) {
+                if (alive.contains(bodies.get(i))) {
+                    entities.add(capture(i, bodies.get(i), inWorld.contains(bodies.get(i)), camera));
+                }
+            }
+            // Elements whose bodies are all gone are left out, except
+            // prefabs that are still waiting for the camera
+            boolean pending = prefab && w.chunks.isPending(element, bodies);
+            if (!entities.isEmpty() || pending) {
+                groups.add(new Group(element, pending, entities));
+            }
+        });
+        for (DynamicBody body : w.getDynamicBodies()) {
+            if (body instanceof Bullet) {
+                groups.add(new Group(BULLET, false, Collections.singletonList(capture(0, body, true, camera))));
+            }
+        }
+
+        return new WorldSnapshot(w.currentLevelNumber, w.getLevelFile(), w.camera.levelLength, GameWorld.score,
+                GameWorld.currentElapsedTimeSeconds, camera, capture(0, w.player, true, camera),
+                new ArrayList<>(w.liveLevel.getTerrainElements()), groups);
+    }
+
+    /**
+     * Captures the state of one body
+     *
+     * @param part    The index of the body among those of its element
+     * @param body    The body
+     * @param hasBody True if the body itself is in the world
+     * @param camera  The camera position
+     * @return The state of the body
+     */
+    static EntityState capture(int part, Body body, boolean hasBody, float camera) {
+        Vec2 position = body.getPosition();
+        Vec2 velocity = body instanceof DynamicBody ? body.getLinearVelocity() : new Vec2();
+        float spin = body instanceof DynamicBody ? body.getAngularVelocity() : 0;
+        int[] state = body instanceof Stateful ? ((Stateful) body).saveState() : new int[0];
+        return new EntityState(part, hasBody, position.x + camera, position.y, body.getAngle(), velocity.x,
+                velocity.y, spin, state);
+    }
+
+    /**
+     * Rebuilds the saved objects in a world that has just been reset, with
+     * the camera where it was when the snapshot was taken
+     *
+     * @param w The game world, empty but for its new player
+     */
+    public void restore(GameWorld w) {
+        w.camera.levelLength = levelLength;
+        w.camera.cameraPosition = cameraPosition;
+
+        Body terrainBody = TerrainBuilder.build(terrain, w);
+        if (terrainBody != null) {
+            terrainBody.setPosition(new Vec2(-cameraPosition, 0));
+        }
+        w.liveLevel.setTerrain(new ArrayList<>(terrain), terrainBody);
+
+        for (Group group : groups) {
+            if (group.element.type.equals(BULLET.type)) {
+                spawnBullet(group.entities.get(0), w);
+            } else {
+                w.liveLevel.add(group.element, build(group, w));
+            }
+        }
+        restoreProgress(w);
+    }
+
+    /**
+     * Rewinds the world to the snapshot in place, without rebuilding the
+     * level. Objects that are still alive are moved and given their saved
+     * state, objects destroyed since the snapshot are built again and
+     * objects that did not exist yet are removed. The terrain is kept.
+     *
+     * The world must be playing the level the snapshot was taken in, with
+     * the same level elements.
+     *
+     * @param w The game world
+     */
+    public void restoreInPlace(GameWorld w) {
+        Set<Body> alive = aliveBodies(w);
+        scrollTo(w, cameraPosition);
+
+        // Bullets have no element to match them with, so they are replaced
+        for (DynamicBody body : new ArrayList<>(w.getDynamicBodies())) {
+            if (body instanceof Bullet) {
+                body.destroy();
+            }
+        }
+
+        // Match the saved groups with the live occurrences of their element
+        Map<LevelElement, Deque<List<Body>>> live = new HashMap<>();
+        w.liveLevel.forEach((element, bodies) -> live.computeIfAbsent(element, key -> new ArrayDeque<>()).add(bodies));
+        for (Group group : groups) {
+            if (group.element.type.equals(BULLET.type)) {
+                spawnBullet(group.entities.get(0), w);
+                continue;
+            }
+            Deque<List<Body>> occurrences = live.get(group.element);
+            List<Body> bodies = occurrences != null ? occurrences.poll() : null;
+            if (bodies == null) {
+                w.liveLevel.add(group.element, build(group, w));
+            } else if (Prefabs.isPrefab(group.element.type)) {
+                rewindPrefab(group, bodies, alive, w);
+            } else {
+                Body body = bodies.isEmpty() ? null : bodies.get(0);
+                if (body == null || !alive.contains(body)) {
+                    body = LevelFileParser.spawnElement(group.element, w);
+                    bodies.clear();
+                    if (body == null) {
+                        continue;
+                    }
+                    bodies.add(body);
+                }
+                apply(body, group.entities.get(0));
+            }
+        }
+
+        // Occurrences left over had no body alive when the snapshot was taken
+        for (Map.Entry<LevelElement, Deque<List<Body>>> entry : live.entrySet()) {
+            for (List<Body> bodies : entry.getValue()) {
+                if (Prefabs.isPrefab(entry.getKey().type)) {
+                    w.chunks.remove(entry.getKey(), bodies, w);
+                } else {
+                    for (Body body : bodies) {
+                        if (alive.contains(body)) {
+                            LevelFileParser.removeBody(body, w);
+                        }
+                    }
+                }
+            }
+        }
+        restoreProgress(w);
+    }
+
+    /**
+     * Rewinds a live prefab to its saved group
+     *
+     * @param group  The saved group
+     * @param bodies The live bodies of the prefab, filled once it is expanded
+     * @param alive  The bodies alive before the rewind started
+     * @param w      The game world
+     */
+    private void rewindPrefab(Group group, List<Body> bodies, Set<Body> alive, GameWorld w) {
+        boolean pending = w.chunks.isPending(group.element, bodies);
+        if (group.pending) {
+            if (!pending) {
+                w.chunks.remove(group.element, bodies, w);
+                w.chunks.add(group.element, bodies);
+            }
+            return;
+        }
+
+        // Expand it again if needed, so each part sits at its own index
+        List<LevelElement> parts = Prefabs.expand(group.element);
+        if (pending) {
+            w.chunks.remove(group.element, bodies, w);
+            for (LevelElement part : parts) {
+                bodies.add(LevelFileParser.spawnElement(part, w));
+            }
+        }
+        EntityState[] saved = new EntityState[parts.size()];
+        for (EntityState entity : group.entities) {
+            saved[entity.part] = entity;
+        }
+        for (int i = 0; i < parts.size(); i++) {
+            Body body = bodies.get(i);
+            boolean isAlive = pending || alive.contains(body);
+            if (saved[i] == null) {
+                if (isAlive) {
+                    LevelFileParser.removeBody(body, w);
+                }
+            } else {
+                if (!isAlive) {
+                    body = LevelFileParser.spawnElement(parts.get(i), w);
+                    bodies.set(i, body);
+                }
+                apply(body, saved[i]);
+            }
+        }
+    }
+
+    /**
+     * Builds the bodies of a saved group
+     *
+     * @param group The saved group
+     * @param w     The game world, with the camera at the saved position
+     * @return The bodies, to record in the world's LiveLevel
+     */
+    private List<Body> build(Group group, GameWorld w) {
+        List<Body> bodies = new ArrayList<>();
+        if (Prefabs.isPrefab(group.element.type)) {
+            if (group.pending) {
+                w.chunks.add(group.element, bodies);
+            } else {
+                // Every part is built so each sits at its own index, then
+                // the parts that were gone are removed again
+                List<LevelElement> parts = Prefabs.expand(group.element);
+                EntityState[] saved = new EntityState[parts.size()];
+                for (EntityState entity : group.entities) {
+                    saved[entity.part] = entity;
+                }
+                for (int i = 0; i < parts.size(); i++) {
+                    Body body = LevelFileParser.spawnElement(parts.get(i), w);
+                    if (saved[i] != null) {
+                        apply(body, saved[i]);
+                    } else {
+                        LevelFileParser.removeBody(body, w);
+                    }
+                    bodies.add(body);
+                }
+            }
+        } else {
+            Body body = LevelFileParser.spawnElement(group.element, w);
+            if (body != null) {
+                apply(body, group.entities.get(0));
+                bodies.add(body);
+            }
+        }
+        return bodies;
+    }
+
+    /**
+     * Fires a saved bullet again
+     *
+     * @param entity The saved bullet
+     * @param w      The game world
+     */
+    private void spawnBullet(EntityState entity, GameWorld w) {
+        spawnBullet(entity, w, cameraPosition);
+    }
+
+    /**
+     * Fires a saved bullet again
+     *
+     * @param entity         The saved bullet
+     * @param w              The game world
+     * @param cameraPosition The camera position the bullet was saved with
+     */
+    static void spawnBullet(EntityState entity, GameWorld w, float cameraPosition) {
+        Bullet bullet = new Bullet(w, new Vec2(entity.x - cameraPosition, entity.y), entity.vx > 0);
+        apply(bullet, entity, cameraPosition);
+    }
+
+    /**
+     * Restores the player, the score and the time
+     *
+     * @param w The game world
+     */
+    private void restoreProgress(GameWorld w) {
+        restoreProgress(w, player, score, time, cameraPosition);
+    }
+
+    /**
+     * Restores the player, the score and the time
+     *
+     * @param w              The game world
+     * @param player         The saved player
+     * @param score          The saved score
+     * @param time           The saved time, in seconds
+     * @param cameraPosition The camera position the player was saved with
+     */
+    static void restoreProgress(GameWorld w, EntityState player, int score, int time, float cameraPosition) {
+        apply(w.player, player, cameraPosition);
+
+        GameWorld.score = score;
+        GameWorld.previousElapsedTimeSeconds = time;
+        GameWorld.currentElapsedTimeSeconds = time;
+        GameWorld.levelStartTimeMillis = new Date().getTime() - time * 1000L;
+    }
+
+    /**
+     * @param w The game world
+     * @return Every body in the world, plus the interactive objects, whose
+     *         own body is not in the world
+     */
+    static Set<Body> aliveBodies(GameWorld w) {
+        Set<Body> alive = Collections.newSetFromMap(new IdentityHashMap<>());
+        alive.addAll(w.getStaticBodies());
+        alive.addAll(w.getDynamicBodies());
+        alive.addAll(w.staticObjects);
+        return alive;
+    }
+
+    /**
+     * Scrolls the camera to a position. The camera scrolls by moving every
+     * body, so this moves them all back or forth.
+     *
+     * @param w              The game world
+     * @param cameraPosition The new camera position
+     */
+    static void scrollTo(GameWorld w, float cameraPosition) {
+        Vec2 shift = new Vec2(w.camera.cameraPosition - cameraPosition, 0);
+        if (shift.x != 0) {
+            List<Body> bodies = new ArrayList<>(w.getStaticBodies());
+            bodies.addAll(w.getDynamicBodies());
+            for (Body body : bodies) {
+                body.setPosition(body.getPosition().add(shift));
+            }
+            w.camera.cameraPosition = cameraPosition;
+        }
+    }
+
+    /**
+     * Puts a body in a saved state
+     *
+     * @param body   The body
+     * @param entity Its saved state
+     */
+    private void apply(Body body, EntityState entity) {
+        apply(body, entity, cameraPosition);
+    }
+
+    /**
+     * Puts a body in a saved state
+     *
+     * @param body           The body
+     * @param entity         Its saved state
+     * @param cameraPosition The camera position the state was saved with
+     */
+    static void apply(Body body, EntityState entity, float cameraPosition) {
+        if (entity.hasBody) {
+            body.setPosition(new Vec2(entity.x - cameraPosition, entity.y));
+            body.setAngle(entity.angle);
+        }
+        if (body instanceof DynamicBody) {
+            ((DynamicBody) body).setLinearVelocity(new Vec2(entity.vx, entity.vy));
+            ((DynamicBody) body).setAngularVelocity(entity.spin);
+        }
+        if (body instanceof Stateful) {
+            ((Stateful) body).restoreState(entity.state);
+        }
+    }
+
+    /**
+     * @return Every element the snapshot builds, to prepare their shapes and
+     *         images ahead of time
+     */
+    public List<LevelElement> elements() {
+        List<LevelElement> elements = new ArrayList<>(terrain);
+        for (Group group : groups) {
+            if (Prefabs.isPrefab(group.element.type)) {
+                elements.addAll(Prefabs.expand(group.element));
+            } else {
+                elements.add(group.element);
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Encodes the snapshot in the binary format
+     *
+     * @return The encoded snapshot, header included
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeHeader(out, VERSION);
+            out.writeInt(levelNumber);
+            out.writeUTF(levelFile != null ? levelFile : "");
+            out.writeFloat(levelLength);
+            out.writeInt(score);
+            out.writeInt(time);
+            out.writeFloat(cameraPosition);
+            writeEntity(out, player);
+            out.writeInt(terrain.size());
+            for (LevelElement element : terrain) {
+                writeElement(out, element);
+            }
+            out.writeInt(groups.size());
+            for (Group group : groups) {
+                writeElement(out, group.element);
+                out.writeBoolean(group.pending);
+                out.writeInt(group.entities.size());
+                for (EntityState entity : group.entities) {
+                    writeEntity(out, entity);
+                }
+            }
+        } catch (IOException e) {
+            // Writing to memory cannot fail
+            throw new IllegalStateException(e);
+        }
+        return seal(bytes.toByteArray());
+    }
+
+    /**
+     * Decodes a snapshot
+     *
+     * @param data An encoded snapshot
+     * @return The snapshot
+     * @throws IOException If the data is not a valid snapshot
+     */
+    public static WorldSnapshot decode(byte[] data) throws IOException {
+        DataInputStream in = openPayload(data, VERSION);
+        int levelNumber = in.readInt();
+        String levelFile = in.readUTF();
+        float levelLength = in.readFloat();
+        int score = in.readInt();
+        int time = in.readInt();
+        float cameraPosition = in.readFloat();
+        EntityState player = readEntity(in);
+        int terrainCount = count(in);
+        List<LevelElement> terrain = new ArrayList<>(terrainCount);
+        for (int i = 0; i < terrainCount; i++) {
+            terrain.add(readElement(in));
+        }
+        int groupCount = count(in);
+        List<Group> groups = new ArrayList<>(groupCount);
+        for (int i = 0; i < groupCount; i++) {
+            LevelElement element = readElement(in);
+            boolean pending = in.readBoolean();
+            int parts = 1;
+            if (Prefabs.isPrefab(element.type)) {
+                if (element.params.length < 2) {
+                    throw new IOException("incomplete prefab " + element.type);
+                }
+                parts = (int) element.params[0];
+            }
+            int entityCount = count(in);
+            List<EntityState> entities = new ArrayList<>(entityCount);
+            for (int j = 0; j < entityCount; j++) {
+                EntityState entity = readEntity(in);
+                if (entity.part < 0 || entity.part >= parts) {
+                    throw new IOException("invalid part " + entity.part + " of " + element.type);
+                }
+                entities.add(entity);
+            }
+            if (entities.isEmpty() && !pending) {
+                throw new IOException("empty group for " + element.type);
+            }
+            groups.add(new Group(element, pending, entities));
+        }
+        return new WorldSnapshot(levelNumber, levelFile.isEmpty() ? null : levelFile, levelLength, score, time,
+                cameraPosition, player, terrain, groups);
+    }
+
+    /**
+     * Writes a saved game atomically: the snapshot is written to a temporary
+     * file in one channel write, forced to disk, then renamed over the target
+     *
+     * @param file The saved game file to create or replace
+     * @throws IOException If the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        writeAtomically(file, encode());
+    }
+
+    /**
+     * Writes an encoded saved game atomically
+     *
+     * @param file The saved game file to create or replace
+     * @param data The encoded saved game
+     * @throws IOException If the file cannot be written
+     */
+    static void writeAtomically(Path file, byte[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, "save", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads a saved game
+     *
+     * @param file The saved game file
+     * @return The snapshot
+     * @throws IOException If the file cannot be read or is not a valid
+     *                     snapshot
+     */
+    public static WorldSnapshot read(Path file) throws IOException {
+        return decode(Files.readAllBytes(file));
+    }
+
+    /**
+     * Checks if a file is a binary saved game, a full snapshot or a
+     * SaveDelta, as opposed to an older text save
+     *
+     * @param file The file
+     * @return True if the file starts with the snapshot magic number
+     */
+    public static boolean isSnapshot(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] magic = new byte[4];
+            return in.read(magic) == 4 && ByteBuffer.wrap(magic).getInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param data An encoded saved game
+     * @return The format version in its header, or -1 if it is not one
+     */
+    static int version(byte[] data) {
+        ByteBuffer header = ByteBuffer.wrap(data);
+        return data.length >= HEADER_LENGTH && header.getInt(0) == MAGIC ? header.getInt(4) : -1;
+    }
+
+    /**
+     * Starts an encoded saved game with its header, checksum left blank
+     *
+     * @param out     The output
+     * @param version The format version
+     * @throws IOException Never for in-memory output
+     */
+    static void writeHeader(DataOutputStream out, int version) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(version);
+        out.writeLong(0);
+    }
+
+    /**
+     * Fills in the checksum of an encoded saved game
+     *
+     * @param data The encoded saved game
+     * @return The same array
+     */
+    static byte[] seal(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+        ByteBuffer.wrap(data).putLong(8, crc.getValue());
+        return data;
+    }
+
+    /**
+     * Checks the header and checksum of an encoded saved game
+     *
+     * @param data    The encoded saved game
+     * @param version The expected format version
+     * @return A stream over the payload
+     * @throws IOException If the data is not a valid saved game of that
+     *                     version
+     */
+    static DataInputStream openPayload(byte[] data, int version) throws IOException {
+        if (data.length < HEADER_LENGTH) {
+            throw new IOException("not a saved game");
+        }
+        ByteBuffer header = ByteBuffer.wrap(data);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("bad magic number");
+        }
+        if (header.getInt(4) != version) {
+            throw new IOException("unsupported version " + header.getInt(4));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+        if (crc.getValue() != header.getLong(8)) {
+            throw new IOException("checksum mismatch");
+        }
+        return new DataInputStream(new ByteArrayInputStream(data, HEADER_LENGTH, data.length - HEADER_LENGTH));
+    }
+
+    /**
+     * Writes the state of one body
+     *
+     * @param out    The output
+     * @param entity The state
+     * @throws IOException Never for in-memory output
+     */
+    private static void writeEntity(DataOutputStream out, EntityState entity) throws IOException {
+        out.writeInt(entity.part);
+        out.writeBoolean(entity.hasBody);
+        out.writeFloat(entity.x);
+        out.writeFloat(entity.y);
+        out.writeFloat(entity.angle);
+        out.writeFloat(entity.vx);
+        out.writeFloat(entity.vy);
+        out.writeFloat(entity.spin);
+        out.writeShort(entity.state.length);
+        for (int value : entity.state) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Reads the state of one body
+     *
+     * @param in The input
+     * @return The state
+     * @throws IOException If the data is truncated
+     */
+    private static EntityState readEntity(DataInputStream in) throws IOException {
+        int part = in.readInt();
+        boolean hasBody = in.readBoolean();
+        float x = in.readFloat();
+        float y = in.readFloat();
+        float angle = in.readFloat();
+        float vx = in.readFloat();
+        float vy = in.readFloat();
+        float spin = in.readFloat();
+        int[] state = new int[in.readUnsignedShort()];
+        for (int i = 0; i < state.length; i++) {
+            state[i] = in.readInt();
+        }
+        return new EntityState(part, hasBody, x, y, angle, vx, vy, spin, state);
+    }
+
+    /**
+     * Writes a level element
+     *
+     * @param out     The output
+     * @param element The element
+     * @throws IOException Never for in-memory output
+     */
+    static void writeElement(DataOutputStream out, LevelElement element) throws IOException {
+        out.writeUTF(element.type);
+        out.writeFloat(element.x);
+        out.writeFloat(element.y);
+        out.writeByte(element.shapeKind);
+        writeValues(out, element.shapeParams);
+        out.writeBoolean(element.imagePath != null);
+        if (element.imagePath != null) {
+            out.writeUTF(element.imagePath);
+            out.writeFloat(element.imageHeight);
+        }
+        writeValues(out, element.params);
+    }
+
+    /**
+     * Reads a level element
+     *
+     * @param in The input
+     * @return The element
+     * @throws IOException If the data is truncated or invalid
+     */
+    static LevelElement readElement(DataInputStream in) throws IOException {
+        String type = in.readUTF();
+        float x = in.readFloat();
+        float y = in.readFloat();
+        int shapeKind = in.readByte();
+        if (shapeKind < LevelElement.SHAPE_NONE || shapeKind > LevelElement.SHAPE_POLYGON) {
+            throw new IOException("unknown shape kind " + shapeKind);
+        }
+        float[] shapeParams = readValues(in);
+        String imagePath = null;
+        float imageHeight = 0;
+        if (in.readBoolean()) {
+            imagePath = in.readUTF();
+            imageHeight = in.readFloat();
+        }
+        return new LevelElement(type, x, y, shapeKind, shapeParams, imagePath, imageHeight, readValues(in));
+    }
+
+    /**
+     * Writes an array of floats preceded by its length
+     */
+    private static void writeValues(DataOutputStream out, float[] values) throws IOException {
+        out.writeShort(values.length);
+        for (float value : values) {
+            out.writeFloat(value);
+        }
+    }
+
+    /**
+     * Reads an array of floats preceded by its length
+     */
+    private static float[] readValues(DataInputStream in) throws IOException {
+        float[] values = new float[in.readUnsignedShort()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readFloat();
+        }
+        return values;
+    }
+
+    /**
+     * Reads a record count, rejecting counts no valid file could hold
+     */
+    static int count(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > in.available()) {
+            throw new IOException("invalid count " + count);
+        }
+        return count;
+    }
+}
@@ -7,6 +7,8 @@ import java.awt.Graphics2D;
 import game.GameWorld;
 import game.Level;
 import game.Menu;
+import service.AudioMetrics;
+import service.IoExecutor;
 import service.ScoreboardManager;
 import service.PlayerManager;
 import city.cs.engine.UserView;
@@ -37,6 +39,9 @@ public class GameView extends UserView {
     public GameView(GameWorld world, int width, int height) {
         super(world, width, height);
         gameWorld = world;
+
+        // Show the outcome of background saves even while the game is paused
+        IoExecutor.setStatusListener(this::repaint);
     }
 
     /**
@@ -89,9 +94,19 @@ public class GameView extends UserView {
             renderNameEntryScreen(g);
         } else if (Menu.currentGameState == Menu.STATE_LEADERBOARD) {
             renderLeaderboard(g);
+        } else if (Menu.currentGameState == Menu.STATE_LOADING) {
+            renderLoadingScreen(g);
         } else {
             renderLevelSelectionScreen(g);
         }
+
+        // Outcome of the latest background save
+        String saveStatus = IoExecutor.getStatus();
+        if (saveStatus != null) {
+            g.setColor(Color.WHITE);
+            g.setFont(GAME_FONT);
+            g.drawString(saveStatus, 20, 580);
+        }
     }
 
     /**
@@ -152,6 +167,11 @@ public class GameView extends UserView {
 
         // Draw timer
         g.drawString(String.valueOf(GameWorld.currentElapsedTimeSeconds) + "s", 786 - 130, 38);
+
+        // Draw audio metrics overlay when toggled on
+        if (AudioMetrics.overlayVisible) {
+            GameWorld.sound.metrics.drawOverlay(g);
+        }
     }
 
     /**
@@ -222,7 +242,8 @@ public class GameView extends UserView {
         // Draw scoreboard content based on current mode
         if (Menu.leaderboardMode == 1) {
             // Global scoreboard
-            ScoreboardManager.drawLeaderBoardMode1(g);
+            ScoreboardManager.drawLeaderboard(g, Menu.leaderboardLevel, Menu.leaderboardMetric,
+                    Menu.leaderboardPage, PlayerManager.name);
         } else if (Menu.leaderboardMode == 0) {
             // Player-specific scoreboard
             ScoreboardManager.drawLeaderBoardMode2(g, PlayerManager.name);
@@ -232,6 +253,27 @@ public class GameView extends UserView {
         g.drawImage(GameAssetManager.menuIcon, 786 - 90, 10, 40, 40, null);
     }
 
+    /**
+     * Renders the loading screen with the progress of the level being loaded
+     * 
+     * @param g The Graphics2D context used for drawing
+     */
+    public void renderLoadingScreen(Graphics2D g) {
+        // Draw background layers
+        g.drawImage(GameAssetManager.background1[0], 0, 0, null);
+        g.drawImage(GameAssetManager.background2[0], 0, 0, null);
+        g.drawImage(GameAssetManager.background3[0], 0, 0, null);
+        g.drawImage(GameAssetManager.background4[0], 0, 0, null);
+        g.drawImage(GameAssetManager.gradient[0], 0, 0, null);
+
+        // Draw the current step and a progress bar
+        g.setColor(Color.white);
+        g.setFont(GAME_FONT);
+        g.drawString(gameWorld.levelLoader.getStatus() + "...", 283, 260);
+        g.drawRect(283, 275, 220, 20);
+        g.fillRect(283, 275, (int) (220 * gameWorld.levelLoader.getProgress()), 20);
+    }
+
     /**
      * Renders the level selection screen
      * 
@@ -253,7 +295,7 @@ public class GameView extends UserView {
                 null);
 
         // Level 2 is available only if player has completed level 1
-        if (PlayerManager.data.levelMax >= 1) {
+        if (PlayerManager.data.isUnlocked(1)) {
             g.drawImage(!Menu.isLevel2ButtonPressed ? GameAssetManager.level2button : GameAssetManager.level2button2,
                     300, 221, 240,
                     60, null);
@@ -262,7 +304,7 @@ public class GameView extends UserView {
         }
 
         // Level 3 is available only if player has completed level 2
-        if (PlayerManager.data.levelMax >= 2) {
+        if (PlayerManager.data.isUnlocked(2)) {
             g.drawImage(!Menu.isLevel3ButtonPressed ? GameAssetManager.level3button : GameAssetManager.level3button2,
                     300, 301, 240,
                     60, null);